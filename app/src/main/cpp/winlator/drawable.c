@@ -151,28 +151,17 @@ Java_com_winlator_xserver_Drawable_fillRect(JNIEnv *env, jclass obj, jshort x, j
     free(row);
 }
 
-JNIEXPORT void JNICALL
-Java_com_winlator_xserver_Drawable_drawLine(JNIEnv *env, jclass obj, jshort x0, jshort y0,
-                                            jshort x1, jshort y1, jint color, jshort lineWidth,
-                                            jshort stride, jobject data) {
-    uint8_t *dataAddr = (*env)->GetDirectBufferAddress(env, data);
+static void drawLine(uint8_t *dataAddr, int16_t x0, int16_t y0, int16_t x1, int16_t y1,
+                     uint8_t *row, int16_t lineWidth, int16_t stride) {
     int dx =  abs(x1-x0);
     int dy = -abs(y1-y0);
     int8_t sx = x0 < x1 ? 1 : -1;
     int8_t sy = y0 < y1 ? 1 : -1;
     int e1 = dx + dy, e2;
-
-    uint8_t rgba[4];
-    unpackColor(color, rgba);
-
     int rowSize = lineWidth * 4;
-    uint8_t *row = malloc(lineWidth * 4);
-
-    int16_t i;
-    for (i = 0; i < rowSize; i += 4) memcpy(row + i, rgba, 4);
 
     while (true) {
-        for (i = 0; i < lineWidth; i++) memcpy(dataAddr + (x0 + (i + y0) * stride) * 4, row, rowSize);
+        for (int16_t i = 0; i < lineWidth; i++) memcpy(dataAddr + (x0 + (i + y0) * stride) * 4, row, rowSize);
         if (x0 == x1 && y0 == y1) break;
 
         e2 = e1 * 2;
@@ -185,8 +174,76 @@ Java_com_winlator_xserver_Drawable_drawLine(JNIEnv *env, jclass obj, jshort x0,
             y0 += sy;
         }
     }
+}
+
+static uint8_t *createColorRow(int color, int width) {
+    uint8_t rgba[4];
+    unpackColor(color, rgba);
+
+    int rowSize = width * 4;
+    uint8_t *row = malloc(rowSize);
+    for (int i = 0; i < rowSize; i += 4) memcpy(row + i, rgba, 4);
+    return row;
+}
+
+static int16_t clamp(int value, int min, int max) {
+    return value < min ? min : (value > max ? max : value);
+}
+
+JNIEXPORT void JNICALL
+Java_com_winlator_xserver_Drawable_fillRects(JNIEnv *env, jclass obj, jshortArray rects,
+                                             jint color, jshort width, jshort height,
+                                             jshort stride, jobject data) {
+    uint8_t *dataAddr = (*env)->GetDirectBufferAddress(env, data);
+    jsize length = (*env)->GetArrayLength(env, rects);
+    jshort *rectsArr = (*env)->GetShortArrayElements(env, rects, NULL);
+    uint8_t *row = createColorRow(color, width);
+
+    for (int i = 0; i + 3 < length; i += 4) {
+        int x0 = rectsArr[i+0] > 0 ? rectsArr[i+0] : 0;
+        int y0 = rectsArr[i+1] > 0 ? rectsArr[i+1] : 0;
+        int x1 = rectsArr[i+0] + (uint16_t)rectsArr[i+2];
+        int y1 = rectsArr[i+1] + (uint16_t)rectsArr[i+3];
+        if (x1 > width) x1 = width;
+        if (y1 > height) y1 = height;
+        if (x1 <= x0 || y1 <= y0) continue;
+
+        int rowSize = (x1 - x0) * 4;
+        for (int y = y0; y < y1; y++) memcpy(dataAddr + (x0 + y * stride) * 4, row, rowSize);
+    }
+
+    free(row);
+    (*env)->ReleaseShortArrayElements(env, rects, rectsArr, JNI_ABORT);
+}
+
+JNIEXPORT void JNICALL
+Java_com_winlator_xserver_Drawable_drawLine(JNIEnv *env, jclass obj, jshort x0, jshort y0,
+                                            jshort x1, jshort y1, jint color, jshort lineWidth,
+                                            jshort stride, jobject data) {
+    uint8_t *dataAddr = (*env)->GetDirectBufferAddress(env, data);
+    uint8_t *row = createColorRow(color, lineWidth);
+    drawLine(dataAddr, x0, y0, x1, y1, row, lineWidth, stride);
+    free(row);
+}
+
+JNIEXPORT void JNICALL
+Java_com_winlator_xserver_Drawable_drawLines(JNIEnv *env, jclass obj, jshortArray points,
+                                             jint color, jshort lineWidth, jshort width,
+                                             jshort height, jshort stride, jobject data) {
+    uint8_t *dataAddr = (*env)->GetDirectBufferAddress(env, data);
+    jsize length = (*env)->GetArrayLength(env, points);
+    jshort *pointsArr = (*env)->GetShortArrayElements(env, points, NULL);
+    uint8_t *row = createColorRow(color, lineWidth);
+    int maxX = width - lineWidth;
+    int maxY = height - lineWidth;
+
+    for (int i = 2; i + 1 < length; i += 2) {
+        drawLine(dataAddr, clamp(pointsArr[i-2], 0, maxX), clamp(pointsArr[i-1], 0, maxY),
+                 clamp(pointsArr[i+0], 0, maxX), clamp(pointsArr[i+1], 0, maxY), row, lineWidth, stride);
+    }
 
     free(row);
+    (*env)->ReleaseShortArrayElements(env, points, pointsArr, JNI_ABORT);
 }
 
 JNIEXPORT void JNICALL
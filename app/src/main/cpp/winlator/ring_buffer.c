@@ -0,0 +1,48 @@
+#include <sys/mman.h>
+#include <sys/syscall.h>
+#include <unistd.h>
+#include <jni.h>
+
+#ifndef MFD_CLOEXEC
+#define MFD_CLOEXEC 0x0001U
+#endif
+
+static int memfd_create(const char *name, unsigned int flags) {
+#ifdef __NR_memfd_create
+    return syscall(__NR_memfd_create, name, flags);
+#else
+    return -1;
+#endif
+}
+
+JNIEXPORT jobject JNICALL
+Java_com_winlator_xconnector_XInputStream_allocateRingBuffer(JNIEnv *env, jclass obj, jint size) {
+    long pageSize = sysconf(_SC_PAGESIZE);
+    size = (size + pageSize - 1) & ~(pageSize - 1);
+
+    int fd = memfd_create("xinputstream", MFD_CLOEXEC);
+    if (fd < 0) return NULL;
+    if (ftruncate(fd, size) < 0) goto error;
+
+    char *data = mmap(NULL, size * 2, PROT_NONE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0);
+    if (data == MAP_FAILED) goto error;
+
+    if (mmap(data, size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_FIXED, fd, 0) == MAP_FAILED ||
+        mmap(data + size, size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_FIXED, fd, 0) == MAP_FAILED) {
+        munmap(data, size * 2);
+        goto error;
+    }
+
+    close(fd);
+    return (*env)->NewDirectByteBuffer(env, data, size * 2);
+    error:
+    close(fd);
+    return NULL;
+}
+
+JNIEXPORT void JNICALL
+Java_com_winlator_xconnector_XInputStream_freeRingBuffer(JNIEnv *env, jclass obj, jobject data) {
+    char *dataAddr = (*env)->GetDirectBufferAddress(env, data);
+    jlong size = (*env)->GetDirectBufferCapacity(env, data);
+    munmap(dataAddr, size);
+}
@@ -5,17 +5,18 @@
 #include <sys/types.h>
 #include <sys/eventfd.h>
 #include <sys/un.h>
+#include <sys/uio.h>
 #include <unistd.h>
 #include <string.h>
 #include <malloc.h>
+#include <errno.h>
 #include <jni.h>
 #include <android/log.h>
 
 #define printf(...) __android_log_print(ANDROID_LOG_DEBUG, "System.out", __VA_ARGS__);
 #define MAX_EVENTS 10
 #define MAX_FDS 32
-
-struct epoll_event events[MAX_EVENTS];
+#define MAX_IOVECS 64
 
 JNIEXPORT jint JNICALL
 Java_com_winlator_xconnector_XConnectorEpoll_createAFUnixSocket(JNIEnv *env, jobject obj,
@@ -54,6 +55,11 @@ Java_com_winlator_xconnector_XConnectorEpoll_closeFd(JNIEnv *env, jobject obj, j
     close(fd);
 }
 
+JNIEXPORT void JNICALL
+Java_com_winlator_xconnector_XConnectorEpoll_shutdownSocket(JNIEnv *env, jobject obj, jint fd) {
+    shutdown(fd, SHUT_RDWR);
+}
+
 JNIEXPORT jboolean JNICALL
 Java_com_winlator_xconnector_XConnectorEpoll_doEpollIndefinitely(JNIEnv *env, jobject obj,
                                                                  jint epollFd, jint serverFd,
@@ -61,7 +67,9 @@ Java_com_winlator_xconnector_XConnectorEpoll_doEpollIndefinitely(JNIEnv *env, jo
     jclass cls = (*env)->GetObjectClass(env, obj);
     jmethodID handleNewConnection = (*env)->GetMethodID(env, cls, "handleNewConnection", "(I)V");
     jmethodID handleExistingConnection = (*env)->GetMethodID(env, cls, "handleExistingConnection", "(I)V");
+    jmethodID handleWritableConnection = (*env)->GetMethodID(env, cls, "handleWritableConnection", "(I)V");
 
+    struct epoll_event events[MAX_EVENTS];
     int numFds = epoll_wait(epollFd, events, MAX_EVENTS, -1);
     for (int i = 0; i < numFds; i++) {
         if (events[i].data.fd == serverFd) {
@@ -79,8 +87,13 @@ Java_com_winlator_xconnector_XConnectorEpoll_doEpollIndefinitely(JNIEnv *env, jo
                 else (*env)->CallVoidMethod(env, obj, handleNewConnection, clientFd);
             }
         }
-        else if (events[i].events & EPOLLIN) {
-            (*env)->CallVoidMethod(env, obj, handleExistingConnection, events[i].data.fd);
+        else {
+            if (events[i].events & (EPOLLIN | EPOLLHUP | EPOLLERR)) {
+                (*env)->CallVoidMethod(env, obj, handleExistingConnection, events[i].data.fd);
+            }
+            if (events[i].events & EPOLLOUT) {
+                (*env)->CallVoidMethod(env, obj, handleWritableConnection, events[i].data.fd);
+            }
         }
     }
 
@@ -98,6 +111,17 @@ Java_com_winlator_xconnector_XConnectorEpoll_addFdToEpoll(JNIEnv *env, jobject o
     return JNI_TRUE;
 }
 
+JNIEXPORT jboolean JNICALL
+Java_com_winlator_xconnector_XConnectorEpoll_setFdEpollEvents(JNIEnv *env, jobject obj,
+                                                              jint epollFd, jint fd,
+                                                              jboolean readable, jboolean writable) {
+    struct epoll_event event;
+    event.data.fd = fd;
+    event.events = (readable ? EPOLLIN : 0) | (writable ? EPOLLOUT : 0);
+    if (epoll_ctl(epollFd, EPOLL_CTL_MOD, fd, &event) < 0) return JNI_FALSE;
+    return JNI_TRUE;
+}
+
 JNIEXPORT void JNICALL
 Java_com_winlator_xconnector_XConnectorEpoll_removeFdFromEpoll(JNIEnv *env, jobject obj,
                                                                jint epollFd, jint fd) {
@@ -118,6 +142,45 @@ Java_com_winlator_xconnector_ClientSocket_write(JNIEnv *env, jobject obj, jint f
     return write(fd, dataAddr, length);
 }
 
+JNIEXPORT jint JNICALL
+Java_com_winlator_xconnector_ClientSocket_writev(JNIEnv *env, jobject obj, jint fd, jobjectArray buffers,
+                                                 jintArray offsets, jintArray lengths, jint count,
+                                                 jboolean nonBlocking) {
+    if (count > MAX_IOVECS) count = MAX_IOVECS;
+
+    struct iovec iov[MAX_IOVECS];
+    jint *offsetsPtr = (*env)->GetIntArrayElements(env, offsets, NULL);
+    jint *lengthsPtr = (*env)->GetIntArrayElements(env, lengths, NULL);
+
+    for (int i = 0; i < count; i++) {
+        jobject data = (*env)->GetObjectArrayElement(env, buffers, i);
+        char *dataAddr = (*env)->GetDirectBufferAddress(env, data);
+        iov[i].iov_base = dataAddr + offsetsPtr[i];
+        iov[i].iov_len = lengthsPtr[i];
+        (*env)->DeleteLocalRef(env, data);
+    }
+
+    (*env)->ReleaseIntArrayElements(env, offsets, offsetsPtr, JNI_ABORT);
+    (*env)->ReleaseIntArrayElements(env, lengths, lengthsPtr, JNI_ABORT);
+
+    if (nonBlocking) {
+        struct msghdr msg = {
+            .msg_name = NULL,
+            .msg_namelen = 0,
+            .msg_iov = iov,
+            .msg_iovlen = count,
+            .msg_control = NULL,
+            .msg_controllen = 0,
+            .msg_flags = 0
+        };
+
+        int res = sendmsg(fd, &msg, MSG_DONTWAIT | MSG_NOSIGNAL);
+        if (res < 0 && (errno == EAGAIN || errno == EWOULDBLOCK)) return 0;
+        return res;
+    }
+    else return writev(fd, iov, count);
+}
+
 JNIEXPORT jint JNICALL
 Java_com_winlator_xconnector_XConnectorEpoll_createEventFd(JNIEnv *env, jobject obj) {
     return eventfd(0, EFD_NONBLOCK);
@@ -166,10 +229,11 @@ Java_com_winlator_xconnector_ClientSocket_recvAncillaryMsg(JNIEnv *env, jobject
 
 JNIEXPORT jint JNICALL
 Java_com_winlator_xconnector_ClientSocket_sendAncillaryMsg(JNIEnv *env, jobject obj, jint clientFd,
-                                                           jobject data, jint length, jint ancillaryFd) {
+                                                           jobject data, jint offset, jint length, jint ancillaryFd,
+                                                           jboolean nonBlocking) {
     char *dataAddr = (*env)->GetDirectBufferAddress(env, data);
 
-    struct iovec iovmsg = {.iov_base = dataAddr, .iov_len = length};
+    struct iovec iovmsg = {.iov_base = dataAddr + offset, .iov_len = length};
     struct {
         struct cmsghdr align;
         int fds[1];
@@ -191,9 +255,15 @@ Java_com_winlator_xconnector_ClientSocket_sendAncillaryMsg(JNIEnv *env, jobject
     cmsg->cmsg_len = msg.msg_controllen;
     ((int*)CMSG_DATA(cmsg))[0] = ancillaryFd;
 
-    return sendmsg(clientFd, &msg, 0);
+    if (nonBlocking) {
+        int res = sendmsg(clientFd, &msg, MSG_DONTWAIT | MSG_NOSIGNAL);
+        if (res < 0 && (errno == EAGAIN || errno == EWOULDBLOCK)) return 0;
+        return res;
+    }
+    else return sendmsg(clientFd, &msg, 0);
 }
 
+
 JNIEXPORT jboolean JNICALL
 Java_com_winlator_xconnector_XConnectorEpoll_waitForSocketRead(JNIEnv *env, jobject obj, jint clientFd, jint shutdownFd) {
     struct pollfd pfds[2];
@@ -118,6 +118,9 @@ public class SettingsFragment extends Fragment {
         final CheckBox cbEnableBox86_64Logs = view.findViewById(R.id.CBEnableBox86_64Logs);
         cbEnableBox86_64Logs.setChecked(preferences.getBoolean("enable_box86_64_logs", false));
 
+        final CheckBox cbEnableXServerTrace = view.findViewById(R.id.CBEnableXServerTrace);
+        cbEnableXServerTrace.setChecked(preferences.getBoolean("enable_xserver_trace", false));
+
         final TextView tvCursorSpeed = view.findViewById(R.id.TVCursorSpeed);
         final SeekBar sbCursorSpeed = view.findViewById(R.id.SBCursorSpeed);
         sbCursorSpeed.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
@@ -161,6 +164,7 @@ public class SettingsFragment extends Fragment {
             editor.putFloat("cursor_speed", sbCursorSpeed.getProgress() / 100.0f);
             editor.putBoolean("enable_wine_debug", cbEnableWineDebug.isChecked());
             editor.putBoolean("enable_box86_64_logs", cbEnableBox86_64Logs.isChecked());
+            editor.putBoolean("enable_xserver_trace", cbEnableXServerTrace.isChecked());
 
             if (!wineDebugChannels.isEmpty()) {
                 editor.putString("wine_debug_channels", String.join(",", wineDebugChannels));
@@ -134,6 +134,7 @@ public class XServerDisplayActivity extends AppCompatActivity implements Navigat
         if (enableLogs) ProcessHelper.addDebugCallback(debugDialog = new DebugDialog(this));
         Menu menu = navigationView.getMenu();
         menu.findItem(R.id.main_menu_logs).setVisible(enableLogs);
+        menu.findItem(R.id.main_menu_request_stats).setVisible(enableLogs);
         if (XrActivity.isSupported()) menu.findItem(R.id.main_menu_magnifier).setVisible(false);
         navigationView.setNavigationItemSelectedListener(this);
 
@@ -215,6 +216,7 @@ public class XServerDisplayActivity extends AppCompatActivity implements Navigat
         inputControlsManager = new InputControlsManager(this);
         xServer = new XServer(new ScreenInfo(screenSize));
         xServer.setWinHandler(winHandler);
+        xServer.requestProfiler.setEnabled(enableLogs);
         boolean[] winStarted = {false};
         xServer.windowManager.addOnWindowModificationListener(new WindowManager.OnWindowModificationListener() {
             @Override
@@ -289,6 +291,7 @@ public class XServerDisplayActivity extends AppCompatActivity implements Navigat
     protected void onDestroy() {
         winHandler.stop();
         if (environment != null) environment.stopEnvironmentComponents();
+        if (xServerView != null) xServerView.getRenderer().getFrameScheduler().stop();
         super.onDestroy();
     }
 
@@ -343,6 +346,12 @@ public class XServerDisplayActivity extends AppCompatActivity implements Navigat
                 debugDialog.show();
                 drawerLayout.closeDrawers();
                 break;
+            case R.id.main_menu_request_stats:
+                xServer.requestProfiler.dump(imageFs.getTmpDir());
+                xServer.requestProfiler.reset();
+                AppUtils.showToast(this, R.string.request_stats_saved);
+                drawerLayout.closeDrawers();
+                break;
             case R.id.main_menu_touchpad_help:
                 showTouchpadHelpDialog();
                 break;
@@ -355,6 +364,7 @@ public class XServerDisplayActivity extends AppCompatActivity implements Navigat
 
     private void exit() {
         if (shortcut != null) LaunchCoordinator.get(this).onLaunchAborted();
+        if (xServer != null && xServer.requestProfiler.isEnabled()) xServer.requestProfiler.dump(imageFs.getTmpDir());
         winHandler.stop();
         if (environment != null) environment.stopEnvironmentComponents();
         AppUtils.restartApplication(this);
@@ -451,7 +461,12 @@ public class XServerDisplayActivity extends AppCompatActivity implements Navigat
 
         environment = new XEnvironment(this, imageFs);
         environment.addComponent(new SysVSharedMemoryComponent(xServer, UnixSocketConfig.createSocket(rootPath, UnixSocketConfig.SYSVSHM_SERVER_PATH)));
-        environment.addComponent(new XServerComponent(xServer, UnixSocketConfig.createSocket(rootPath, UnixSocketConfig.XSERVER_PATH)));
+        XServerComponent xServerComponent = new XServerComponent(xServer, UnixSocketConfig.createSocket(rootPath, UnixSocketConfig.XSERVER_PATH));
+        if (preferences.getBoolean("enable_xserver_trace", false)) {
+            File traceDir = new File(getExternalFilesDir(null), "xtraces");
+            if (traceDir.isDirectory() || traceDir.mkdirs()) xServerComponent.setTraceFile(new File(traceDir, "xserver-"+System.currentTimeMillis()+".xtrace"));
+        }
+        environment.addComponent(xServerComponent);
         environment.addComponent(new NetworkInfoUpdateComponent());
 
         if (audioDriver.equals("alsa")) {
@@ -494,6 +509,13 @@ public class XServerDisplayActivity extends AppCompatActivity implements Navigat
             renderer.setUnviewableWMClasses("explorer.exe");
         }
 
+        String frameRateLimit = container != null ? container.getExtra("frameRateLimit", "0") : "0";
+        if (shortcut != null) frameRateLimit = shortcut.getExtra("frameRateLimit", frameRateLimit);
+        try {
+            renderer.getFrameScheduler().setFrameRateLimit(Mathf.clamp(Integer.parseInt(frameRateLimit), 0, 1000));
+        }
+        catch (NumberFormatException e) {}
+
         xServer.setRenderer(renderer);
         rootView.addView(xServerView);
 
@@ -15,4 +15,18 @@ public abstract class CPUStatus {
         int maxFreq = FileUtils.readInt("/sys/devices/system/cpu/cpu"+cpuIndex+"/cpufreq/cpuinfo_max_freq");
         return (short)(maxFreq / 1000);
     }
+
+    public static int getBigCoreCount() {
+        int numProcessors = Runtime.getRuntime().availableProcessors();
+        short[] maxClockSpeeds = new short[numProcessors];
+        short minClockSpeed = Short.MAX_VALUE;
+        for (int i = 0; i < numProcessors; i++) {
+            maxClockSpeeds[i] = getMaxClockSpeed(i);
+            if (maxClockSpeeds[i] > 0) minClockSpeed = (short)Math.min(minClockSpeed, maxClockSpeeds[i]);
+        }
+
+        int bigCoreCount = 0;
+        for (short maxClockSpeed : maxClockSpeeds) if (maxClockSpeed > minClockSpeed) bigCoreCount++;
+        return bigCoreCount > 0 ? bigCoreCount : numProcessors;
+    }
 }
\ No newline at end of file
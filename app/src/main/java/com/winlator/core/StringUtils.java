@@ -63,7 +63,11 @@ public class StringUtils {
     }
 
     public static String fromANSIString(byte[] bytes, Charset charset) {
-        String value = charset != null ? new String(bytes, charset) : new String(bytes);
+        return fromANSIString(bytes, 0, bytes.length, charset);
+    }
+
+    public static String fromANSIString(byte[] bytes, int offset, int length, Charset charset) {
+        String value = charset != null ? new String(bytes, offset, length, charset) : new String(bytes, offset, length);
         int indexOfNull = value.indexOf('\0');
         return indexOfNull != -1 ? value.substring(0, indexOfNull) : value;
     }
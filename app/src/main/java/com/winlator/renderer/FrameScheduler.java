@@ -0,0 +1,136 @@
+package com.winlator.renderer;
+
+import com.winlator.xserver.DisplayClock;
+
+public class FrameScheduler implements Runnable {
+    private final Runnable onRenderListener;
+    private float refreshRate = DisplayClock.DEFAULT_REFRESH_RATE;
+    private int frameRateLimit = 0;
+    private long frameInterval = 0;
+    private long slack = 0;
+    private long lastFrameTime = 0;
+    private boolean framePending = false;
+    private boolean frameDeferred = false;
+    private long requestedFrames = 0;
+    private long renderedFrames = 0;
+    private long skippedFrames = 0;
+    private Thread thread;
+
+    public FrameScheduler(Runnable onRenderListener) {
+        this.onRenderListener = onRenderListener;
+    }
+
+    public synchronized float getRefreshRate() {
+        return refreshRate;
+    }
+
+    public synchronized void setRefreshRate(float refreshRate) {
+        if (refreshRate <= 0) return;
+        this.refreshRate = refreshRate;
+        updateFrameInterval();
+    }
+
+    public synchronized int getFrameRateLimit() {
+        return frameRateLimit;
+    }
+
+    public synchronized void setFrameRateLimit(int frameRateLimit) {
+        this.frameRateLimit = Math.max(0, frameRateLimit);
+        updateFrameInterval();
+    }
+
+    public synchronized float getTargetFrameRate() {
+        return frameRateLimit > 0 ? Math.min(frameRateLimit, refreshRate) : refreshRate;
+    }
+
+    private void updateFrameInterval() {
+        frameInterval = frameRateLimit > 0 && frameRateLimit < refreshRate ? 1000000000L / frameRateLimit : 0;
+        slack = (long)(125000000L / refreshRate);
+        notifyAll();
+    }
+
+    public void requestFrame() {
+        synchronized (this) {
+            requestedFrames++;
+            if (framePending || frameDeferred) {
+                skippedFrames++;
+                return;
+            }
+
+            if (getFrameDeadline() > System.nanoTime()) {
+                frameDeferred = true;
+                if (thread == null) {
+                    thread = new Thread(this, "FrameScheduler");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+                notifyAll();
+                return;
+            }
+            framePending = true;
+        }
+
+        onRenderListener.run();
+    }
+
+    public synchronized void beginFrame() {
+        framePending = false;
+        lastFrameTime = System.nanoTime();
+        renderedFrames++;
+    }
+
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        frameDeferred = false;
+    }
+
+    private long getFrameDeadline() {
+        return frameInterval > 0 ? lastFrameTime + frameInterval - slack : 0;
+    }
+
+    public synchronized long getRequestedFrames() {
+        return requestedFrames;
+    }
+
+    public synchronized long getRenderedFrames() {
+        return renderedFrames;
+    }
+
+    public synchronized long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    public synchronized void resetCounters() {
+        requestedFrames = 0;
+        renderedFrames = 0;
+        skippedFrames = 0;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (!frameDeferred) wait();
+
+                    long delay = getFrameDeadline() - System.nanoTime();
+                    if (delay > 0) {
+                        wait(Math.max(1, delay / 1000000));
+                        continue;
+                    }
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+
+                frameDeferred = false;
+                framePending = true;
+            }
+
+            onRenderListener.run();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
+import android.view.Display;
 
 import com.winlator.R;
 import com.winlator.XrActivity;
@@ -18,6 +19,7 @@ import com.winlator.xserver.Bitmask;
 import com.winlator.xserver.Cursor;
 import com.winlator.xserver.Drawable;
 import com.winlator.xserver.Pointer;
+import com.winlator.xserver.WMClassFilter;
 import com.winlator.xserver.Window;
 import com.winlator.xserver.WindowAttributes;
 import com.winlator.xserver.WindowManager;
@@ -30,6 +32,7 @@ import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindowModificationListener, Pointer.OnPointerMotionListener {
+    private static final int FORCE_FULLSCREEN_WM_CLASS_MATCH = 1;
     public final XServerView xServerView;
     private final XServer xServer;
     private final VertexAttribute quadVertices = new VertexAttribute("position", 2);
@@ -38,6 +41,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
     private final CursorMaterial cursorMaterial = new CursorMaterial();
     private final WindowMaterial windowMaterial = new WindowMaterial();
     public final ViewTransformation viewTransformation = new ViewTransformation();
+    private final FrameScheduler frameScheduler;
     private final Drawable rootCursorDrawable;
     private final ArrayList<RenderableWindow> renderableWindows = new ArrayList<>();
     private String forceFullscreenWMClass = null;
@@ -47,14 +51,19 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
     private boolean cursorVisible = true;
     private boolean screenOffsetYRelativeToCursor = false;
     private String[] unviewableWMClasses = null;
+    private WMClassFilter wmClassFilter = new WMClassFilter();
     private float magnifierZoom = 1.0f;
     private boolean magnifierEnabled = true;
     private int surfaceWidth;
     private int surfaceHeight;
+    private int frameUploadedBytes;
+    private volatile int lastFrameUploadedBytes;
+    private volatile long totalUploadedBytes;
 
     public GLRenderer(XServerView xServerView, XServer xServer) {
         this.xServerView = xServerView;
         this.xServer = xServer;
+        frameScheduler = new FrameScheduler(xServerView::requestRender);
         rootCursorDrawable = createRootCursorDrawable();
 
         quadVertices.put(new float[]{
@@ -66,6 +75,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
 
         xServer.windowManager.addOnWindowModificationListener(this);
         xServer.pointer.addOnPointerMotionListener(this);
+        xServer.displayClock.setOnFrameRequestListener(frameScheduler::requestFrame);
     }
 
     @Override
@@ -96,6 +106,11 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
 
         surfaceWidth = width;
         surfaceHeight = height;
+        Display display = xServerView.getDisplay();
+        if (display != null) {
+            xServer.displayClock.setRefreshRate(display.getRefreshRate());
+            frameScheduler.setRefreshRate(display.getRefreshRate());
+        }
         viewTransformation.update(width, height, xServer.screenInfo.width, xServer.screenInfo.height);
     }
 
@@ -107,7 +122,10 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
             viewportNeedsUpdate = true;
         }
 
+        xServer.displayClock.beginFrame();
+        frameScheduler.beginFrame();
         drawFrame();
+        xServer.displayClock.endFrame();
     }
 
     private void drawFrame() {
@@ -123,6 +141,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
         }
 
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        frameUploadedBytes = 0;
 
         if (magnifierEnabled) {
             float pointerX = 0;
@@ -161,6 +180,8 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
         if (cursorVisible) renderCursor();
 
         if (!magnifierEnabled && !fullscreen) GLES20.glDisable(GLES20.GL_SCISSOR_TEST);
+        lastFrameUploadedBytes = frameUploadedBytes;
+        totalUploadedBytes += frameUploadedBytes;
 
         if (xrFrame) {
             XrActivity.getInstance().endFrame();
@@ -172,24 +193,24 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
     @Override
     public void onMapWindow(Window window) {
         xServerView.queueEvent(this::updateScene);
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
     }
 
     @Override
     public void onUnmapWindow(Window window) {
         xServerView.queueEvent(this::updateScene);
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
     }
 
     @Override
     public void onChangeWindowZOrder(Window window) {
         xServerView.queueEvent(this::updateScene);
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
     }
 
     @Override
     public void onUpdateWindowContent(Window window) {
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
     }
 
     @Override
@@ -198,17 +219,29 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
             xServerView.queueEvent(this::updateScene);
         }
         else xServerView.queueEvent(() -> updateWindowPosition(window));
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
     }
 
     @Override
     public void onUpdateWindowAttributes(Window window, Bitmask mask) {
-        if (mask.isSet(WindowAttributes.FLAG_CURSOR)) xServerView.requestRender();
+        if (mask.isSet(WindowAttributes.FLAG_CURSOR)) frameScheduler.requestFrame();
     }
 
     @Override
     public void onPointerMove(short x, short y) {
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
+    }
+
+    public FrameScheduler getFrameScheduler() {
+        return frameScheduler;
+    }
+
+    public int getLastFrameUploadedBytes() {
+        return lastFrameUploadedBytes;
+    }
+
+    public long getTotalUploadedBytes() {
+        return totalUploadedBytes;
     }
 
     private void renderDrawable(Drawable drawable, int x, int y, ShaderMaterial material) {
@@ -218,7 +251,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
     private void renderDrawable(Drawable drawable, int x, int y, ShaderMaterial material, boolean forceFullscreen) {
         synchronized (drawable.renderLock) {
             Texture texture = drawable.getTexture();
-            texture.updateFromDrawable(drawable);
+            frameUploadedBytes += texture.updateFromDrawable(drawable);
 
             if (forceFullscreen) {
                 short newHeight = (short)Math.min(xServer.screenInfo.height, ((float)xServer.screenInfo.width / drawable.width) * drawable.height);
@@ -243,9 +276,10 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
         GLES20.glUniform2f(windowMaterial.getUniformLocation("viewSize"), xServer.screenInfo.width, xServer.screenInfo.height);
         quadVertices.bind(windowMaterial.programId);
 
-        try (XLock lock = xServer.lock(XServer.Lockable.DRAWABLE_MANAGER)) {
+        try (XLock lock = xServer.lockForRead(XServer.Lockable.DRAWABLE_MANAGER)) {
             for (RenderableWindow window : renderableWindows) {
-                renderDrawable(window.content, window.rootX, window.rootY, windowMaterial, window.forceFullscreen);
+                Drawable flipContent = window.window.getFlipContent();
+                renderDrawable(flipContent != null ? flipContent : window.content, window.rootX, window.rootY, windowMaterial, window.forceFullscreen);
             }
         }
 
@@ -257,7 +291,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
         GLES20.glUniform2f(cursorMaterial.getUniformLocation("viewSize"), xServer.screenInfo.width, xServer.screenInfo.height);
         quadVertices.bind(cursorMaterial.programId);
 
-        try (XLock lock = xServer.lock(XServer.Lockable.DRAWABLE_MANAGER)) {
+        try (XLock lock = xServer.lockForRead(XServer.Lockable.DRAWABLE_MANAGER)) {
             Window pointWindow = xServer.inputDeviceManager.getPointWindow();
             Cursor cursor = pointWindow != null ? pointWindow.attributes.getCursor() : null;
             short x = xServer.pointer.getClampedX();
@@ -274,7 +308,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
 
     public void toggleFullscreen() {
         toggleFullscreen = true;
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
     }
 
     private Drawable createRootCursorDrawable() {
@@ -286,7 +320,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
     }
 
     private void updateScene() {
-        try (XLock lock = xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
+        try (XLock lock = xServer.lockForRead(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
             renderableWindows.clear();
             collectRenderableWindows(xServer.windowManager.rootWindow, xServer.windowManager.rootWindow.getX(), xServer.windowManager.rootWindow.getY());
         }
@@ -297,15 +331,10 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
         if (window != xServer.windowManager.rootWindow) {
             boolean viewable = true;
 
-            if (unviewableWMClasses != null) {
-                String wmClass = window.getClassName();
-                for (String unviewableWMClass : unviewableWMClasses) {
-                    if (wmClass.contains(unviewableWMClass)) {
-                        if (window.attributes.isEnabled()) window.disableAllDescendants();
-                        viewable = false;
-                        break;
-                    }
-                }
+            int classFilterResult = window.getClassFilterResult(wmClassFilter);
+            if ((classFilterResult & ~FORCE_FULLSCREEN_WM_CLASS_MATCH) != 0) {
+                if (window.attributes.isEnabled()) window.disableAllDescendants();
+                viewable = false;
             }
 
             if (viewable) {
@@ -316,8 +345,8 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
 
                     if (width >= 320 && height >= 200 && width < xServer.screenInfo.width && height < xServer.screenInfo.height) {
                         Window parent = window.getParent();
-                        boolean parentHasWMClass = parent.getClassName().contains(forceFullscreenWMClass);
-                        boolean hasWMClass = window.getClassName().contains(forceFullscreenWMClass);
+                        boolean parentHasWMClass = (parent.getClassFilterResult(wmClassFilter) & FORCE_FULLSCREEN_WM_CLASS_MATCH) != 0;
+                        boolean hasWMClass = (classFilterResult & FORCE_FULLSCREEN_WM_CLASS_MATCH) != 0;
                         if (hasWMClass) {
                             forceFullscreen = !parentHasWMClass && window.getChildCount() == 0;
                         }
@@ -331,9 +360,9 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
                         }
                     }
 
-                    renderableWindows.add(new RenderableWindow(window.getContent(), x, y, forceFullscreen));
+                    renderableWindows.add(new RenderableWindow(window, x, y, forceFullscreen));
                 }
-                else renderableWindows.add(new RenderableWindow(window.getContent(), x, y));
+                else renderableWindows.add(new RenderableWindow(window, x, y));
             }
         }
 
@@ -363,7 +392,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
 
     public void setCursorVisible(boolean cursorVisible) {
         this.cursorVisible = cursorVisible;
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
     }
 
     public boolean isCursorVisible() {
@@ -376,7 +405,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
 
     public void setScreenOffsetYRelativeToCursor(boolean screenOffsetYRelativeToCursor) {
         this.screenOffsetYRelativeToCursor = screenOffsetYRelativeToCursor;
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
     }
 
     public String getForceFullscreenWMClass() {
@@ -385,6 +414,7 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
 
     public void setForceFullscreenWMClass(String forceFullscreenWMClass) {
         this.forceFullscreenWMClass = forceFullscreenWMClass;
+        updateWMClassFilter();
     }
 
     public String[] getUnviewableWMClasses() {
@@ -393,6 +423,15 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
 
     public void setUnviewableWMClasses(String... unviewableWMNames) {
         this.unviewableWMClasses = unviewableWMNames;
+        updateWMClassFilter();
+    }
+
+    private void updateWMClassFilter() {
+        int count = unviewableWMClasses != null ? unviewableWMClasses.length : 0;
+        String[] patterns = new String[count + 1];
+        patterns[0] = forceFullscreenWMClass;
+        if (count > 0) System.arraycopy(unviewableWMClasses, 0, patterns, 1, count);
+        wmClassFilter = new WMClassFilter(patterns);
     }
 
     public boolean isFullscreen() {
@@ -405,6 +444,6 @@ public class GLRenderer implements GLSurfaceView.Renderer, WindowManager.OnWindo
 
     public void setMagnifierZoom(float magnifierZoom) {
         this.magnifierZoom = magnifierZoom;
-        xServerView.requestRender();
+        frameScheduler.requestFrame();
     }
 }
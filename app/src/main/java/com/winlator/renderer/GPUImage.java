@@ -39,9 +39,11 @@ public class GPUImage extends Texture {
     }
 
     @Override
-    public void updateFromDrawable(Drawable drawable) {
+    public int updateFromDrawable(Drawable drawable) {
         if (!isAllocated()) allocateTexture(drawable.width, drawable.height, null);
+        drawable.getDirtyRegion().clear();
         needsUpdate = false;
+        return 0;
     }
 
     public short getStride() {
@@ -2,8 +2,10 @@ package com.winlator.renderer;
 
 import android.opengl.GLES11Ext;
 import android.opengl.GLES20;
+import android.opengl.GLES30;
 
 import com.winlator.XrActivity;
+import com.winlator.xserver.DirtyRegion;
 import com.winlator.xserver.Drawable;
 
 import java.nio.ByteBuffer;
@@ -16,6 +18,9 @@ public class Texture {
     private int minFilter = GLES20.GL_LINEAR;
     private int format = GLES11Ext.GL_BGRA;
     protected boolean needsUpdate = true;
+    private final int[] dirtyRects = new int[DirtyRegion.MAX_RECTS * 4];
+    private ByteBuffer uploadSource;
+    private ByteBuffer uploadData;
 
     public void allocateTexture(short width, short height, ByteBuffer data) {
         int[] textureIds = new int[1];
@@ -87,19 +92,48 @@ public class Texture {
         this.needsUpdate = needsUpdate;
     }
 
-    public void updateFromDrawable(Drawable drawable) {
+    public int updateFromDrawable(Drawable drawable) {
         ByteBuffer data = drawable.getData();
-        if (data == null) return;
+        if (data == null) return 0;
+        DirtyRegion dirtyRegion = drawable.getDirtyRegion();
 
         if (!isAllocated()) {
+            dirtyRegion.clear();
             allocateTexture(drawable.width, drawable.height, data);
+            needsUpdate = false;
+            return drawable.width * drawable.height * 4;
         }
         else if (needsUpdate) {
+            dirtyRegion.clear();
             GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
             GLES20.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, drawable.width, drawable.height, format, GLES20.GL_UNSIGNED_BYTE, data);
             GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
             needsUpdate = false;
+            return drawable.width * drawable.height * 4;
+        }
+
+        int numRects = dirtyRegion.drainTo(dirtyRects);
+        if (numRects == 0) return 0;
+        if (uploadSource != data) {
+            uploadSource = data;
+            uploadData = data.duplicate();
         }
+
+        int uploadedBytes = 0;
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+        GLES20.glPixelStorei(GLES30.GL_UNPACK_ROW_LENGTH, drawable.width);
+        for (int i = 0, offset = 0; i < numRects; i++, offset += 4) {
+            int x = dirtyRects[offset];
+            int y = dirtyRects[offset + 1];
+            int width = dirtyRects[offset + 2] - x;
+            int height = dirtyRects[offset + 3] - y;
+            uploadData.position((y * drawable.width + x) * 4);
+            GLES20.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, x, y, width, height, format, GLES20.GL_UNSIGNED_BYTE, uploadData);
+            uploadedBytes += width * height * 4;
+        }
+        GLES20.glPixelStorei(GLES30.GL_UNPACK_ROW_LENGTH, 0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        return uploadedBytes;
     }
 
     public boolean isAllocated() {
@@ -121,6 +155,8 @@ public class Texture {
     }
 
     public void destroy() {
+        uploadSource = null;
+        uploadData = null;
         if (textureId > 0) {
             int[] textureIds = new int[]{textureId};
             GLES20.glDeleteTextures(textureIds.length, textureIds, 0);
@@ -68,7 +68,7 @@ public class SysVSharedMemory {
         synchronized (shmemories) {
             SHMemory shmemory = shmemories.get(shmid);
             if (shmemory != null) {
-                if (shmemory.data == null) shmemory.data = mapSHMSegment(shmemory.fd, shmemory.size, 0, true);
+                if (shmemory.data == null) shmemory.data = mapSHMSegment(shmemory.fd, shmemory.size, 0, false);
                 return shmemory.data;
             }
             else return null;
@@ -160,7 +160,7 @@ public class TaskManagerDialog extends ContentDialog implements OnGetProcessInfo
                 XServer xServer = activity.getXServer();
                 Window window;
 
-                try (XLock xlock = xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
+                try (XLock xlock = xServer.lockForRead(XServer.Lockable.WINDOW_MANAGER)) {
                     window = xServer.windowManager.findWindowWithProcessId(processInfo.pid);
                 }
 
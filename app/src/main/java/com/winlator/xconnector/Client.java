@@ -6,25 +6,44 @@ import java.nio.ByteOrder;
 
 public class Client {
     public final ClientSocket clientSocket;
+    public final Transport transport;
     private final XConnectorEpoll connector;
     private XInputStream inputStream;
     private XOutputStream outputStream;
     private Object tag;
     protected Thread pollThread;
     protected int shutdownFd;
+    protected XConnectorEpoll.Reactor reactor;
+    protected boolean readPaused;
+    protected boolean writable;
     protected boolean connected;
 
     public Client(XConnectorEpoll connector, ClientSocket clientSocket) {
+        this(connector, clientSocket, clientSocket);
+    }
+
+    public Client(Transport transport) {
+        this(null, null, transport);
+    }
+
+    private Client(XConnectorEpoll connector, ClientSocket clientSocket, Transport transport) {
         this.connector = connector;
         this.clientSocket = clientSocket;
+        this.transport = transport;
     }
 
     public void createIOStreams() {
         if (inputStream != null || outputStream != null) return;
-        inputStream = new XInputStream(clientSocket, connector.getInitialInputBufferCapacity());
-        outputStream = new XOutputStream(clientSocket, connector.getInitialOutputBufferCapacity());
+        inputStream = new XInputStream(transport, connector != null ? connector.getInitialInputBufferCapacity() : 4096);
+        outputStream = new XOutputStream(transport, connector != null ? connector.getInitialOutputBufferCapacity() : 4096);
         inputStream.setByteOrder(ByteOrder.LITTLE_ENDIAN);
         outputStream.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+
+        if (connector != null && connector.isNonBlockingWrites() && !connector.isMultithreadedClients()) {
+            outputStream.setNonBlocking(true);
+            outputStream.setMaxPendingBytes(connector.getPendingOutputLimit());
+            outputStream.setOnPendingOutputListener((outputStream) -> connector.updateEpollEvents(this));
+        }
     }
 
     public XInputStream getInputStream() {
@@ -35,6 +54,19 @@ public class Client {
         return outputStream;
     }
 
+    protected void releaseIOStreams() {
+        if (inputStream != null) inputStream.release();
+        if (outputStream != null) outputStream.release();
+    }
+
+    public int getQueuedOutputBytes() {
+        return outputStream != null ? outputStream.getPendingBytes() : 0;
+    }
+
+    public boolean isReadPaused() {
+        return readPaused;
+    }
+
     public Object getTag() {
         return tag;
     }
@@ -44,11 +76,15 @@ public class Client {
     }
 
     protected void requestShutdown() {
+        ByteBuffer data = DirectBufferPool.getInstance().acquire(8);
         try {
-            ByteBuffer data = ByteBuffer.allocateDirect(8);
+            data.limit(8);
             data.asLongBuffer().put(1);
             (new ClientSocket(shutdownFd)).write(data);
         }
         catch (IOException e) {}
+        finally {
+            DirectBufferPool.getInstance().release(data);
+        }
     }
 }
@@ -6,7 +6,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 
-public class ClientSocket {
+public class ClientSocket implements Transport {
     public final int fd;
     private final ArrayDeque<Integer> ancillaryFds = new ArrayDeque<>();
 
@@ -22,15 +22,22 @@ public class ClientSocket {
         return !ancillaryFds.isEmpty();
     }
 
+    @Override
     public int getAncillaryFd() {
         return hasAncillaryFds() ? ancillaryFds.poll() : -1;
     }
 
+    @Override
+    public int getAncillaryFdCount() {
+        return ancillaryFds.size();
+    }
+
     @Keep
     public void addAncillaryFd(int ancillaryFd) {
         ancillaryFds.add(ancillaryFd);
     }
 
+    @Override
     public int read(ByteBuffer data) throws IOException {
         int position = data.position();
         int bytesRead = read(fd, data, position, data.remaining());
@@ -44,6 +51,7 @@ public class ClientSocket {
         else throw new IOException("Failed to read data.");
     }
 
+    @Override
     public void write(ByteBuffer data) throws IOException {
         int bytesWritten = write(fd, data, data.limit());
         if (bytesWritten >= 0) {
@@ -52,6 +60,16 @@ public class ClientSocket {
         else throw new IOException("Failed to write data.");
     }
 
+    @Override
+    public int writev(ByteBuffer[] buffers, int[] offsets, int[] lengths, int count, boolean nonBlocking) throws IOException {
+        int bytesWritten = writev(fd, buffers, offsets, lengths, count, nonBlocking);
+        if (bytesWritten >= 0) {
+            return bytesWritten;
+        }
+        else throw new IOException("Failed to write data.");
+    }
+
+    @Override
     public int recvAncillaryMsg(ByteBuffer data) throws IOException {
         int position = data.position();
         int bytesRead = recvAncillaryMsg(fd, data, position, data.remaining());
@@ -65,10 +83,11 @@ public class ClientSocket {
         else throw new IOException("Failed to receive ancillary messages.");
     }
 
-    public void sendAncillaryMsg(ByteBuffer data, int ancillaryFd) throws IOException {
-        int bytesSent = sendAncillaryMsg(fd, data, data.limit(), ancillaryFd);
+    @Override
+    public int sendAncillaryMsg(ByteBuffer data, int offset, int length, int ancillaryFd, boolean nonBlocking) throws IOException {
+        int bytesSent = sendAncillaryMsg(fd, data, offset, length, ancillaryFd, nonBlocking);
         if (bytesSent >= 0) {
-            data.position(bytesSent);
+            return bytesSent;
         }
         else throw new IOException("Failed to send ancillary messages.");
     }
@@ -77,7 +96,9 @@ public class ClientSocket {
 
     private native int write(int fd, ByteBuffer data, int length);
 
+    private native int writev(int fd, ByteBuffer[] buffers, int[] offsets, int[] lengths, int count, boolean nonBlocking);
+
     private native int recvAncillaryMsg(int clientFd, ByteBuffer data, int offset, int length);
 
-    private native int sendAncillaryMsg(int clientFd, ByteBuffer data, int length, int ancillaryFd);
+    private native int sendAncillaryMsg(int clientFd, ByteBuffer data, int offset, int length, int ancillaryFd, boolean nonBlocking);
 }
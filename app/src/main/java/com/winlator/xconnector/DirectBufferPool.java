@@ -0,0 +1,116 @@
+package com.winlator.xconnector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DirectBufferPool {
+    private static final int MIN_SIZE_SHIFT = 6;
+    private static final int MAX_SIZE_SHIFT = 26;
+    private static final int MAX_BUFFERS_PER_CLASS = 16;
+    private static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+    private static final DirectBufferPool instance = new DirectBufferPool(DEFAULT_MAX_POOLED_BYTES);
+    private final FreeList[] freeLists;
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong outstandingBytes = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private static class FreeList {
+        private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+    }
+
+    public DirectBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        freeLists = new FreeList[MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1];
+        for (int i = 0; i < freeLists.length; i++) freeLists[i] = new FreeList();
+    }
+
+    public static DirectBufferPool getInstance() {
+        return instance;
+    }
+
+    public ByteBuffer acquire(int size) {
+        int sizeShift = getSizeShift(size);
+        if (sizeShift > MAX_SIZE_SHIFT) {
+            missCount.incrementAndGet();
+            outstandingBytes.addAndGet(size);
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        ByteBuffer buffer;
+        FreeList freeList = freeLists[sizeShift - MIN_SIZE_SHIFT];
+        synchronized (freeList) {
+            buffer = freeList.buffers.poll();
+        }
+
+        int capacity = 1 << sizeShift;
+        if (buffer != null) {
+            hitCount.incrementAndGet();
+            pooledBytes.addAndGet(-capacity);
+            buffer.clear();
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+        else {
+            missCount.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        outstandingBytes.addAndGet(capacity);
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        int capacity = buffer.capacity();
+        outstandingBytes.addAndGet(-capacity);
+
+        int sizeShift = getSizeShift(capacity);
+        if (sizeShift > MAX_SIZE_SHIFT || (1 << sizeShift) != capacity) return;
+        if (pooledBytes.get() + capacity > maxPooledBytes) return;
+
+        FreeList freeList = freeLists[sizeShift - MIN_SIZE_SHIFT];
+        synchronized (freeList) {
+            if (freeList.buffers.size() >= MAX_BUFFERS_PER_CLASS) return;
+            freeList.buffers.push(buffer);
+        }
+        pooledBytes.addAndGet(capacity);
+    }
+
+    public void trim() {
+        for (FreeList freeList : freeLists) {
+            synchronized (freeList) {
+                ByteBuffer buffer;
+                while ((buffer = freeList.buffers.poll()) != null) pooledBytes.addAndGet(-buffer.capacity());
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getOutstandingBytes() {
+        return outstandingBytes.get();
+    }
+
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private static int getSizeShift(int size) {
+        if (size <= (1 << MIN_SIZE_SHIFT)) return MIN_SIZE_SHIFT;
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "DirectBufferPool{hits="+hitCount+", misses="+missCount+", outstandingBytes="+outstandingBytes+", pooledBytes="+pooledBytes+"}";
+    }
+}
@@ -0,0 +1,120 @@
+package com.winlator.xconnector;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+public class LoopbackTransport implements Transport {
+    private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+    private final ByteArrayOutputStream capturedOutput;
+    private int available = 0;
+    private int ancillaryFdCount = 0;
+    private long bytesWritten = 0;
+    private boolean closed = false;
+
+    public LoopbackTransport() {
+        this(false);
+    }
+
+    public LoopbackTransport(boolean captureOutput) {
+        capturedOutput = captureOutput ? new ByteArrayOutputStream() : null;
+    }
+
+    public synchronized void feed(byte[] data, int ancillaryFdCount) {
+        feed(ByteBuffer.wrap(data), ancillaryFdCount);
+    }
+
+    public synchronized void feed(ByteBuffer data, int ancillaryFdCount) {
+        if (data.hasRemaining()) {
+            chunks.add(data);
+            available += data.remaining();
+        }
+        this.ancillaryFdCount += ancillaryFdCount;
+    }
+
+    public synchronized void close() {
+        closed = true;
+    }
+
+    public synchronized int available() {
+        return available;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public byte[] getCapturedOutput() {
+        return capturedOutput != null ? capturedOutput.toByteArray() : new byte[0];
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer data) {
+        if (chunks.isEmpty()) return closed ? -1 : 0;
+
+        int bytesRead = 0;
+        while (data.hasRemaining() && !chunks.isEmpty()) {
+            ByteBuffer chunk = chunks.peek();
+            int length = Math.min(chunk.remaining(), data.remaining());
+            int limit = chunk.limit();
+            chunk.limit(chunk.position() + length);
+            data.put(chunk);
+            chunk.limit(limit);
+            if (!chunk.hasRemaining()) chunks.poll();
+            bytesRead += length;
+        }
+        available -= bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public int recvAncillaryMsg(ByteBuffer data) {
+        return read(data);
+    }
+
+    @Override
+    public void write(ByteBuffer data) {
+        int length = data.remaining();
+        capture(data, data.position(), length);
+        data.position(data.limit());
+        bytesWritten += length;
+    }
+
+    @Override
+    public int writev(ByteBuffer[] buffers, int[] offsets, int[] lengths, int count, boolean nonBlocking) {
+        int totalLength = 0;
+        for (int i = 0; i < count; i++) {
+            capture(buffers[i], offsets[i], lengths[i]);
+            totalLength += lengths[i];
+        }
+        bytesWritten += totalLength;
+        return totalLength;
+    }
+
+    @Override
+    public int sendAncillaryMsg(ByteBuffer data, int offset, int length, int ancillaryFd, boolean nonBlocking) {
+        capture(data, offset, length);
+        bytesWritten += length;
+        return length;
+    }
+
+    @Override
+    public synchronized int getAncillaryFd() {
+        if (ancillaryFdCount > 0) ancillaryFdCount--;
+        return -1;
+    }
+
+    @Override
+    public synchronized int getAncillaryFdCount() {
+        return ancillaryFdCount;
+    }
+
+    private void capture(ByteBuffer data, int offset, int length) {
+        if (capturedOutput == null) return;
+        byte[] bytes = new byte[length];
+        ByteBuffer source = data.duplicate();
+        source.limit(offset + length).position(offset);
+        source.get(bytes);
+        capturedOutput.write(bytes, 0, length);
+    }
+}
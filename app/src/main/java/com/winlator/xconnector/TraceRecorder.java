@@ -0,0 +1,95 @@
+package com.winlator.xconnector;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class TraceRecorder implements Closeable {
+    public static final int MAGIC = 0x58545243;
+    public static final short VERSION = 1;
+    public static final byte RECORD_CONNECT = 1;
+    public static final byte RECORD_DATA = 2;
+    public static final byte RECORD_DISCONNECT = 3;
+    private final File file;
+    private final DataOutputStream outputStream;
+    private final long startTime = System.nanoTime();
+    private byte[] scratch = new byte[4096];
+    private long bytesRecorded = 0;
+    private boolean closed = false;
+
+    public TraceRecorder(File file) throws IOException {
+        this.file = file;
+        outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+        outputStream.writeInt(MAGIC);
+        outputStream.writeShort(VERSION);
+        outputStream.writeShort(0);
+        outputStream.writeLong(System.currentTimeMillis());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized long getBytesRecorded() {
+        return bytesRecorded;
+    }
+
+    public synchronized void recordConnect(int clientId) {
+        if (closed) return;
+        try {
+            writeRecordHeader(RECORD_CONNECT, clientId);
+        }
+        catch (IOException e) {
+            close();
+        }
+    }
+
+    public synchronized void recordData(int clientId, ByteBuffer data, int ancillaryFdCount) {
+        if (closed) return;
+        try {
+            int length = data.remaining();
+            if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+            data.duplicate().get(scratch, 0, length);
+
+            writeRecordHeader(RECORD_DATA, clientId);
+            outputStream.writeByte(ancillaryFdCount);
+            outputStream.writeInt(length);
+            outputStream.write(scratch, 0, length);
+            bytesRecorded += length;
+        }
+        catch (IOException e) {
+            close();
+        }
+    }
+
+    public synchronized void recordDisconnect(int clientId) {
+        if (closed) return;
+        try {
+            writeRecordHeader(RECORD_DISCONNECT, clientId);
+            outputStream.flush();
+        }
+        catch (IOException e) {
+            close();
+        }
+    }
+
+    private void writeRecordHeader(byte type, int clientId) throws IOException {
+        outputStream.writeByte(type);
+        outputStream.writeInt(clientId);
+        outputStream.writeLong(System.nanoTime() - startTime);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            outputStream.close();
+        }
+        catch (IOException e) {}
+    }
+}
@@ -0,0 +1,173 @@
+package com.winlator.xconnector;
+
+import android.util.SparseArray;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+public class TraceReplayer {
+    private final ConnectionHandler connectionHandler;
+    private final RequestHandler requestHandler;
+    private final SparseArray<Client> clients = new SparseArray<>();
+    private boolean realTime = false;
+    private boolean captureOutput = false;
+    private byte[] scratch = new byte[65536];
+    private long numRecords;
+    private long numClients;
+    private long numRequests;
+    private long bytesReplayed;
+    private long elapsedNanos;
+
+    public TraceReplayer(ConnectionHandler connectionHandler, RequestHandler requestHandler) {
+        this.connectionHandler = connectionHandler;
+        this.requestHandler = requestHandler;
+    }
+
+    public boolean isRealTime() {
+        return realTime;
+    }
+
+    public void setRealTime(boolean realTime) {
+        this.realTime = realTime;
+    }
+
+    public boolean isCaptureOutput() {
+        return captureOutput;
+    }
+
+    public void setCaptureOutput(boolean captureOutput) {
+        this.captureOutput = captureOutput;
+    }
+
+    public void replay(File file) throws IOException {
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+            replay(inputStream);
+        }
+    }
+
+    public void replay(DataInputStream inputStream) throws IOException {
+        if (inputStream.readInt() != TraceRecorder.MAGIC) throw new IOException("Not an X trace file.");
+        short version = inputStream.readShort();
+        if (version != TraceRecorder.VERSION) throw new IOException("Unsupported X trace version "+version+".");
+        inputStream.readShort();
+        inputStream.readLong();
+
+        numRecords = numClients = numRequests = bytesReplayed = 0;
+        long startTime = System.nanoTime();
+        int type;
+        while ((type = inputStream.read()) != -1) {
+            int clientId = inputStream.readInt();
+            long timestamp = inputStream.readLong();
+            if (realTime) waitUntil(startTime + timestamp);
+
+            switch (type) {
+                case TraceRecorder.RECORD_CONNECT:
+                    handleConnect(clientId);
+                    break;
+                case TraceRecorder.RECORD_DATA:
+                    int ancillaryFdCount = inputStream.readUnsignedByte();
+                    int length = inputStream.readInt();
+                    if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+                    inputStream.readFully(scratch, 0, length);
+                    handleData(clientId, ByteBuffer.wrap(scratch, 0, length), ancillaryFdCount);
+                    bytesReplayed += length;
+                    break;
+                case TraceRecorder.RECORD_DISCONNECT:
+                    handleDisconnect(clientId);
+                    break;
+                default:
+                    throw new IOException("Invalid X trace record type "+type+".");
+            }
+            numRecords++;
+        }
+
+        while (clients.size() > 0) handleDisconnect(clients.keyAt(clients.size()-1));
+        elapsedNanos = System.nanoTime() - startTime;
+    }
+
+    private void handleConnect(int clientId) {
+        if (clients.get(clientId) != null) handleDisconnect(clientId);
+        Client client = new Client(new LoopbackTransport(captureOutput));
+        client.connected = true;
+        connectionHandler.handleNewConnection(client);
+        clients.put(clientId, client);
+        numClients++;
+    }
+
+    private void handleData(int clientId, ByteBuffer data, int ancillaryFdCount) {
+        Client client = clients.get(clientId);
+        if (client == null) return;
+
+        LoopbackTransport transport = (LoopbackTransport)client.transport;
+        XInputStream inputStream = client.getInputStream();
+        transport.feed(data, ancillaryFdCount);
+        try {
+            while (transport.available() > 0 && inputStream.readMoreData(true) > 0) {
+                int activePosition = 0;
+                while (requestHandler.handleRequest(client)) {
+                    activePosition = inputStream.getActivePosition();
+                    numRequests++;
+                }
+                inputStream.setActivePosition(activePosition);
+            }
+        }
+        catch (IOException e) {
+            handleDisconnect(clientId);
+        }
+    }
+
+    private void handleDisconnect(int clientId) {
+        Client client = clients.get(clientId);
+        if (client == null) return;
+
+        client.connected = false;
+        connectionHandler.handleConnectionShutdown(client);
+        ((LoopbackTransport)client.transport).close();
+        client.releaseIOStreams();
+        clients.remove(clientId);
+    }
+
+    private static void waitUntil(long time) {
+        long delay;
+        while ((delay = time - System.nanoTime()) > 0) {
+            try {
+                Thread.sleep(delay / 1000000, (int)(delay % 1000000));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    public long getNumClients() {
+        return numClients;
+    }
+
+    public long getNumRequests() {
+        return numRequests;
+    }
+
+    public long getBytesReplayed() {
+        return bytesReplayed;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "%d records, %d clients, %d requests, %d bytes in %.1fms",
+            numRecords, numClients, numRequests, bytesReplayed, elapsedNanos / 1e6);
+    }
+}
@@ -0,0 +1,20 @@
+package com.winlator.xconnector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public interface Transport {
+    int read(ByteBuffer data) throws IOException;
+
+    int recvAncillaryMsg(ByteBuffer data) throws IOException;
+
+    void write(ByteBuffer data) throws IOException;
+
+    int writev(ByteBuffer[] buffers, int[] offsets, int[] lengths, int count, boolean nonBlocking) throws IOException;
+
+    int sendAncillaryMsg(ByteBuffer data, int offset, int length, int ancillaryFd, boolean nonBlocking) throws IOException;
+
+    int getAncillaryFd();
+
+    int getAncillaryFdCount();
+}
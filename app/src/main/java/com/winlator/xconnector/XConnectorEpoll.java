@@ -4,6 +4,8 @@ import android.util.SparseArray;
 
 import androidx.annotation.Keep;
 
+import com.winlator.core.CPUStatus;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -15,11 +17,21 @@ public class XConnectorEpoll implements Runnable {
     private final int serverFd;
     private final int shutdownFd;
     private Thread epollThread;
-    private boolean running = false;
+    private volatile boolean running = false;
     private boolean multithreadedClients = false;
+    private boolean multiReactor = false;
+    private int reactorCount = 0;
+    private Reactor[] reactors;
+    private int nextReactorIndex = 0;
     private boolean canReceiveAncillaryMessages = false;
+    private boolean deferredFlush = false;
+    private boolean nonBlockingWrites = false;
+    private int pendingOutputHighWaterMark = 4 * 1024 * 1024;
+    private int pendingOutputLowWaterMark = 1024 * 1024;
+    private int pendingOutputLimit = 64 * 1024 * 1024;
     private int initialInputBufferCapacity = 4096;
     private int initialOutputBufferCapacity = 4096;
+    private TraceRecorder traceRecorder;
     private final SparseArray<Client> connectedClients = new SparseArray<>();
 
     static {
@@ -58,16 +70,109 @@ public class XConnectorEpoll implements Runnable {
         epollThread = new Thread(this);
     }
 
+    class Reactor implements Runnable {
+        private final int epollFd;
+        private final int eventFd;
+        private final Thread thread;
+        private final ArrayList<Client> pendingClients = new ArrayList<>();
+        private int numClients = 0;
+
+        private Reactor(int index) {
+            epollFd = createEpollFd();
+            if (epollFd < 0) throw new RuntimeException("Failed to create epoll fd.");
+
+            eventFd = createEventFd();
+            if (!addFdToEpoll(epollFd, eventFd)) {
+                closeFd(eventFd);
+                closeFd(epollFd);
+                throw new RuntimeException("Failed to add event fd to epoll.");
+            }
+
+            thread = new Thread(this, "XConnectorReactor-"+index);
+        }
+
+        @Override
+        public void run() {
+            while (running && doEpollIndefinitely(epollFd, -1, false));
+        }
+
+        private void addClient(Client client) {
+            synchronized (pendingClients) {
+                pendingClients.add(client);
+            }
+            XConnectorEpoll.this.signalEventFd(eventFd);
+        }
+
+        private void handlePendingClients() {
+            ByteBuffer data = DirectBufferPool.getInstance().acquire(8);
+            try {
+                data.limit(8);
+                (new ClientSocket(eventFd)).read(data);
+            }
+            catch (IOException e) {}
+            finally {
+                DirectBufferPool.getInstance().release(data);
+            }
+
+            ArrayList<Client> clients;
+            synchronized (pendingClients) {
+                if (pendingClients.isEmpty()) return;
+                clients = new ArrayList<>(pendingClients);
+                pendingClients.clear();
+            }
+
+            for (Client client : clients) {
+                connectionHandler.handleNewConnection(client);
+                synchronized (connectedClients) {
+                    connectedClients.put(client.clientSocket.fd, client);
+                }
+
+                if (!addFdToEpoll(epollFd, client.clientSocket.fd)) killConnection(client);
+            }
+        }
+
+        private void stop() {
+            XConnectorEpoll.this.signalEventFd(eventFd);
+
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                }
+                catch (InterruptedException e) {}
+            }
+        }
+
+        private void close() {
+            for (Client client : pendingClients) {
+                if (traceRecorder != null) traceRecorder.recordDisconnect(client.clientSocket.fd);
+                closeFd(client.clientSocket.fd);
+            }
+            pendingClients.clear();
+
+            removeFdFromEpoll(epollFd, eventFd);
+            closeFd(eventFd);
+            closeFd(epollFd);
+        }
+    }
+
     public synchronized void start() {
         if (running || epollThread == null) return;
         running = true;
+
+        if (multiReactor && !multithreadedClients) {
+            reactors = new Reactor[Math.max(1, reactorCount > 0 ? reactorCount : CPUStatus.getBigCoreCount())];
+            for (int i = 0; i < reactors.length; i++) {
+                reactors[i] = new Reactor(i);
+                reactors[i].thread.start();
+            }
+        }
         epollThread.start();
     }
 
     public synchronized void stop() {
         if (!running || epollThread == null) return;
         running = false;
-        requestShutdown();
+        signalEventFd(shutdownFd);
 
         while (epollThread.isAlive()) {
             try {
@@ -80,7 +185,7 @@ public class XConnectorEpoll implements Runnable {
 
     @Override
     public void run() {
-        while (running && doEpollIndefinitely(epollFd, serverFd, !multithreadedClients));
+        while (running && doEpollIndefinitely(epollFd, serverFd, !multithreadedClients && reactors == null));
         shutdown();
     }
 
@@ -88,6 +193,7 @@ public class XConnectorEpoll implements Runnable {
     private void handleNewConnection(int fd) {
         final Client client = new Client(this, new ClientSocket(fd));
         client.connected = true;
+        if (traceRecorder != null) traceRecorder.recordConnect(fd);
         if (multithreadedClients) {
             client.shutdownFd = createEventFd();
             client.pollThread = new Thread(() -> {
@@ -96,22 +202,59 @@ public class XConnectorEpoll implements Runnable {
             });
             client.pollThread.start();
         }
+        else if (reactors != null) {
+            client.reactor = getNextReactor();
+            client.reactor.addClient(client);
+            return;
+        }
         else connectionHandler.handleNewConnection(client);
-        connectedClients.put(fd, client);
+        synchronized (connectedClients) {
+            connectedClients.put(fd, client);
+        }
+    }
+
+    private Reactor getNextReactor() {
+        synchronized (connectedClients) {
+            Reactor result = null;
+            for (int i = 0; i < reactors.length; i++) {
+                Reactor reactor = reactors[(nextReactorIndex + i) % reactors.length];
+                if (result == null || reactor.numClients < result.numClients) result = reactor;
+            }
+            nextReactorIndex = (nextReactorIndex + 1) % reactors.length;
+            result.numClients++;
+            return result;
+        }
     }
 
     @Keep
     private void handleExistingConnection(int fd) {
-        Client client = connectedClients.get(fd);
-        if (client == null) return;
+        Client client = getClient(fd);
+        if (client == null) {
+            Reactor reactor = getReactor(fd);
+            if (reactor != null) reactor.handlePendingClients();
+            return;
+        }
 
         XInputStream inputStream = client.getInputStream();
+        XOutputStream outputStream = deferredFlush ? client.getOutputStream() : null;
         try {
             if (inputStream != null) {
-                if (inputStream.readMoreData(canReceiveAncillaryMessages) > 0) {
-                    int activePosition = 0;
-                    while (running && requestHandler.handleRequest(client)) activePosition = inputStream.getActivePosition();
-                    inputStream.setActivePosition(activePosition);
+                int ancillaryFdCount = traceRecorder != null ? client.clientSocket.getAncillaryFdCount() : 0;
+                int bytesRead = inputStream.readMoreData(canReceiveAncillaryMessages);
+                if (bytesRead > 0) {
+                    if (traceRecorder != null) {
+                        traceRecorder.recordData(fd, inputStream.getLastReadData(bytesRead), client.clientSocket.getAncillaryFdCount() - ancillaryFdCount);
+                    }
+
+                    if (outputStream != null) outputStream.setAutoFlush(false);
+                    try {
+                        int activePosition = 0;
+                        while (running && requestHandler.handleRequest(client)) activePosition = inputStream.getActivePosition();
+                        inputStream.setActivePosition(activePosition);
+                    }
+                    finally {
+                        if (outputStream != null) outputStream.setAutoFlush(true);
+                    }
                 }
                 else killConnection(client);
             }
@@ -122,12 +265,56 @@ public class XConnectorEpoll implements Runnable {
         }
     }
 
+    private Reactor getReactor(int eventFd) {
+        Reactor[] reactors = this.reactors;
+        if (reactors == null) return null;
+        for (Reactor reactor : reactors) {
+            if (reactor.eventFd == eventFd) return reactor;
+        }
+        return null;
+    }
+
+    @Keep
+    private void handleWritableConnection(int fd) {
+        Client client = getClient(fd);
+        if (client == null || client.getOutputStream() == null) return;
+
+        try {
+            XOutputStream outputStream = client.getOutputStream();
+            outputStream.flush();
+            if (outputStream.getPendingBytes() == 0) outputStream.flush();
+        }
+        catch (IOException e) {
+            killConnection(client);
+        }
+    }
+
+    void updateEpollEvents(Client client) {
+        if (!client.connected || multithreadedClients) return;
+        if (client.getOutputStream().isOverflowed()) {
+            shutdownSocket(client.clientSocket.fd);
+            return;
+        }
+
+        int pendingBytes = client.getOutputStream().getPendingBytes();
+        boolean readable = client.readPaused ? pendingBytes <= pendingOutputLowWaterMark : pendingBytes < pendingOutputHighWaterMark;
+        boolean writable = pendingBytes > 0;
+        if (readable != client.readPaused && writable == client.writable) return;
+
+        client.readPaused = !readable;
+        client.writable = writable;
+        setFdEpollEvents(client.reactor != null ? client.reactor.epollFd : epollFd, client.clientSocket.fd, readable, writable);
+    }
+
     public Client getClient(int fd) {
-        return connectedClients.get(fd);
+        synchronized (connectedClients) {
+            return connectedClients.get(fd);
+        }
     }
 
     public void killConnection(Client client) {
         client.connected = false;
+        if (traceRecorder != null) traceRecorder.recordDisconnect(client.clientSocket.fd);
         connectionHandler.handleConnectionShutdown(client);
         if (multithreadedClients) {
             if (Thread.currentThread() != client.pollThread) {
@@ -144,17 +331,34 @@ public class XConnectorEpoll implements Runnable {
             }
             closeFd(client.shutdownFd);
         }
+        else if (client.reactor != null) {
+            removeFdFromEpoll(client.reactor.epollFd, client.clientSocket.fd);
+        }
         else removeFdFromEpoll(epollFd, client.clientSocket.fd);
+
+        synchronized (connectedClients) {
+            if (connectedClients.get(client.clientSocket.fd) == client) connectedClients.remove(client.clientSocket.fd);
+            if (client.reactor != null) client.reactor.numClients--;
+        }
         closeFd(client.clientSocket.fd);
-        connectedClients.remove(client.clientSocket.fd);
+        client.releaseIOStreams();
     }
 
     private void shutdown() {
+        if (reactors != null) {
+            for (Reactor reactor : reactors) reactor.stop();
+        }
+
         while (connectedClients.size() > 0) {
             Client client = connectedClients.valueAt(connectedClients.size()-1);
             killConnection(client);
         }
 
+        if (reactors != null) {
+            for (Reactor reactor : reactors) reactor.close();
+            reactors = null;
+        }
+
         removeFdFromEpoll(epollFd, serverFd);
         removeFdFromEpoll(epollFd, shutdownFd);
         closeFd(serverFd);
@@ -186,6 +390,54 @@ public class XConnectorEpoll implements Runnable {
         this.multithreadedClients = multithreadedClients;
     }
 
+    public boolean isMultiReactor() {
+        return multiReactor;
+    }
+
+    public void setMultiReactor(boolean multiReactor) {
+        this.multiReactor = multiReactor;
+    }
+
+    public int getReactorCount() {
+        return reactorCount;
+    }
+
+    public void setReactorCount(int reactorCount) {
+        this.reactorCount = reactorCount;
+    }
+
+    public boolean isNonBlockingWrites() {
+        return nonBlockingWrites;
+    }
+
+    public void setNonBlockingWrites(boolean nonBlockingWrites) {
+        this.nonBlockingWrites = nonBlockingWrites;
+    }
+
+    public int getPendingOutputHighWaterMark() {
+        return pendingOutputHighWaterMark;
+    }
+
+    public void setPendingOutputHighWaterMark(int pendingOutputHighWaterMark) {
+        this.pendingOutputHighWaterMark = pendingOutputHighWaterMark;
+    }
+
+    public int getPendingOutputLowWaterMark() {
+        return pendingOutputLowWaterMark;
+    }
+
+    public void setPendingOutputLowWaterMark(int pendingOutputLowWaterMark) {
+        this.pendingOutputLowWaterMark = pendingOutputLowWaterMark;
+    }
+
+    public int getPendingOutputLimit() {
+        return pendingOutputLimit;
+    }
+
+    public void setPendingOutputLimit(int pendingOutputLimit) {
+        this.pendingOutputLimit = pendingOutputLimit;
+    }
+
     public boolean isCanReceiveAncillaryMessages() {
         return canReceiveAncillaryMessages;
     }
@@ -194,17 +446,39 @@ public class XConnectorEpoll implements Runnable {
         this.canReceiveAncillaryMessages = canReceiveAncillaryMessages;
     }
 
-    private void requestShutdown() {
+    public boolean isDeferredFlush() {
+        return deferredFlush;
+    }
+
+    public void setDeferredFlush(boolean deferredFlush) {
+        this.deferredFlush = deferredFlush;
+    }
+
+    public TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
+    public void setTraceRecorder(TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    private void signalEventFd(int eventFd) {
+        ByteBuffer data = DirectBufferPool.getInstance().acquire(8);
         try {
-            ByteBuffer data = ByteBuffer.allocateDirect(8);
+            data.limit(8);
             data.asLongBuffer().put(1);
-            (new ClientSocket(shutdownFd)).write(data);
+            (new ClientSocket(eventFd)).write(data);
         }
         catch (IOException e) {}
+        finally {
+            DirectBufferPool.getInstance().release(data);
+        }
     }
 
     public static native void closeFd(int fd);
 
+    private static native void shutdownSocket(int fd);
+
     private native int createEpollFd();
 
     private native int createEventFd();
@@ -213,6 +487,8 @@ public class XConnectorEpoll implements Runnable {
 
     private native boolean addFdToEpoll(int epollFd, int fd);
 
+    private native boolean setFdEpollEvents(int epollFd, int fd, boolean readable, boolean writable);
+
     private native void removeFdFromEpoll(int epollFd, int fd);
 
     private native boolean waitForSocketRead(int clientFd, int shutdownFd);
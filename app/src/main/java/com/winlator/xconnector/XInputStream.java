@@ -7,54 +7,131 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 public class XInputStream {
+    private static final int SHRINK_AFTER_READS = 64;
     private ByteBuffer activeBuffer;
     private ByteBuffer buffer;
-    public final ClientSocket clientSocket;
+    public final Transport transport;
+    private final int initialCapacity;
+    private int capacity;
+    private int readOffset;
+    private int count;
+    private int reservedCapacity;
+    private int smallReads;
+    private boolean mirrored;
 
     public XInputStream(int initialCapacity) {
         this(null, initialCapacity);
     }
 
-    public XInputStream(ClientSocket clientSocket, int initialCapacity) {
-        this.clientSocket = clientSocket;
-        this.buffer = ByteBuffer.allocateDirect(initialCapacity);
+    public XInputStream(Transport transport, int initialCapacity) {
+        this.transport = transport;
+        allocateBuffer(initialCapacity, ByteOrder.BIG_ENDIAN);
+        this.initialCapacity = capacity;
     }
 
     public int readMoreData(boolean canReceiveAncillaryMessages) throws IOException {
         if (activeBuffer != null) {
-            if (!activeBuffer.hasRemaining()) {
-                buffer.clear();
-            }
-            else if (activeBuffer.position() > 0) {
-                int newLimit = buffer.position();
-                buffer.position(activeBuffer.position()).limit(newLimit);
-                buffer.compact();
+            int consumed = activeBuffer.position();
+            count -= consumed;
+            readOffset += consumed;
+            if (count == 0) {
+                readOffset = 0;
             }
+            else if (mirrored && readOffset >= capacity) readOffset -= capacity;
             activeBuffer = null;
         }
 
-        growInputBufferIfNecessary();
-        int bytesRead = canReceiveAncillaryMessages ? clientSocket.recvAncillaryMsg(buffer) : clientSocket.read(buffer);
+        resizeBufferIfNecessary();
+
+        int writeOffset = readOffset + count;
+        buffer.limit(mirrored ? readOffset + capacity : capacity).position(writeOffset);
+        int bytesRead = canReceiveAncillaryMessages ? transport.recvAncillaryMsg(buffer) : transport.read(buffer);
 
         if (bytesRead > 0) {
-            int position = buffer.position();
-            buffer.flip();
+            count += bytesRead;
+            buffer.limit(readOffset + count).position(readOffset);
             activeBuffer = buffer.slice().order(buffer.order());
-            buffer.limit(buffer.capacity()).position(position);
         }
         return bytesRead;
     }
 
     public int getAncillaryFd() {
-        return clientSocket.getAncillaryFd();
+        return transport.getAncillaryFd();
+    }
+
+    public ByteBuffer getLastReadData(int length) {
+        ByteBuffer data = activeBuffer.duplicate();
+        data.position(data.limit() - length);
+        return data;
+    }
+
+    public void reserve(int length) {
+        if (length > capacity) reservedCapacity = length;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void release() {
+        if (buffer != null) {
+            if (mirrored) {
+                freeRingBuffer(buffer);
+            }
+            else DirectBufferPool.getInstance().release(buffer);
+        }
+        activeBuffer = null;
+        buffer = null;
+    }
+
+    private void allocateBuffer(int capacity, ByteOrder byteOrder) {
+        ByteBuffer ringBuffer = transport instanceof ClientSocket ? allocateRingBuffer(capacity) : null;
+        if (ringBuffer != null) {
+            buffer = ringBuffer;
+            this.capacity = ringBuffer.capacity() / 2;
+            mirrored = true;
+        }
+        else {
+            buffer = DirectBufferPool.getInstance().acquire(capacity);
+            this.capacity = capacity;
+            mirrored = false;
+        }
+        buffer.order(byteOrder);
     }
 
-    private void growInputBufferIfNecessary() {
-        if (buffer.position() == buffer.capacity()) {
-            ByteBuffer newBuffer = ByteBuffer.allocateDirect(buffer.capacity() * 2).order(buffer.order());
-            buffer.rewind();
-            newBuffer.put(buffer);
-            buffer = newBuffer;
+    private void resizeBufferIfNecessary() {
+        int newCapacity = capacity;
+        if (count == capacity || reservedCapacity > capacity) {
+            newCapacity = capacity * 2;
+            while (newCapacity < reservedCapacity) newCapacity *= 2;
+            reservedCapacity = 0;
+            smallReads = 0;
+        }
+        else if (capacity > initialCapacity && count < initialCapacity && reservedCapacity == 0) {
+            if (++smallReads >= SHRINK_AFTER_READS) {
+                newCapacity = initialCapacity;
+                smallReads = 0;
+            }
+        }
+        else smallReads = 0;
+
+        if (newCapacity != capacity) {
+            ByteBuffer oldBuffer = buffer;
+            boolean oldMirrored = mirrored;
+            allocateBuffer(newCapacity, oldBuffer.order());
+
+            oldBuffer.limit(readOffset + count).position(readOffset);
+            buffer.put(oldBuffer);
+            if (oldMirrored) {
+                freeRingBuffer(oldBuffer);
+            }
+            else DirectBufferPool.getInstance().release(oldBuffer);
+            readOffset = 0;
+        }
+        else if (!mirrored && readOffset > 0 && readOffset + count == capacity) {
+            buffer.limit(readOffset + count).position(readOffset);
+            buffer.compact();
+            readOffset = 0;
         }
     }
 
@@ -125,4 +202,8 @@ public class XInputStream {
     public void skip(int length) {
         activeBuffer.position(activeBuffer.position() + length);
     }
+
+    private static native ByteBuffer allocateRingBuffer(int size);
+
+    private static native void freeRingBuffer(ByteBuffer data);
 }
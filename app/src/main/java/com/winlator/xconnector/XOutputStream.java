@@ -5,22 +5,50 @@ import com.winlator.xserver.XServer;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class XOutputStream {
     private static final byte[] ZERO = new byte[64];
+    private static final int MAX_IOVECS = 64;
     private ByteBuffer buffer;
-    public final ClientSocket clientSocket;
+    public final Transport transport;
     private final ReentrantLock lock = new ReentrantLock();
+    private final OutputStreamLock streamLock = new OutputStreamLock();
+    private final ArrayList<ByteBuffer> segments = new ArrayList<>();
+    private final IdentityHashMap<ByteBuffer, Integer> segmentFds = new IdentityHashMap<>();
+    private final ByteBuffer[] iovecs = new ByteBuffer[MAX_IOVECS];
+    private final int[] iovecOffsets = new int[MAX_IOVECS];
+    private final int[] iovecLengths = new int[MAX_IOVECS];
     private int ancillaryFd = -1;
+    private boolean autoFlush = true;
+    private boolean nonBlocking = false;
+    private volatile int pendingBytes = 0;
+    private int maxPendingBytes = 0;
+    private volatile boolean overflowed = false;
+    private OnPendingOutputListener onPendingOutputListener;
+    private OnFlushListener onFlushListener;
+
+    public interface OnPendingOutputListener {
+        void onPendingOutputChanged(XOutputStream outputStream);
+    }
+
+    public interface OnFlushListener {
+        void onFlush(XOutputStream outputStream);
+    }
 
     public XOutputStream(int initialCapacity) {
         this(null, initialCapacity);
     }
 
-    public XOutputStream(ClientSocket clientSocket, int initialCapacity) {
-        this.clientSocket = clientSocket;
-        buffer = ByteBuffer.allocateDirect(initialCapacity);
+    public XOutputStream(Transport transport, int initialCapacity) {
+        this.transport = transport;
+        buffer = DirectBufferPool.getInstance().acquire(initialCapacity);
+    }
+
+    public ByteOrder getByteOrder() {
+        return buffer.order();
     }
 
     public void setByteOrder(ByteOrder byteOrder) {
@@ -31,6 +59,61 @@ public class XOutputStream {
         this.ancillaryFd = ancillaryFd;
     }
 
+    public boolean isAutoFlush() {
+        return autoFlush;
+    }
+
+    public void setAutoFlush(boolean autoFlush) throws IOException {
+        lock.lock();
+        try {
+            this.autoFlush = autoFlush;
+            if (autoFlush) flushLocked();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isNonBlocking() {
+        return nonBlocking;
+    }
+
+    public void setNonBlocking(boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+    }
+
+    public int getPendingBytes() {
+        return pendingBytes;
+    }
+
+    public int getMaxPendingBytes() {
+        return maxPendingBytes;
+    }
+
+    public void setMaxPendingBytes(int maxPendingBytes) {
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    public OnPendingOutputListener getOnPendingOutputListener() {
+        return onPendingOutputListener;
+    }
+
+    public void setOnPendingOutputListener(OnPendingOutputListener onPendingOutputListener) {
+        this.onPendingOutputListener = onPendingOutputListener;
+    }
+
+    public OnFlushListener getOnFlushListener() {
+        return onFlushListener;
+    }
+
+    public void setOnFlushListener(OnFlushListener onFlushListener) {
+        this.onFlushListener = onFlushListener;
+    }
+
     public void writeByte(byte value) {
         ensureSpaceIsAvailable(1);
         buffer.put(value);
@@ -77,42 +160,166 @@ public class XOutputStream {
         write(ZERO, 0, length);
     }
 
-    private void flush() throws IOException {
-        if (buffer.position() != 0) {
-            buffer.flip();
+    public ByteBuffer reserve(int length) {
+        ensureSpaceIsAvailable(length);
+        return buffer;
+    }
 
+    public ByteBuffer reserveSlice(int length) {
+        ensureSpaceIsAvailable(length);
+        ByteBuffer slice = buffer.slice().order(buffer.order());
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            flushLocked();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLocked() throws IOException {
+        if (onFlushListener != null) onFlushListener.onFlush(this);
+        if (buffer.position() == 0 && segments.isEmpty()) return;
+        if (overflowed) {
+            discardPendingOutput();
+            return;
+        }
+        buffer.flip();
+
+        if (ancillaryFd != -1 || !segments.isEmpty() || nonBlocking) {
+            int oldPendingBytes = pendingBytes;
+            segments.add(buffer);
             if (ancillaryFd != -1) {
-                clientSocket.sendAncillaryMsg(buffer, ancillaryFd);
+                segmentFds.put(buffer, ancillaryFd);
                 ancillaryFd = -1;
             }
-            else clientSocket.write(buffer);
+            writeSegments(nonBlocking);
 
+            if (!segments.isEmpty()) {
+                buffer = DirectBufferPool.getInstance().acquire(buffer.capacity()).order(buffer.order());
+                if (maxPendingBytes > 0 && pendingBytes > maxPendingBytes) {
+                    overflowed = true;
+                    discardPendingOutput();
+                }
+            }
+            else buffer.clear();
+
+            if ((oldPendingBytes > 0 || pendingBytes > 0 || overflowed) && onPendingOutputListener != null) {
+                onPendingOutputListener.onPendingOutputChanged(this);
+            }
+        }
+        else {
+            transport.write(buffer);
             buffer.clear();
         }
     }
 
+    private void writeSegments(boolean nonBlocking) throws IOException {
+        int index = 0;
+        int numSegments = segments.size();
+        while (index < numSegments) {
+            int count = 0;
+            int totalLength = 0;
+            Integer ancillaryFd = !segmentFds.isEmpty() ? segmentFds.get(segments.get(index)) : null;
+            for (int i = index; i < numSegments && count < MAX_IOVECS; i++) {
+                ByteBuffer segment = segments.get(i);
+                if (count > 0 && (ancillaryFd != null || (!segmentFds.isEmpty() && segmentFds.containsKey(segment)))) break;
+                iovecs[count] = segment;
+                iovecOffsets[count] = segment.position();
+                iovecLengths[count] = segment.remaining();
+                totalLength += iovecLengths[count];
+                count++;
+            }
+
+            int bytesWritten;
+            if (ancillaryFd != null) {
+                bytesWritten = transport.sendAncillaryMsg(iovecs[0], iovecOffsets[0], iovecLengths[0], ancillaryFd, nonBlocking);
+                if (bytesWritten > 0) segmentFds.remove(iovecs[0]);
+            }
+            else bytesWritten = transport.writev(iovecs, iovecOffsets, iovecLengths, count, nonBlocking);
+            for (int i = 0; i < count; i++) iovecs[i] = null;
+            if (bytesWritten < totalLength) {
+                while (index < numSegments && (bytesWritten > 0 || !segments.get(index).hasRemaining())) {
+                    ByteBuffer segment = segments.get(index);
+                    int length = Math.min(segment.remaining(), bytesWritten);
+                    segment.position(segment.position() + length);
+                    bytesWritten -= length;
+                    if (!segment.hasRemaining()) index++;
+                }
+                if (nonBlocking) break;
+            }
+            else index += count;
+        }
+
+        DirectBufferPool bufferPool = DirectBufferPool.getInstance();
+        for (int i = 0; i < index; i++) {
+            ByteBuffer segment = segments.get(i);
+            if (segment != buffer) bufferPool.release(segment);
+        }
+
+        if (index == numSegments) {
+            segments.clear();
+            pendingBytes = 0;
+        }
+        else {
+            segments.subList(0, index).clear();
+            int pendingBytes = 0;
+            for (ByteBuffer segment : segments) pendingBytes += segment.remaining();
+            this.pendingBytes = pendingBytes;
+        }
+    }
+
+    private void discardPendingOutput() {
+        DirectBufferPool bufferPool = DirectBufferPool.getInstance();
+        for (ByteBuffer segment : segments) bufferPool.release(segment);
+        segments.clear();
+        segmentFds.clear();
+        ancillaryFd = -1;
+        pendingBytes = 0;
+        buffer.clear();
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            discardPendingOutput();
+            DirectBufferPool bufferPool = DirectBufferPool.getInstance();
+            bufferPool.release(buffer);
+            buffer = ByteBuffer.allocateDirect(0).order(buffer.order());
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
     public XStreamLock lock() {
-        return new OutputStreamLock();
+        lock.lock();
+        return streamLock;
     }
 
     private void ensureSpaceIsAvailable(int length) {
         int position = buffer.position();
         if ((buffer.capacity() - position) >= length) return;
-        ByteBuffer newBuffer = ByteBuffer.allocateDirect(buffer.capacity() + length).order(buffer.order());
-        buffer.rewind();
-        newBuffer.put(buffer).position(position);
+        ByteBuffer newBuffer = DirectBufferPool.getInstance().acquire(Math.max(buffer.capacity(), length)).order(buffer.order());
+        if (position > 0) {
+            buffer.flip();
+            segments.add(buffer);
+        }
+        else DirectBufferPool.getInstance().release(buffer);
         buffer = newBuffer;
     }
 
     private class OutputStreamLock implements XStreamLock {
-        public OutputStreamLock() {
-            lock.lock();
-        }
-
         @Override
         public void close() throws IOException {
             try {
-                flush();
+                if (autoFlush || ancillaryFd != -1) flushLocked();
             }
             finally {
                 lock.unlock();
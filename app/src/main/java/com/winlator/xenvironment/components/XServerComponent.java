@@ -1,16 +1,22 @@
 package com.winlator.xenvironment.components;
 
 import com.winlator.xenvironment.EnvironmentComponent;
+import com.winlator.xconnector.TraceRecorder;
 import com.winlator.xconnector.XConnectorEpoll;
 import com.winlator.xconnector.UnixSocketConfig;
 import com.winlator.xserver.XClientConnectionHandler;
 import com.winlator.xserver.XClientRequestHandler;
 import com.winlator.xserver.XServer;
 
+import java.io.File;
+import java.io.IOException;
+
 public class XServerComponent extends EnvironmentComponent {
     private XConnectorEpoll connector;
     private final XServer xServer;
     private final UnixSocketConfig socketConfig;
+    private File traceFile;
+    private TraceRecorder traceRecorder;
 
     public XServerComponent(XServer xServer, UnixSocketConfig socketConfig) {
         this.xServer = xServer;
@@ -23,6 +29,19 @@ public class XServerComponent extends EnvironmentComponent {
         connector = new XConnectorEpoll(socketConfig, new XClientConnectionHandler(xServer), new XClientRequestHandler());
         connector.setInitialInputBufferCapacity(262144);
         connector.setCanReceiveAncillaryMessages(true);
+        connector.setDeferredFlush(true);
+        connector.setNonBlockingWrites(true);
+
+        if (traceFile != null) {
+            try {
+                traceRecorder = new TraceRecorder(traceFile);
+                connector.setTraceRecorder(traceRecorder);
+            }
+            catch (IOException e) {
+                traceRecorder = null;
+            }
+        }
+
         connector.start();
     }
 
@@ -32,6 +51,21 @@ public class XServerComponent extends EnvironmentComponent {
             connector.stop();
             connector = null;
         }
+
+        xServer.displayClock.stop();
+
+        if (traceRecorder != null) {
+            traceRecorder.close();
+            traceRecorder = null;
+        }
+    }
+
+    public File getTraceFile() {
+        return traceFile;
+    }
+
+    public void setTraceFile(File traceFile) {
+        this.traceFile = traceFile;
     }
 
     public XServer getXServer() {
@@ -1,31 +1,62 @@
 package com.winlator.xserver;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class Atom {
-    private static final ArrayList<String> atoms = new ArrayList<>(Arrays.asList(null, "PRIMARY", "SECONDARY", "ARC", "ATOM", "BITMAP", "CARDINAL", "COLORMAP", "CURSOR", "CUT_BUFFER0", "CUT_BUFFER1", "CUT_BUFFER2", "CUT_BUFFER3", "CUT_BUFFER4", "CUT_BUFFER5", "CUT_BUFFER6", "CUT_BUFFER7", "DRAWABLE", "FONT", "INTEGER", "PIXMAP", "POINT", "RECTANGLE", "RESOURCE_MANAGER", "RGB_COLOR_MAP", "RGB_BEST_MAP", "RGB_BLUE_MAP", "RGB_DEFAULT_MAP", "RGB_GRAY_MAP", "RGB_GREEN_MAP", "RGB_RED_MAP", "STRING", "VISUALID", "WINDOW", "WM_COMMAND", "WM_HINTS", "WM_CLIENT_MACHINE", "WM_ICON_NAME", "WM_ICON_SIZE", "WM_NAME", "WM_NORMAL_HINTS", "WM_SIZE_HINTS", "WM_ZOOM_HINTS", "MIN_SPACE", "NORM_SPACE", "MAX_SPACE", "END_SPACE", "SUPERSC.LPT_X", "SUPERSC.LPT_Y", "SUBSC.LPT_X", "SUBSC.LPT_Y", "UNDERLINE_POSITION", "UNDERLINE_THICKNESS", "STRIKEOUT_ASCENT", "STRIKEOUT_DESCENT", "ITALIC_ANGLE", "X_HEIGHT", "QUAD_WIDTH", "WEIGHT", "POINT_SIZE", "RESOLUTION", "COPYRIGHT", "NOTICE", "FONT_NAME", "FAMILY_NAME", "FULL_NAME", "CAP_HEIGHT", "WM_CLASS", "WM_TRANSIENT_FOR"));
+    private static final String[] PREDEFINED_ATOMS = {null, "PRIMARY", "SECONDARY", "ARC", "ATOM", "BITMAP", "CARDINAL", "COLORMAP", "CURSOR", "CUT_BUFFER0", "CUT_BUFFER1", "CUT_BUFFER2", "CUT_BUFFER3", "CUT_BUFFER4", "CUT_BUFFER5", "CUT_BUFFER6", "CUT_BUFFER7", "DRAWABLE", "FONT", "INTEGER", "PIXMAP", "POINT", "RECTANGLE", "RESOURCE_MANAGER", "RGB_COLOR_MAP", "RGB_BEST_MAP", "RGB_BLUE_MAP", "RGB_DEFAULT_MAP", "RGB_GRAY_MAP", "RGB_GREEN_MAP", "RGB_RED_MAP", "STRING", "VISUALID", "WINDOW", "WM_COMMAND", "WM_HINTS", "WM_CLIENT_MACHINE", "WM_ICON_NAME", "WM_ICON_SIZE", "WM_NAME", "WM_NORMAL_HINTS", "WM_SIZE_HINTS", "WM_ZOOM_HINTS", "MIN_SPACE", "NORM_SPACE", "MAX_SPACE", "END_SPACE", "SUPERSC.LPT_X", "SUPERSC.LPT_Y", "SUBSC.LPT_X", "SUBSC.LPT_Y", "UNDERLINE_POSITION", "UNDERLINE_THICKNESS", "STRIKEOUT_ASCENT", "STRIKEOUT_DESCENT", "ITALIC_ANGLE", "X_HEIGHT", "QUAD_WIDTH", "WEIGHT", "POINT_SIZE", "RESOLUTION", "COPYRIGHT", "NOTICE", "FONT_NAME", "FAMILY_NAME", "FULL_NAME", "CAP_HEIGHT", "WM_CLASS", "WM_TRANSIENT_FOR"};
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[256];
+    private static int count = 0;
+    public static final int STRING = 31;
+    public static final int RESOURCE_MANAGER = 23;
+    public static final int WM_HINTS = 35;
+    public static final int WM_NAME = 39;
+    public static final int WM_CLASS = 67;
+    public static final int NET_WM_PID;
+    public static final int NET_WM_WOW64;
+    public static final int NET_WM_HWND;
 
-    public synchronized static String getName(int id) {
-        return atoms.get(id);
+    static {
+        for (String name : PREDEFINED_ATOMS) addAtom(name);
+        NET_WM_PID = internAtom("_NET_WM_PID");
+        NET_WM_WOW64 = internAtom("_NET_WM_WOW64");
+        NET_WM_HWND = internAtom("_NET_WM_HWND");
     }
 
-    public synchronized static int getId(String name) {
+    private static int addAtom(String name) {
+        int id = count;
+        String[] names = Atom.names;
+        if (id == names.length) names = Arrays.copyOf(names, id * 2);
+        names[id] = name;
+        count++;
+        Atom.names = names;
+        if (name != null) ids.put(name, id);
+        return id;
+    }
+
+    public static String getName(int id) {
+        String[] names = Atom.names;
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    public static int getId(String name) {
         if (name == null) return 0;
-        for (int i = 0; i < atoms.size(); i++) if (name.equals(atoms.get(i))) return i;
-        return -1;
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
     }
 
-    public synchronized static int internAtom(String name) {
+    public static int internAtom(String name) {
         int id = getId(name);
-        if (id == -1) {
-            id = atoms.size();
-            atoms.add(name);
+        if (id != -1) return id;
+
+        synchronized (ids) {
+            id = getId(name);
+            return id != -1 ? id : addAtom(name);
         }
-        return id;
     }
 
-    public synchronized static boolean isValid(int id) {
-        return id > 0 && id < atoms.size();
+    public static boolean isValid(int id) {
+        return id > 0 && getName(id) != null;
     }
 }
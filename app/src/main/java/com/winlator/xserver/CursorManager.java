@@ -1,11 +1,9 @@
 package com.winlator.xserver;
 
-import android.util.SparseArray;
-
 import java.nio.IntBuffer;
 
 public class CursorManager extends XResourceManager {
-    private final SparseArray<Cursor> cursors = new SparseArray<>();
+    private final IntObjectMap<Cursor> cursors = new IntObjectMap<>();
     private final DrawableManager drawableManager;
 
     public CursorManager(DrawableManager drawableManager) {
@@ -17,7 +15,7 @@ public class CursorManager extends XResourceManager {
     }
 
     public Cursor createCursor(int id, short x, short y, Pixmap sourcePixmap, Pixmap maskPixmap) {
-        if (cursors.indexOfKey(id) >= 0) return null;
+        if (cursors.containsKey(id)) return null;
         Drawable drawable = drawableManager.createDrawable(0, sourcePixmap.drawable.width, sourcePixmap.drawable.height, sourcePixmap.drawable.visual);
         Cursor cursor = new Cursor(id, x, y, drawable, sourcePixmap.drawable, maskPixmap != null ? maskPixmap.drawable : null);
         cursors.put(id, cursor);
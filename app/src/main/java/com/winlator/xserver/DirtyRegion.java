@@ -0,0 +1,92 @@
+package com.winlator.xserver;
+
+public class DirtyRegion {
+    public static final int MAX_RECTS = 8;
+    private final int[] rects = new int[MAX_RECTS * 4];
+    private int count = 0;
+
+    public synchronized void add(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        int x0 = x;
+        int y0 = y;
+        int x1 = x + width;
+        int y1 = y + height;
+
+        for (int i = 0; i < count; i++) {
+            int offset = i * 4;
+            if (rects[offset] <= x0 && rects[offset + 1] <= y0 && rects[offset + 2] >= x1 && rects[offset + 3] >= y1) return;
+
+            int unionX0 = Math.min(x0, rects[offset]);
+            int unionY0 = Math.min(y0, rects[offset + 1]);
+            int unionX1 = Math.max(x1, rects[offset + 2]);
+            int unionY1 = Math.max(y1, rects[offset + 3]);
+            long unionArea = (long)(unionX1 - unionX0) * (unionY1 - unionY0);
+            if (unionArea <= getArea(x0, y0, x1, y1) + getArea(rects[offset], rects[offset + 1], rects[offset + 2], rects[offset + 3])) {
+                x0 = unionX0;
+                y0 = unionY0;
+                x1 = unionX1;
+                y1 = unionY1;
+                removeAt(i);
+                i = -1;
+            }
+        }
+
+        if (count == MAX_RECTS) {
+            int bestIndex = 0;
+            long bestCost = Long.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                int offset = i * 4;
+                long unionArea = getArea(Math.min(x0, rects[offset]), Math.min(y0, rects[offset + 1]), Math.max(x1, rects[offset + 2]), Math.max(y1, rects[offset + 3]));
+                long cost = unionArea - getArea(rects[offset], rects[offset + 1], rects[offset + 2], rects[offset + 3]);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestIndex = i;
+                }
+            }
+
+            int offset = bestIndex * 4;
+            x0 = Math.min(x0, rects[offset]);
+            y0 = Math.min(y0, rects[offset + 1]);
+            x1 = Math.max(x1, rects[offset + 2]);
+            y1 = Math.max(y1, rects[offset + 3]);
+            removeAt(bestIndex);
+            add(x0, y0, x1 - x0, y1 - y0);
+            return;
+        }
+
+        int offset = count * 4;
+        rects[offset] = x0;
+        rects[offset + 1] = y0;
+        rects[offset + 2] = x1;
+        rects[offset + 3] = y1;
+        count++;
+    }
+
+    private static long getArea(int x0, int y0, int x1, int y1) {
+        return (long)(x1 - x0) * (y1 - y0);
+    }
+
+    private void removeAt(int index) {
+        count--;
+        if (index < count) System.arraycopy(rects, count * 4, rects, index * 4, 4);
+    }
+
+    public synchronized int drainTo(int[] dst) {
+        int count = this.count;
+        System.arraycopy(rects, 0, dst, 0, count * 4);
+        this.count = 0;
+        return count;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+}
@@ -0,0 +1,161 @@
+package com.winlator.xserver;
+
+public class DisplayClock implements Runnable {
+    public static final float DEFAULT_REFRESH_RATE = 60.0f;
+    private long frameInterval = Math.round(1000000 / DEFAULT_REFRESH_RATE);
+    private long anchorUst = currentUst();
+    private long anchorMsc = 0;
+    private long lastDisplayedMsc = 0;
+    private long pendingMsc = -1;
+    private boolean frameRequested = false;
+    private long frameRequestUst;
+    private Runnable onFrameRequestListener;
+    private OnFrameListener onFrameListener;
+    private Thread thread;
+
+    public interface OnFrameListener {
+        void onPrepareFrame(long msc);
+
+        void onFrameDisplayed(long ust, long msc);
+    }
+
+    public static long currentUst() {
+        return System.nanoTime() / 1000;
+    }
+
+    public synchronized void setRefreshRate(float refreshRate) {
+        if (refreshRate <= 0) return;
+        long ust = currentUst();
+        anchorMsc = getMsc(ust);
+        anchorUst = ust;
+        frameInterval = Math.max(1, Math.round(1000000 / refreshRate));
+    }
+
+    public synchronized long getFrameInterval() {
+        return frameInterval;
+    }
+
+    public synchronized long getMsc() {
+        return getMsc(currentUst());
+    }
+
+    public synchronized long getUst() {
+        return anchorUst + (getMsc(currentUst()) - anchorMsc) * frameInterval;
+    }
+
+    private long getMsc(long ust) {
+        return Math.max(lastDisplayedMsc, anchorMsc + Math.max(0, ust - anchorUst) / frameInterval);
+    }
+
+    public Runnable getOnFrameRequestListener() {
+        return onFrameRequestListener;
+    }
+
+    public void setOnFrameRequestListener(Runnable onFrameRequestListener) {
+        this.onFrameRequestListener = onFrameRequestListener;
+    }
+
+    public OnFrameListener getOnFrameListener() {
+        return onFrameListener;
+    }
+
+    public void setOnFrameListener(OnFrameListener onFrameListener) {
+        this.onFrameListener = onFrameListener;
+    }
+
+    public void requestFrame() {
+        synchronized (this) {
+            if (!frameRequested) {
+                frameRequested = true;
+                frameRequestUst = currentUst();
+            }
+
+            if (thread == null) {
+                thread = new Thread(this, "DisplayClock");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            notifyAll();
+        }
+
+        Runnable onFrameRequestListener = this.onFrameRequestListener;
+        if (onFrameRequestListener != null) onFrameRequestListener.run();
+    }
+
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    public long beginFrame() {
+        long msc;
+        synchronized (this) {
+            msc = getMsc(currentUst()) + 1;
+            pendingMsc = msc;
+            frameRequested = false;
+        }
+
+        OnFrameListener onFrameListener = this.onFrameListener;
+        if (onFrameListener != null) onFrameListener.onPrepareFrame(msc);
+        return msc;
+    }
+
+    public void endFrame() {
+        long ust = currentUst();
+        long msc;
+        synchronized (this) {
+            if (pendingMsc == -1) return;
+            msc = pendingMsc;
+            pendingMsc = -1;
+            anchorUst = ust;
+            anchorMsc = msc;
+            lastDisplayedMsc = msc;
+            notifyAll();
+        }
+
+        OnFrameListener onFrameListener = this.onFrameListener;
+        if (onFrameListener != null) onFrameListener.onFrameDisplayed(ust, msc);
+    }
+
+    private synchronized long getFallbackDeadline() {
+        long nextVBlankUst = anchorUst + (getMsc(frameRequestUst) - anchorMsc + 1) * frameInterval;
+        if (onFrameRequestListener == null) return nextVBlankUst;
+        return Math.max(nextVBlankUst, frameRequestUst + frameInterval * 2);
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            long ust;
+            long msc;
+            synchronized (this) {
+                try {
+                    while (!frameRequested || pendingMsc != -1) wait();
+
+                    long deadline = getFallbackDeadline();
+                    long now = currentUst();
+                    if (now < deadline) {
+                        wait(Math.max(1, (deadline - now) / 1000));
+                        continue;
+                    }
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+
+                msc = Math.max(getMsc(currentUst()), lastDisplayedMsc + 1);
+                ust = anchorUst + (msc - anchorMsc) * frameInterval;
+                lastDisplayedMsc = msc;
+                frameRequested = false;
+            }
+
+            OnFrameListener onFrameListener = this.onFrameListener;
+            if (onFrameListener != null) {
+                onFrameListener.onPrepareFrame(msc);
+                onFrameListener.onFrameDisplayed(ust, msc);
+            }
+        }
+    }
+}
@@ -16,20 +16,32 @@ public class Drawable extends XResource {
     public final Visual visual;
     private Texture texture = new Texture();
     private ByteBuffer data;
+    private final DirtyRegion dirtyRegion = new DirtyRegion();
     private Runnable onDrawListener;
     private Callback<Drawable> onDestroyListener;
+    private Callback<Drawable> onWriteListener;
+    private volatile Drawable flipContent;
+    private OnDamageListener onDamageListener;
     public final Object renderLock = new Object();
 
+    public interface OnDamageListener {
+        void onDamage(Drawable drawable, int x, int y, int width, int height);
+    }
+
     static {
         System.loadLibrary("winlator");
     }
 
     public Drawable(int id, int width, int height, Visual visual) {
+        this(id, width, height, visual, ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    public Drawable(int id, int width, int height, Visual visual, ByteBuffer data) {
         super(id);
         this.width = (short)width;
         this.height = (short)height;
         this.visual = visual;
-        this.data = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        this.data = data;
     }
 
     public static Drawable fromBitmap(Bitmap bitmap) {
@@ -55,6 +67,27 @@ public class Drawable extends XResource {
         this.data = data;
     }
 
+    public DirtyRegion getDirtyRegion() {
+        return dirtyRegion;
+    }
+
+    private void addDirtyRect(int x, int y, int width, int height) {
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + width, this.width);
+        int y1 = Math.min(y + height, this.height);
+        if (x1 <= x0 || y1 <= y0) return;
+        dirtyRegion.add(x0, y0, x1 - x0, y1 - y0);
+        if (onDamageListener != null) onDamageListener.onDamage(this, x0, y0, x1 - x0, y1 - y0);
+    }
+
+    private void addCopiedDirtyRect(short srcX, short srcY, short dstX, short dstY, short width, short height, ByteBuffer srcData) {
+        if (srcX == 0 && srcY == 0 && dstX == 0 && dstY == 0 && srcData.capacity() == data.capacity()) {
+            addDirtyRect(0, 0, this.width, this.height);
+        }
+        else addDirtyRect(dstX, dstY, width, height);
+    }
+
     private short getStride() {
         return texture instanceof GPUImage ? ((GPUImage)texture).getStride() : width;
     }
@@ -75,9 +108,34 @@ public class Drawable extends XResource {
         this.onDestroyListener = onDestroyListener;
     }
 
+    public Callback<Drawable> getOnWriteListener() {
+        return onWriteListener;
+    }
+
+    public void setOnWriteListener(Callback<Drawable> onWriteListener) {
+        this.onWriteListener = onWriteListener;
+    }
+
+    public Drawable getFlipContent() {
+        return flipContent;
+    }
+
+    public void setFlipContent(Drawable flipContent) {
+        this.flipContent = flipContent;
+    }
+
+    public OnDamageListener getOnDamageListener() {
+        return onDamageListener;
+    }
+
+    public void setOnDamageListener(OnDamageListener onDamageListener) {
+        this.onDamageListener = onDamageListener;
+    }
+
     public void drawImage(short srcX, short srcY, short dstX, short dstY, short width, short height, byte depth, ByteBuffer data, short totalWidth, short totalHeight) {
         if (depth == 1) {
             drawBitmap(width, height, data, this.data);
+            addDirtyRect(0, 0, this.width, this.height);
         }
         else if (depth == 24 || depth == 32) {
             dstX = (short)Mathf.clamp(dstX, 0, this.width-1);
@@ -86,28 +144,28 @@ public class Drawable extends XResource {
             if ((dstY + height) > this.height) height = (short)((this.height - dstY));
 
             copyArea(srcX, srcY, dstX, dstY, width, height, totalWidth, this.getStride(), data, this.data);
+            addCopiedDirtyRect(srcX, srcY, dstX, dstY, width, height, data);
         }
 
         this.data.rewind();
         data.rewind();
 
-        texture.setNeedsUpdate(true);
         if (onDrawListener != null) onDrawListener.run();
     }
 
-    public ByteBuffer getImage(short x, short y, short width, short height) {
-        ByteBuffer dstData = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
-
-        x = (short)Mathf.clamp(x, 0, this.width-1);
-        y = (short)Mathf.clamp(y, 0, this.height-1);
-        if ((x + width) > this.width) width = (short)(this.width - x);
-        if ((y + height) > this.height) height = (short)(this.height - y);
+    public void getImage(short x, short y, short width, short height, ByteBuffer dstData) {
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + width, this.width);
+        int y1 = Math.min(y + height, this.height);
+        if (x0 != x || y0 != y || x1 != x + width || y1 != y + height) fillRect((short)0, (short)0, width, height, 0, width, dstData);
 
-        copyArea(x, y, (short)0, (short)0, width, height, this.getStride(), width, this.data, dstData);
+        if (x1 > x0 && y1 > y0) {
+            copyArea((short)x0, (short)y0, (short)(x0 - x), (short)(y0 - y), (short)(x1 - x0), (short)(y1 - y0), this.getStride(), width, this.data, dstData);
+        }
 
         this.data.rewind();
         dstData.rewind();
-        return dstData;
     }
 
     public void copyArea(short srcX, short srcY, short dstX, short dstY, short width, short height, Drawable drawable) {
@@ -128,7 +186,10 @@ public class Drawable extends XResource {
         this.data.rewind();
         drawable.data.rewind();
 
-        texture.setNeedsUpdate(true);
+        if (gcFunction == GraphicsContext.Function.COPY) {
+            addCopiedDirtyRect(srcX, srcY, dstX, dstY, width, height, drawable.data);
+        }
+        else addDirtyRect(dstX, dstY, width, height);
         if (onDrawListener != null) onDrawListener.run();
     }
 
@@ -145,14 +206,61 @@ public class Drawable extends XResource {
         fillRect((short)x, (short)y, (short)width, (short)height, color, this.getStride(), this.data);
         this.data.rewind();
 
-        texture.setNeedsUpdate(true);
+        addDirtyRect(x, y, width, height);
+        if (onDrawListener != null) onDrawListener.run();
+    }
+
+    public void fillRects(short[] rects, int color) {
+        int boundsX0 = width, boundsY0 = height, boundsX1 = 0, boundsY1 = 0;
+        for (int i = 0; i + 3 < rects.length; i += 4) {
+            int x0 = Math.max(rects[i], 0);
+            int y0 = Math.max(rects[i+1], 0);
+            int x1 = Math.min(rects[i] + (rects[i+2] & 0xffff), width);
+            int y1 = Math.min(rects[i+1] + (rects[i+3] & 0xffff), height);
+            if (x1 <= x0 || y1 <= y0) continue;
+
+            dirtyRegion.add(x0, y0, x1 - x0, y1 - y0);
+            boundsX0 = Math.min(boundsX0, x0);
+            boundsY0 = Math.min(boundsY0, y0);
+            boundsX1 = Math.max(boundsX1, x1);
+            boundsY1 = Math.max(boundsY1, y1);
+        }
+        if (boundsX1 <= boundsX0 || boundsY1 <= boundsY0) return;
+
+        fillRects(rects, color, width, height, this.getStride(), this.data);
+        this.data.rewind();
+
+        if (onDamageListener != null) onDamageListener.onDamage(this, boundsX0, boundsY0, boundsX1 - boundsX0, boundsY1 - boundsY0);
         if (onDrawListener != null) onDrawListener.run();
     }
 
     public void drawLines(int color, int lineWidth, short... points) {
-        for (int i = 2; i < points.length; i += 2) {
-            drawLine(points[i-2], points[i-1], points[i+0], points[i+1], color, (short)lineWidth);
+        if (points.length < 4) return;
+        int maxX = width - lineWidth;
+        int maxY = height - lineWidth;
+        int boundsX0 = width, boundsY0 = height, boundsX1 = 0, boundsY1 = 0;
+        for (int i = 2; i + 1 < points.length; i += 2) {
+            int x0 = Mathf.clamp(points[i-2], 0, maxX);
+            int y0 = Mathf.clamp(points[i-1], 0, maxY);
+            int x1 = Mathf.clamp(points[i+0], 0, maxX);
+            int y1 = Mathf.clamp(points[i+1], 0, maxY);
+            int left = Math.min(x0, x1);
+            int top = Math.min(y0, y1);
+            int right = Math.max(x0, x1) + lineWidth;
+            int bottom = Math.max(y0, y1) + lineWidth;
+
+            dirtyRegion.add(left, top, right - left, bottom - top);
+            boundsX0 = Math.min(boundsX0, left);
+            boundsY0 = Math.min(boundsY0, top);
+            boundsX1 = Math.max(boundsX1, right);
+            boundsY1 = Math.max(boundsY1, bottom);
         }
+
+        drawLines(points, color, (short)lineWidth, width, height, this.getStride(), this.data);
+        this.data.rewind();
+
+        if (onDamageListener != null) onDamageListener.onDamage(this, boundsX0, boundsY0, boundsX1 - boundsX0, boundsY1 - boundsY0);
+        if (onDrawListener != null) onDrawListener.run();
     }
 
     public void drawLine(int x0, int y0, int x1, int y1, int color, int lineWidth) {
@@ -165,7 +273,7 @@ public class Drawable extends XResource {
 
         this.data.rewind();
 
-        texture.setNeedsUpdate(true);
+        addDirtyRect(Math.min(x0, x1), Math.min(y0, y1), Math.abs(x1 - x0) + lineWidth, Math.abs(y1 - y0) + lineWidth);
         if (onDrawListener != null) onDrawListener.run();
     }
 
@@ -173,7 +281,7 @@ public class Drawable extends XResource {
         drawAlphaMaskedBitmap(foreRed, foreGreen, foreBlue, backRed, backGreen, backBlue, srcDrawable.data, maskDrawable.data, this.data);
         this.data.rewind();
 
-        texture.setNeedsUpdate(true);
+        addDirtyRect(0, 0, width, height);
         if (onDrawListener != null) onDrawListener.run();
     }
 
@@ -187,7 +295,11 @@ public class Drawable extends XResource {
 
     private static native void fillRect(short x, short y, short width, short height, int color, short stride, ByteBuffer data);
 
+    private static native void fillRects(short[] rects, int color, short width, short height, short stride, ByteBuffer data);
+
     private static native void drawLine(short x0, short y0, short x1, short y1, int color, short lineWidth, short stride, ByteBuffer data);
 
+    private static native void drawLines(short[] points, int color, short lineWidth, short width, short height, short stride, ByteBuffer data);
+
     private static native void fromBitmap(Bitmap bitmap, ByteBuffer data);
 }
\ No newline at end of file
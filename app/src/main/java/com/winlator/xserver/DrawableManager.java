@@ -1,13 +1,13 @@
 package com.winlator.xserver;
 
-import android.util.SparseArray;
-
 import com.winlator.core.Callback;
 import com.winlator.renderer.Texture;
 
+import java.nio.ByteBuffer;
+
 public class DrawableManager extends XResourceManager implements XResourceManager.OnResourceLifecycleListener {
     private final XServer xServer;
-    private final SparseArray<Drawable> drawables = new SparseArray<>();
+    private final IntObjectMap<Drawable> drawables = new IntObjectMap<>();
 
     public DrawableManager(XServer xServer) {
         this.xServer = xServer;
@@ -18,18 +18,37 @@ public class DrawableManager extends XResourceManager implements XResourceManage
         return drawables.get(id);
     }
 
+    public Drawable getDrawableForRead(int id) {
+        Drawable drawable = drawables.get(id);
+        Drawable flipContent = drawable != null ? drawable.getFlipContent() : null;
+        return flipContent != null ? flipContent : drawable;
+    }
+
+    public Drawable getDrawableForWrite(int id) {
+        Drawable drawable = drawables.get(id);
+        if (drawable != null && drawable.getOnWriteListener() != null) drawable.getOnWriteListener().call(drawable);
+        return drawable;
+    }
+
     public Drawable createDrawable(int id, short width, short height, byte depth) {
         return createDrawable(id, width, height, xServer.pixmapManager.getVisualForDepth(depth));
     }
 
     public Drawable createDrawable(int id, short width, short height, Visual visual) {
         if (id == 0) return new Drawable(id, width, height, visual);
-        if (drawables.indexOfKey(id) >= 0) return null;
+        if (drawables.containsKey(id)) return null;
         Drawable drawable = new Drawable(id, width, height, visual);
         drawables.put(id, drawable);
         return drawable;
     }
 
+    public Drawable createDrawable(int id, short width, short height, Visual visual, ByteBuffer data) {
+        if (drawables.containsKey(id)) return null;
+        Drawable drawable = new Drawable(id, width, height, visual, data);
+        drawables.put(id, drawable);
+        return drawable;
+    }
+
     public void removeDrawable(int id) {
         Drawable drawable = drawables.get(id);
 
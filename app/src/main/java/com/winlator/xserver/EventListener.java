@@ -2,8 +2,6 @@ package com.winlator.xserver;
 
 import com.winlator.xserver.events.Event;
 
-import java.io.IOException;
-
 public class EventListener {
     public final XClient client;
     public final Bitmask eventMask;
@@ -22,11 +20,10 @@ public class EventListener {
     }
 
     public void sendEvent(Event event) {
-        try {
-            event.send(client.getSequenceNumber(), client.getOutputStream());
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
+        client.sendEvent(event, eventMask.isSet(Event.POINTER_MOTION_HINT));
+    }
+
+    public void sendInputDeviceEvent(byte code, byte detail, Window event, Window child, short rootX, short rootY, short eventX, short eventY, short state) {
+        client.sendInputDeviceEvent(code, detail, event, child, rootX, rootY, eventX, eventY, state, eventMask.isSet(Event.POINTER_MOTION_HINT));
     }
 }
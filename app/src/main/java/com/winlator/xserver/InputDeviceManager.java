@@ -1,5 +1,6 @@
 package com.winlator.xserver;
 
+import com.winlator.core.Callback;
 import com.winlator.winhandler.MouseEventFlags;
 import com.winlator.winhandler.WinHandler;
 import com.winlator.xserver.events.ButtonPress;
@@ -17,6 +18,8 @@ public class InputDeviceManager implements Pointer.OnPointerMotionListener, Keyb
     private static final byte MOUSE_WHEEL_DELTA = 120;
     private Window pointWindow;
     private final XServer xServer;
+    private final Bitmask pointerEventMask = new Bitmask();
+    private Callback<Window> onPointWindowChangeListener;
 
     public InputDeviceManager(XServer xServer) {
         this.xServer = xServer;
@@ -59,7 +62,18 @@ public class InputDeviceManager implements Pointer.OnPointerMotionListener, Keyb
 
     private void updatePointWindow() {
         Window pointWindow = xServer.windowManager.findPointWindow(xServer.pointer.getClampedX(), xServer.pointer.getClampedY());
-        this.pointWindow = pointWindow != null ? pointWindow : xServer.windowManager.rootWindow;
+        if (pointWindow == null) pointWindow = xServer.windowManager.rootWindow;
+        if (pointWindow == this.pointWindow) return;
+        this.pointWindow = pointWindow;
+        if (onPointWindowChangeListener != null) onPointWindowChangeListener.call(pointWindow);
+    }
+
+    public Callback<Window> getOnPointWindowChangeListener() {
+        return onPointWindowChangeListener;
+    }
+
+    public void setOnPointWindowChangeListener(Callback<Window> onPointWindowChangeListener) {
+        this.onPointWindowChangeListener = onPointWindowChangeListener;
     }
 
     public Window getPointWindow() {
@@ -98,6 +112,24 @@ public class InputDeviceManager implements Pointer.OnPointerMotionListener, Keyb
         }
     }
 
+    private void sendInputDeviceEvent(Window window, Bitmask eventMask, byte code, byte detail, Window eventWindow, Window child, short x, short y, short state) {
+        short eventX = (short)(x - eventWindow.getRootX());
+        short eventY = (short)(y - eventWindow.getRootY());
+        Window grabWindow = xServer.grabManager.getWindow();
+        if (grabWindow != null && grabWindow.attributes.isEnabled()) {
+            EventListener eventListener = xServer.grabManager.getEventListener();
+            if (xServer.grabManager.isOwnerEvents() && window != null) {
+                window.sendInputDeviceEvent(eventMask, eventListener.client, code, detail, eventWindow, child, x, y, eventX, eventY, state);
+            }
+            else if (eventListener.isInterestedIn(eventMask)) {
+                eventListener.sendInputDeviceEvent(code, detail, eventWindow, child, x, y, eventX, eventY, state);
+            }
+        }
+        else if (window != null && window.attributes.isEnabled()) {
+            window.sendInputDeviceEvent(eventMask, null, code, detail, eventWindow, child, x, y, eventX, eventY, state);
+        }
+    }
+
     public void sendEnterLeaveNotify(Window windowA, Window windowB, PointerWindowEvent.Mode mode) {
         if (windowA == windowB) return;
         short x = xServer.pointer.getX();
@@ -139,15 +171,12 @@ public class InputDeviceManager implements Pointer.OnPointerMotionListener, Keyb
             }
 
             if (grabWindow != null && grabWindow.attributes.isEnabled()) {
-                Bitmask eventMask = createPointerEventMask();
-                eventMask.unset(button.flag());
-
+                short state = (short)(getPointerEventMask().getBits() & ~button.flag());
                 short x = xServer.pointer.getX();
                 short y = xServer.pointer.getY();
-                short[] localPoint = grabWindow.rootPointToLocal(x, y);
 
                 Window child = grabWindow.isAncestorOf(pointWindow) ? pointWindow : null;
-                grabWindow.sendEvent(Event.BUTTON_PRESS, new ButtonPress(button.code(), xServer.windowManager.rootWindow, grabWindow, child, x, y, localPoint[0], localPoint[1], eventMask));
+                grabWindow.sendInputDeviceEvent(Event.BUTTON_PRESS, null, ButtonPress.CODE, button.code(), grabWindow, child, x, y, (short)(x - grabWindow.getRootX()), (short)(y - grabWindow.getRootY()), state);
             }
         }
     }
@@ -159,20 +188,14 @@ public class InputDeviceManager implements Pointer.OnPointerMotionListener, Keyb
             winHandler.mouseEvent(MouseEventFlags.getFlagFor(button, false), 0, 0, 0);
         }
         else {
-            Bitmask eventMask = createPointerEventMask();
+            Bitmask eventMask = getPointerEventMask();
             Window grabWindow = xServer.grabManager.getWindow();
             Window window = grabWindow == null || xServer.grabManager.isOwnerEvents() ? pointWindow.getAncestorWithEventMask(eventMask) : null;
 
             if (grabWindow != null || window != null) {
                 Window eventWindow = window != null ? window : grabWindow;
-
-                short x = xServer.pointer.getX();
-                short y = xServer.pointer.getY();
-                short[] localPoint = eventWindow.rootPointToLocal(x, y);
-
                 Window child = eventWindow.isAncestorOf(pointWindow) ? pointWindow : null;
-                ButtonRelease buttonRelease = new ButtonRelease(button.code(), xServer.windowManager.rootWindow, eventWindow, child, x, y, localPoint[0], localPoint[1], eventMask);
-                sendEvent(window, eventMask, buttonRelease);
+                sendInputDeviceEvent(window, eventMask, ButtonRelease.CODE, button.code(), eventWindow, child, xServer.pointer.getX(), xServer.pointer.getY(), (short)eventMask.getBits());
             }
 
             if (xServer.pointer.getButtonMask().isEmpty() && xServer.grabManager.isReleaseWithButtons()) {
@@ -184,16 +207,14 @@ public class InputDeviceManager implements Pointer.OnPointerMotionListener, Keyb
     @Override
     public void onPointerMove(short x, short y) {
         updatePointWindow();
-        Bitmask eventMask = createPointerEventMask();
+        Bitmask eventMask = getPointerEventMask();
         Window grabWindow = xServer.grabManager.getWindow();
         Window window = grabWindow == null || xServer.grabManager.isOwnerEvents() ? pointWindow.getAncestorWithEventMask(eventMask) : null;
 
         if (grabWindow != null || window != null) {
             Window eventWindow = window != null ? window : grabWindow;
-            short[] localPoint = eventWindow.rootPointToLocal(x, y);
-
             Window child = eventWindow.isAncestorOf(pointWindow) ? pointWindow : null;
-            sendEvent(window, eventMask, new MotionNotify(false, xServer.windowManager.rootWindow, eventWindow, child, x, y, localPoint[0], localPoint[1], getKeyButMask()));
+            sendInputDeviceEvent(window, eventMask, MotionNotify.CODE, (byte)0, eventWindow, child, x, y, getKeyButState());
         }
     }
 
@@ -216,17 +237,16 @@ public class InputDeviceManager implements Pointer.OnPointerMotionListener, Keyb
 
         if (!eventWindow.attributes.isEnabled()) return;
 
-        Bitmask keyButMask = getKeyButMask();
+        short state = getKeyButState();
         short x = xServer.pointer.getX();
         short y = xServer.pointer.getY();
-        short[] localPoint = eventWindow.rootPointToLocal(x, y);
 
         if (keysym != 0 && !xServer.keyboard.hasKeysym(keycode, keysym)) {
             xServer.keyboard.setKeysyms(keycode, keysym, keysym);
             eventWindow.sendEvent(new MappingNotify(MappingNotify.Request.KEYBOARD, keycode, 1));
         }
 
-        eventWindow.sendEvent(Event.KEY_PRESS, new KeyPress(keycode, xServer.windowManager.rootWindow, eventWindow, child, x, y, localPoint[0], localPoint[1], keyButMask));
+        eventWindow.sendInputDeviceEvent(Event.KEY_PRESS, null, KeyPress.CODE, keycode, eventWindow, child, x, y, (short)(x - eventWindow.getRootX()), (short)(y - eventWindow.getRootY()), state);
     }
 
     @Override
@@ -248,16 +268,15 @@ public class InputDeviceManager implements Pointer.OnPointerMotionListener, Keyb
 
         if (!eventWindow.attributes.isEnabled()) return;
 
-        Bitmask keyButMask = getKeyButMask();
+        short state = getKeyButState();
         short x = xServer.pointer.getX();
         short y = xServer.pointer.getY();
-        short[] localPoint = eventWindow.rootPointToLocal(x, y);
-
-        eventWindow.sendEvent(Event.KEY_RELEASE, new KeyRelease(keycode, xServer.windowManager.rootWindow, eventWindow, child, x, y, localPoint[0], localPoint[1], keyButMask));
+        eventWindow.sendInputDeviceEvent(Event.KEY_RELEASE, null, KeyRelease.CODE, keycode, eventWindow, child, x, y, (short)(x - eventWindow.getRootX()), (short)(y - eventWindow.getRootY()), state);
     }
 
-    private Bitmask createPointerEventMask() {
-        Bitmask eventMask = new Bitmask();
+    private Bitmask getPointerEventMask() {
+        Bitmask eventMask = pointerEventMask;
+        eventMask.unset(eventMask.getBits());
         eventMask.set(Event.POINTER_MOTION);
 
         Bitmask buttonMask = xServer.pointer.getButtonMask();
@@ -284,9 +303,10 @@ public class InputDeviceManager implements Pointer.OnPointerMotionListener, Keyb
     }
 
     public Bitmask getKeyButMask() {
-        Bitmask keyButMask = new Bitmask();
-        keyButMask.join(xServer.pointer.getButtonMask());
-        keyButMask.join(xServer.keyboard.getModifiersMask());
-        return keyButMask;
+        return new Bitmask(getKeyButState());
+    }
+
+    public short getKeyButState() {
+        return (short)(xServer.pointer.getButtonMask().getBits() | xServer.keyboard.getModifiersMask().getBits());
     }
 }
@@ -0,0 +1,126 @@
+package com.winlator.xserver;
+
+import java.util.Arrays;
+
+public class IntObjectMap<E> {
+    private static final int MIN_CAPACITY = 16;
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    public IntObjectMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    public IntObjectMap(int initialCapacity) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < initialCapacity * 2) capacity <<= 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int hash = key * 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private int indexOf(int key) {
+        for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int key) {
+        int index = indexOf(key);
+        return index != -1 ? (E)values[index] : null;
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) != -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E put(int key, E value) {
+        if (value == null) return remove(key);
+
+        int index = hash(key) & mask;
+        for (; values[index] != null; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                E oldValue = (E)values[index];
+                values[index] = value;
+                return oldValue;
+            }
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size * 2 > values.length) resize(values.length * 2);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E remove(int key) {
+        int index = indexOf(key);
+        if (index == -1) return null;
+        E oldValue = (E)values[index];
+
+        for (int next = (index + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            boolean inPlace = index <= next ? (index < home && home <= next) : (index < home || home <= next);
+            if (inPlace) continue;
+            keys[index] = keys[next];
+            values[index] = values[next];
+            index = next;
+        }
+
+        values[index] = null;
+        size--;
+        return oldValue;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E valueAt(int index) {
+        return (E)values[index];
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int index = hash(oldKeys[i]) & mask;
+            while (values[index] != null) index = (index + 1) & mask;
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+}
@@ -2,8 +2,8 @@ package com.winlator.xserver;
 
 import androidx.annotation.NonNull;
 
-import com.winlator.core.ArrayUtils;
 import com.winlator.core.StringUtils;
+import com.winlator.xconnector.XOutputStream;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -32,6 +32,11 @@ public class Property {
     public final int type;
     public final Format format;
     public ByteBuffer data;
+    private static final byte[] EMPTY = new byte[0];
+    private static final int MIN_CAPACITY = 64;
+    private byte[] buffer = EMPTY;
+    private int offset;
+    private int size;
 
     public Property(int name, int type, Format format, byte[] data) {
         this.name = name;
@@ -41,15 +46,63 @@ public class Property {
     }
 
     public void replace(byte[] data) {
-        this.data = ByteBuffer.wrap(data != null ? data : new byte[0]).order(ByteOrder.LITTLE_ENDIAN);
+        buffer = data != null ? data : EMPTY;
+        offset = 0;
+        size = buffer.length;
+        updateData();
     }
 
     public void prepend(byte[] values) {
-        replace(ArrayUtils.concat(values, this.data.array()));
+        if (values == null || values.length == 0) return;
+        if (offset < values.length) {
+            byte[] newBuffer = new byte[getNewCapacity(size + values.length)];
+            int newOffset = newBuffer.length - size;
+            System.arraycopy(buffer, offset, newBuffer, newOffset, size);
+            buffer = newBuffer;
+            offset = newOffset;
+        }
+        offset -= values.length;
+        size += values.length;
+        System.arraycopy(values, 0, buffer, offset, values.length);
+        updateData();
     }
 
     public void append(byte[] values) {
-        replace(ArrayUtils.concat(this.data.array(), values));
+        if (values == null || values.length == 0) return;
+        if (offset + size + values.length > buffer.length) {
+            byte[] newBuffer = new byte[getNewCapacity(size + values.length)];
+            System.arraycopy(buffer, offset, newBuffer, 0, size);
+            buffer = newBuffer;
+            offset = 0;
+        }
+        System.arraycopy(values, 0, buffer, offset + size, values.length);
+        size += values.length;
+        updateData();
+    }
+
+    private int getNewCapacity(int minCapacity) {
+        int capacity = Math.max(buffer.length, MIN_CAPACITY);
+        while (capacity < minCapacity) {
+            capacity <<= 1;
+            if (capacity < 0) return minCapacity;
+        }
+        return capacity;
+    }
+
+    private void updateData() {
+        data = ByteBuffer.wrap(buffer, offset, size).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getBytesAllocated() {
+        return buffer.length;
+    }
+
+    public void write(XOutputStream outputStream, int offset, int length) {
+        outputStream.write(buffer, this.offset + offset, length);
     }
 
     @NonNull
@@ -57,13 +110,14 @@ public class Property {
     public String toString() {
         String type = Atom.getName(this.type);
         data.rewind();
-        switch (type) {
+        switch (type != null ? type : "") {
             case "UTF8_STRING":
-                return StringUtils.fromANSIString(data.array(), StandardCharsets.UTF_8);
+                return StringUtils.fromANSIString(buffer, offset, size, StandardCharsets.UTF_8);
             case "STRING":
-                return StringUtils.fromANSIString(data.array(), XServer.LATIN1_CHARSET);
+                return StringUtils.fromANSIString(buffer, offset, size, XServer.LATIN1_CHARSET);
             case "ATOM":
-                return Atom.getName(data.getInt(0));
+                String name = size >= 4 ? Atom.getName(data.getInt(0)) : null;
+                return name != null ? name : "";
             default:
                 StringBuilder sb = new StringBuilder();
                 for (int i = 0, size = data.capacity() / (format.value >> 3); i < size; i++) {
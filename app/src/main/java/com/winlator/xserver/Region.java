@@ -0,0 +1,392 @@
+package com.winlator.xserver;
+
+import java.util.Arrays;
+
+public class Region {
+    private static final byte OP_UNION = 0;
+    private static final byte OP_INTERSECT = 1;
+    private static final byte OP_SUBTRACT = 2;
+    private int[] rects;
+    private int[] spareRects;
+    private int count = 0;
+    private int extentX0;
+    private int extentY0;
+    private int extentX1;
+    private int extentY1;
+    private final int[] singleRect = new int[4];
+
+    public Region() {
+        rects = new int[16];
+        spareRects = new int[16];
+    }
+
+    public Region(int x, int y, int width, int height) {
+        this();
+        setRect(x, y, width, height);
+    }
+
+    public Region(Region region) {
+        this();
+        set(region);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int getRectCount() {
+        return count;
+    }
+
+    public int[] getRects() {
+        return rects;
+    }
+
+    public int getExtentX() {
+        return extentX0;
+    }
+
+    public int getExtentY() {
+        return extentY0;
+    }
+
+    public int getExtentWidth() {
+        return extentX1 - extentX0;
+    }
+
+    public int getExtentHeight() {
+        return extentY1 - extentY0;
+    }
+
+    public boolean extentsEqual(int x, int y, int width, int height) {
+        return extentX0 == x && extentY0 == y && extentX1 - extentX0 == width && extentY1 - extentY0 == height;
+    }
+
+    public void setEmpty() {
+        count = 0;
+        extentX0 = extentY0 = extentX1 = extentY1 = 0;
+    }
+
+    public void setRect(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            setEmpty();
+            return;
+        }
+
+        rects[0] = extentX0 = x;
+        rects[1] = extentY0 = y;
+        rects[2] = extentX1 = x + width;
+        rects[3] = extentY1 = y + height;
+        count = 1;
+    }
+
+    public void setRects(short[] xywh, int length) {
+        setEmpty();
+        for (int i = 0; i < length; i += 4) unionRect(xywh[i], xywh[i + 1], xywh[i + 2] & 0xffff, xywh[i + 3] & 0xffff);
+    }
+
+    public void set(Region region) {
+        if (region == this) return;
+        if (rects.length < region.count * 4) rects = new int[region.rects.length];
+        System.arraycopy(region.rects, 0, rects, 0, region.count * 4);
+        count = region.count;
+        extentX0 = region.extentX0;
+        extentY0 = region.extentY0;
+        extentX1 = region.extentX1;
+        extentY1 = region.extentY1;
+    }
+
+    public void translate(int dx, int dy) {
+        if (count == 0) return;
+        for (int i = 0, length = count * 4; i < length; i += 2) {
+            rects[i] += dx;
+            rects[i + 1] += dy;
+        }
+        extentX0 += dx;
+        extentY0 += dy;
+        extentX1 += dx;
+        extentY1 += dy;
+    }
+
+    public void unionRect(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        if (count == 0) {
+            setRect(x, y, width, height);
+            return;
+        }
+
+        if (x <= extentX0 && y <= extentY0 && x + width >= extentX1 && y + height >= extentY1) {
+            setRect(x, y, width, height);
+            return;
+        }
+
+        singleRect[0] = x;
+        singleRect[1] = y;
+        singleRect[2] = x + width;
+        singleRect[3] = y + height;
+        int x0 = Math.min(extentX0, x);
+        int y0 = Math.min(extentY0, y);
+        int x1 = Math.max(extentX1, x + width);
+        int y1 = Math.max(extentY1, y + height);
+        combine(rects, count, singleRect, 1, OP_UNION);
+        setExtents(x0, y0, x1, y1);
+    }
+
+    public void union(Region a, Region b) {
+        if (a.count == 0) {
+            set(b);
+        }
+        else if (b.count == 0) {
+            set(a);
+        }
+        else {
+            int x0 = Math.min(a.extentX0, b.extentX0);
+            int y0 = Math.min(a.extentY0, b.extentY0);
+            int x1 = Math.max(a.extentX1, b.extentX1);
+            int y1 = Math.max(a.extentY1, b.extentY1);
+            combine(a.rects, a.count, b.rects, b.count, OP_UNION);
+            setExtents(x0, y0, x1, y1);
+        }
+    }
+
+    public void intersect(Region a, Region b) {
+        if (a.count == 0 || b.count == 0 || !a.extentsOverlap(b)) {
+            setEmpty();
+        }
+        else combine(a.rects, a.count, b.rects, b.count, OP_INTERSECT);
+    }
+
+    public void subtract(Region a, Region b) {
+        if (a.count == 0 || b.count == 0 || !a.extentsOverlap(b)) {
+            set(a);
+        }
+        else combine(a.rects, a.count, b.rects, b.count, OP_SUBTRACT);
+    }
+
+    public void inverse(Region region, int x, int y, int width, int height) {
+        singleRect[0] = x;
+        singleRect[1] = y;
+        singleRect[2] = x + width;
+        singleRect[3] = y + height;
+        if (width <= 0 || height <= 0) {
+            setEmpty();
+        }
+        else if (region.count == 0) {
+            setRect(x, y, width, height);
+        }
+        else combine(singleRect, 1, region.rects, region.count, OP_SUBTRACT);
+    }
+
+    private boolean extentsOverlap(Region region) {
+        return extentX0 < region.extentX1 && region.extentX0 < extentX1 && extentY0 < region.extentY1 && region.extentY0 < extentY1;
+    }
+
+    private void combine(int[] a, int aCount, int[] b, int bCount, byte op) {
+        int dstCount = 0;
+        int prevBand = -1;
+        int aIndex = 0;
+        int bIndex = 0;
+        int aEnd = bandEnd(a, 0, aCount);
+        int bEnd = bandEnd(b, 0, bCount);
+        int y = Math.min(a[1], b[1]);
+
+        while (aIndex < aCount || bIndex < bCount) {
+            if (aIndex == aCount ? op != OP_UNION : bIndex == bCount && op == OP_INTERSECT) break;
+
+            if (op != OP_INTERSECT && aIndex < aCount && y <= a[aIndex * 4 + 1] && (bIndex == bCount || a[aIndex * 4 + 3] <= b[bIndex * 4 + 1])) {
+                int runEnd = bIndex == bCount ? aCount : bandRunEnd(a, aIndex, aCount, b[bIndex * 4 + 1]);
+                dstCount = copyBands(a, aIndex, aEnd, runEnd, dstCount, prevBand);
+                prevBand = lastBandStart(spareRects, dstCount);
+                y = a[runEnd * 4 - 1];
+                aIndex = runEnd;
+                aEnd = bandEnd(a, aIndex, aCount);
+                continue;
+            }
+            else if (op == OP_UNION && bIndex < bCount && y <= b[bIndex * 4 + 1] && (aIndex == aCount || b[bIndex * 4 + 3] <= a[aIndex * 4 + 1])) {
+                int runEnd = aIndex == aCount ? bCount : bandRunEnd(b, bIndex, bCount, a[aIndex * 4 + 1]);
+                dstCount = copyBands(b, bIndex, bEnd, runEnd, dstCount, prevBand);
+                prevBand = lastBandStart(spareRects, dstCount);
+                y = b[runEnd * 4 - 1];
+                bIndex = runEnd;
+                bEnd = bandEnd(b, bIndex, bCount);
+                continue;
+            }
+
+            boolean aActive = aIndex < aCount && a[aIndex * 4 + 1] <= y;
+            boolean bActive = bIndex < bCount && b[bIndex * 4 + 1] <= y;
+
+            int next = Integer.MAX_VALUE;
+            if (aIndex < aCount) next = aActive ? a[aIndex * 4 + 3] : a[aIndex * 4 + 1];
+            if (bIndex < bCount) next = Math.min(next, bActive ? b[bIndex * 4 + 3] : b[bIndex * 4 + 1]);
+
+            if (aActive || bActive) {
+                ensureSpareCapacity(dstCount + (aActive ? aEnd - aIndex : 0) + (bActive ? bEnd - bIndex : 0));
+                int bandStart = dstCount;
+                dstCount = combineBand(a, aActive ? aIndex : 0, aActive ? aEnd : 0, b, bActive ? bIndex : 0, bActive ? bEnd : 0, op, spareRects, dstCount, y, next);
+                if (dstCount > bandStart) {
+                    if (prevBand != -1 && canCoalesce(spareRects, prevBand, bandStart, dstCount, y)) {
+                        for (int i = prevBand; i < bandStart; i++) spareRects[i * 4 + 3] = next;
+                        dstCount = bandStart;
+                    }
+                    else prevBand = bandStart;
+                }
+            }
+
+            y = next;
+            if (aActive && a[aIndex * 4 + 3] == y) {
+                aIndex = aEnd;
+                aEnd = bandEnd(a, aIndex, aCount);
+            }
+            if (bActive && b[bIndex * 4 + 3] == y) {
+                bIndex = bEnd;
+                bEnd = bandEnd(b, bIndex, bCount);
+            }
+        }
+
+        int[] dst = spareRects;
+        spareRects = rects;
+        rects = dst;
+        count = dstCount;
+        if (op != OP_UNION) updateExtents();
+    }
+
+    private void ensureSpareCapacity(int rectCount) {
+        if (spareRects.length < rectCount * 4) spareRects = Arrays.copyOf(spareRects, Math.max(spareRects.length * 2, rectCount * 4));
+    }
+
+    private int copyBands(int[] src, int index, int firstBandEnd, int endIndex, int dstCount, int prevBand) {
+        ensureSpareCapacity(dstCount + endIndex - index);
+        int[] dst = spareRects;
+        System.arraycopy(src, index * 4, dst, dstCount * 4, (endIndex - index) * 4);
+
+        int bandStart = dstCount;
+        int bandEnd = bandStart + firstBandEnd - index;
+        dstCount += endIndex - index;
+        if (prevBand != -1 && canCoalesce(dst, prevBand, bandStart, bandEnd, dst[bandStart * 4 + 1])) {
+            for (int i = prevBand; i < bandStart; i++) dst[i * 4 + 3] = dst[bandStart * 4 + 3];
+            System.arraycopy(dst, bandEnd * 4, dst, bandStart * 4, (dstCount - bandEnd) * 4);
+            dstCount -= bandEnd - bandStart;
+        }
+        return dstCount;
+    }
+
+    private static int bandRunEnd(int[] rects, int index, int count, int y) {
+        int low = index;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rects[middle * 4 + 3] <= y) {
+                low = middle + 1;
+            }
+            else high = middle;
+        }
+        return low;
+    }
+
+    private static int lastBandStart(int[] rects, int count) {
+        int top = rects[count * 4 - 3];
+        int index = count - 1;
+        while (index > 0 && rects[index * 4 - 3] == top) index--;
+        return index;
+    }
+
+    private static int bandEnd(int[] rects, int index, int count) {
+        if (index >= count) return index;
+        int top = rects[index * 4 + 1];
+        int end = index + 1;
+        while (end < count && rects[end * 4 + 1] == top) end++;
+        return end;
+    }
+
+    private static boolean canCoalesce(int[] rects, int prevBand, int bandStart, int bandEnd, int y) {
+        if (bandStart - prevBand != bandEnd - bandStart || rects[prevBand * 4 + 3] != y) return false;
+        for (int i = prevBand, j = bandStart; i < bandStart; i++, j++) {
+            if (rects[i * 4] != rects[j * 4] || rects[i * 4 + 2] != rects[j * 4 + 2]) return false;
+        }
+        return true;
+    }
+
+    private static int combineBand(int[] a, int aIndex, int aEnd, int[] b, int bIndex, int bEnd, byte op, int[] dst, int dstCount, int y0, int y1) {
+        switch (op) {
+            case OP_UNION:
+                while (aIndex < aEnd || bIndex < bEnd) {
+                    int x0;
+                    int x1;
+                    if (bIndex >= bEnd || (aIndex < aEnd && a[aIndex * 4] <= b[bIndex * 4])) {
+                        x0 = a[aIndex * 4];
+                        x1 = a[aIndex * 4 + 2];
+                        aIndex++;
+                    }
+                    else {
+                        x0 = b[bIndex * 4];
+                        x1 = b[bIndex * 4 + 2];
+                        bIndex++;
+                    }
+
+                    int last = (dstCount - 1) * 4;
+                    if (dstCount > 0 && dst[last + 1] == y0 && dst[last + 2] >= x0) {
+                        dst[last + 2] = Math.max(dst[last + 2], x1);
+                    }
+                    else dstCount = appendRect(dst, dstCount, x0, y0, x1, y1);
+                }
+                break;
+            case OP_INTERSECT:
+                while (aIndex < aEnd && bIndex < bEnd) {
+                    int x0 = Math.max(a[aIndex * 4], b[bIndex * 4]);
+                    int x1 = Math.min(a[aIndex * 4 + 2], b[bIndex * 4 + 2]);
+                    if (x0 < x1) dstCount = appendRect(dst, dstCount, x0, y0, x1, y1);
+                    if (a[aIndex * 4 + 2] < b[bIndex * 4 + 2]) {
+                        aIndex++;
+                    }
+                    else bIndex++;
+                }
+                break;
+            case OP_SUBTRACT:
+                for (; aIndex < aEnd; aIndex++) {
+                    int x0 = a[aIndex * 4];
+                    int x1 = a[aIndex * 4 + 2];
+                    while (bIndex < bEnd && b[bIndex * 4 + 2] <= x0) bIndex++;
+                    for (int i = bIndex; i < bEnd && b[i * 4] < x1; i++) {
+                        if (b[i * 4] > x0) dstCount = appendRect(dst, dstCount, x0, y0, b[i * 4], y1);
+                        x0 = Math.max(x0, b[i * 4 + 2]);
+                        if (x0 >= x1) break;
+                    }
+                    if (x0 < x1) dstCount = appendRect(dst, dstCount, x0, y0, x1, y1);
+                }
+                break;
+        }
+        return dstCount;
+    }
+
+    private static int appendRect(int[] dst, int dstCount, int x0, int y0, int x1, int y1) {
+        int offset = dstCount * 4;
+        dst[offset] = x0;
+        dst[offset + 1] = y0;
+        dst[offset + 2] = x1;
+        dst[offset + 3] = y1;
+        return dstCount + 1;
+    }
+
+    private void setExtents(int x0, int y0, int x1, int y1) {
+        extentX0 = x0;
+        extentY0 = y0;
+        extentX1 = x1;
+        extentY1 = y1;
+    }
+
+    private void updateExtents() {
+        if (count == 0) {
+            setEmpty();
+            return;
+        }
+
+        extentX0 = Integer.MAX_VALUE;
+        extentX1 = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            extentX0 = Math.min(extentX0, rects[i * 4]);
+            extentX1 = Math.max(extentX1, rects[i * 4 + 2]);
+        }
+        extentY0 = rects[1];
+        extentY1 = rects[count * 4 - 1];
+    }
+}
@@ -0,0 +1,57 @@
+package com.winlator.xserver;
+
+import com.winlator.xconnector.XInputStream;
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xserver.errors.XRequestError;
+
+import java.io.IOException;
+
+public class RequestDispatchTable {
+    private final Handler[] handlers;
+    private final int[] readMasks;
+    private final int[] writeMasks;
+    private final int[] requestDataWriteMasks;
+
+    public interface Handler {
+        void handleRequest(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError;
+    }
+
+    public RequestDispatchTable(int size) {
+        handlers = new Handler[size];
+        readMasks = new int[size];
+        writeMasks = new int[size];
+        requestDataWriteMasks = new int[size];
+    }
+
+    public void put(int opcode, Handler handler) {
+        put(opcode, 0, 0, handler);
+    }
+
+    public void put(int opcode, int readMask, int writeMask, Handler handler) {
+        handlers[opcode] = handler;
+        readMasks[opcode] = readMask & ~writeMask;
+        writeMasks[opcode] = writeMask;
+    }
+
+    public void setRequestDataWriteMask(int opcode, int writeMask) {
+        requestDataWriteMasks[opcode] = writeMask;
+    }
+
+    public boolean dispatch(XClient client, int opcode, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        if (opcode < 0 || opcode >= handlers.length) return false;
+        Handler handler = handlers[opcode];
+        if (handler == null) return false;
+
+        int readMask = readMasks[opcode];
+        int writeMask = writeMasks[opcode];
+        if (client.getRequestData() != 0) writeMask |= requestDataWriteMasks[opcode];
+
+        if ((readMask | writeMask) != 0) {
+            try (XLock lock = client.xServer.lock(readMask, writeMask)) {
+                handler.handleRequest(client, inputStream, outputStream);
+            }
+        }
+        else handler.handleRequest(client, inputStream, outputStream);
+        return true;
+    }
+}
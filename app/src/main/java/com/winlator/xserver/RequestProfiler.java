@@ -0,0 +1,223 @@
+package com.winlator.xserver;
+
+import android.util.Log;
+
+import com.winlator.core.FileUtils;
+import com.winlator.xserver.extensions.Extension;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class RequestProfiler {
+    private static final String TAG = "XRequestProfiler";
+    public static final int NUM_CORE_OPCODES = 128;
+    public static final int NUM_EXTENSION_MINOR_OPCODES = 64;
+    public static final int NUM_HISTOGRAM_BUCKETS = 16;
+    private static final int COUNT = 0;
+    private static final int BYTES = 1;
+    private static final int TOTAL_NANOS = 2;
+    private static final int LOCK_WAIT_NANOS = 3;
+    private static final int MAX_NANOS = 4;
+    private static final int HISTOGRAM = 5;
+    private static final int SLOT_SIZE = HISTOGRAM + NUM_HISTOGRAM_BUCKETS;
+    private final XServer xServer;
+    private final int[] extensionSlotOffsets = new int[128];
+    private final byte[] extensionMajorOpcodes;
+    private final int numSlots;
+    private final CopyOnWriteArrayList<Counters> allCounters = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Counters> threadCounters = new ThreadLocal<Counters>() {
+        @Override
+        protected Counters initialValue() {
+            Counters counters = new Counters(numSlots);
+            allCounters.add(counters);
+            return counters;
+        }
+    };
+    private volatile boolean enabled = false;
+    private long startTime = System.nanoTime();
+
+    private static class Counters {
+        private final long[] values;
+        private final long[] lockWaits = new long[XServer.Lockable.values().length * 4];
+        private long lockWaitNanos;
+
+        private Counters(int numSlots) {
+            values = new long[numSlots * SLOT_SIZE];
+        }
+    }
+
+    public RequestProfiler(XServer xServer) {
+        this.xServer = xServer;
+        Arrays.fill(extensionSlotOffsets, -1);
+        extensionMajorOpcodes = new byte[xServer.extensions.size()];
+
+        int slot = NUM_CORE_OPCODES;
+        for (int i = 0; i < xServer.extensions.size(); i++) {
+            byte majorOpcode = xServer.extensions.valueAt(i).getMajorOpcode();
+            extensionMajorOpcodes[i] = majorOpcode;
+            extensionSlotOffsets[majorOpcode & 127] = slot;
+            slot += NUM_EXTENSION_MINOR_OPCODES;
+        }
+        numSlots = slot;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long beginRequest() {
+        threadCounters.get().lockWaitNanos = 0;
+        return System.nanoTime();
+    }
+
+    public void endRequest(byte opcode, byte minorOpcode, int length, long startTime) {
+        long elapsedNanos = System.nanoTime() - startTime;
+        Counters counters = threadCounters.get();
+        int slot = getSlot(opcode, minorOpcode);
+        if (slot == -1) return;
+
+        long[] values = counters.values;
+        int offset = slot * SLOT_SIZE;
+        values[offset + COUNT]++;
+        values[offset + BYTES] += length;
+        values[offset + TOTAL_NANOS] += elapsedNanos;
+        values[offset + LOCK_WAIT_NANOS] += counters.lockWaitNanos;
+        if (elapsedNanos > values[offset + MAX_NANOS]) values[offset + MAX_NANOS] = elapsedNanos;
+        values[offset + HISTOGRAM + getHistogramBucket(elapsedNanos)]++;
+        counters.lockWaitNanos = 0;
+    }
+
+    public void addLockWait(XServer.Lockable lockable, boolean write, long nanos) {
+        Counters counters = threadCounters.get();
+        int offset = lockable.ordinal() * 4 + (write ? 2 : 0);
+        counters.lockWaits[offset]++;
+        counters.lockWaits[offset + 1] += nanos;
+        counters.lockWaitNanos += nanos;
+    }
+
+    public static int getHistogramBucket(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, NUM_HISTOGRAM_BUCKETS - 1);
+    }
+
+    private int getSlot(byte opcode, byte minorOpcode) {
+        if (opcode >= 0) return opcode;
+        int offset = extensionSlotOffsets[opcode & 127];
+        if (offset == -1 || minorOpcode < 0 || minorOpcode >= NUM_EXTENSION_MINOR_OPCODES) return -1;
+        return offset + minorOpcode;
+    }
+
+    public synchronized void reset() {
+        for (Counters counters : allCounters) {
+            Arrays.fill(counters.values, 0);
+            Arrays.fill(counters.lockWaits, 0);
+        }
+        startTime = System.nanoTime();
+    }
+
+    private long[] aggregate() {
+        long[] result = new long[numSlots * SLOT_SIZE];
+        for (Counters counters : allCounters) {
+            long[] values = counters.values;
+            for (int i = 0; i < result.length; i++) {
+                if ((i % SLOT_SIZE) == MAX_NANOS) {
+                    result[i] = Math.max(result[i], values[i]);
+                }
+                else result[i] += values[i];
+            }
+        }
+        return result;
+    }
+
+    private long[] aggregateLockWaits() {
+        long[] result = new long[XServer.Lockable.values().length * 4];
+        for (Counters counters : allCounters) {
+            for (int i = 0; i < result.length; i++) result[i] += counters.lockWaits[i];
+        }
+        return result;
+    }
+
+    private String getSlotName(int slot) {
+        if (slot < NUM_CORE_OPCODES) return getCoreOpcodeName((byte)slot);
+        int index = (slot - NUM_CORE_OPCODES) / NUM_EXTENSION_MINOR_OPCODES;
+        Extension extension = xServer.getExtension(extensionMajorOpcodes[index]);
+        return extension.getName()+":"+((slot - NUM_CORE_OPCODES) % NUM_EXTENSION_MINOR_OPCODES);
+    }
+
+    private static String getCoreOpcodeName(byte opcode) {
+        for (Field field : ClientOpcodes.class.getFields()) {
+            try {
+                if (field.getType() == byte.class && field.getByte(null) == opcode) return field.getName();
+            }
+            catch (IllegalAccessException e) {}
+        }
+        return String.valueOf(opcode);
+    }
+
+    private static long getPercentile(long[] values, int offset, long count, double percentile) {
+        long target = (long)Math.ceil(count * percentile);
+        long sum = 0;
+        for (int i = 0; i < NUM_HISTOGRAM_BUCKETS; i++) {
+            sum += values[offset + HISTOGRAM + i];
+            if (sum >= target) return 1L << i;
+        }
+        return 1L << (NUM_HISTOGRAM_BUCKETS - 1);
+    }
+
+    public synchronized String dump() {
+        final long[] values = aggregate();
+        ArrayList<Integer> slots = new ArrayList<>();
+        for (int slot = 0; slot < numSlots; slot++) {
+            if (values[slot * SLOT_SIZE + COUNT] > 0) slots.add(slot);
+        }
+        slots.sort((a, b) -> Long.compare(values[b * SLOT_SIZE + TOTAL_NANOS], values[a * SLOT_SIZE + TOTAL_NANOS]));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ENGLISH, "X request profile over %.1fs\n", (System.nanoTime() - startTime) / 1e9));
+        sb.append(String.format(Locale.ENGLISH, "%-28s %10s %12s %10s %9s %9s %9s %10s %10s\n", "request", "count", "bytes", "total_ms", "avg_us", "p50_us", "p99_us", "max_us", "lock_ms"));
+        for (int slot : slots) {
+            int offset = slot * SLOT_SIZE;
+            long count = values[offset + COUNT];
+            sb.append(String.format(Locale.ENGLISH, "%-28s %10d %12d %10.2f %9.1f %9d %9d %10d %10.2f\n",
+                getSlotName(slot),
+                count,
+                values[offset + BYTES],
+                values[offset + TOTAL_NANOS] / 1e6,
+                values[offset + TOTAL_NANOS] / 1e3 / count,
+                getPercentile(values, offset, count, 0.5),
+                getPercentile(values, offset, count, 0.99),
+                values[offset + MAX_NANOS] / 1000,
+                values[offset + LOCK_WAIT_NANOS] / 1e6));
+        }
+
+        long[] lockWaits = aggregateLockWaits();
+        sb.append(String.format(Locale.ENGLISH, "\n%-28s %10s %10s %10s %10s\n", "lock", "read_waits", "read_ms", "write_waits", "write_ms"));
+        for (XServer.Lockable lockable : XServer.Lockable.values()) {
+            int offset = lockable.ordinal() * 4;
+            sb.append(String.format(Locale.ENGLISH, "%-28s %10d %10.2f %11d %10.2f\n",
+                lockable.name(),
+                lockWaits[offset],
+                lockWaits[offset + 1] / 1e6,
+                lockWaits[offset + 2],
+                lockWaits[offset + 3] / 1e6));
+        }
+        return sb.toString();
+    }
+
+    public File dump(File outputDir) {
+        String content = dump();
+        for (String line : content.split("\n")) Log.d(TAG, line);
+
+        File outputFile = new File(outputDir, "xserver-requests-"+System.currentTimeMillis()+".txt");
+        return FileUtils.writeString(outputFile, content) ? outputFile : null;
+    }
+}
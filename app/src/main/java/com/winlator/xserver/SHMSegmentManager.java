@@ -1,34 +1,69 @@
 package com.winlator.xserver;
 
-import android.util.SparseArray;
-
 import com.winlator.sysvshm.SysVSharedMemory;
 
 import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
 
 public class SHMSegmentManager {
     private final SysVSharedMemory sysVSharedMemory;
-    private final SparseArray<ByteBuffer> shmSegments = new SparseArray<>();
+    private final IntObjectMap<Segment> shmSegments = new IntObjectMap<>();
+    private final IdentityHashMap<ByteBuffer, Integer> references = new IdentityHashMap<>();
+
+    private static class Segment {
+        private final ByteBuffer data;
+        private final boolean readOnly;
+
+        private Segment(ByteBuffer data, boolean readOnly) {
+            this.data = data;
+            this.readOnly = readOnly;
+        }
+    }
 
     public SHMSegmentManager(SysVSharedMemory sysVSharedMemory) {
         this.sysVSharedMemory = sysVSharedMemory;
     }
 
-    public void attach(int xid, int shmid) {
-        if (shmSegments.indexOfKey(xid) >= 0) detach(xid);
+    public synchronized void attach(int xid, int shmid, boolean readOnly) {
+        if (shmSegments.containsKey(xid)) detach(xid);
         ByteBuffer data = sysVSharedMemory.attach(shmid);
-        if (data != null) shmSegments.put(xid, data);
+        if (data != null) {
+            shmSegments.put(xid, new Segment(data, readOnly));
+            acquire(data);
+        }
     }
 
-    public void detach(int xid) {
-        ByteBuffer data = shmSegments.get(xid);
-        if (data != null) {
-            sysVSharedMemory.detach(data);
+    public synchronized void detach(int xid) {
+        Segment segment = shmSegments.get(xid);
+        if (segment != null) {
             shmSegments.remove(xid);
+            release(segment.data);
         }
     }
 
-    public ByteBuffer getData(int xid) {
-        return shmSegments.get(xid);
+    public synchronized ByteBuffer getData(int xid) {
+        Segment segment = shmSegments.get(xid);
+        return segment != null ? segment.data : null;
+    }
+
+    public synchronized boolean isReadOnly(int xid) {
+        Segment segment = shmSegments.get(xid);
+        return segment != null && segment.readOnly;
+    }
+
+    public synchronized void acquire(ByteBuffer data) {
+        Integer count = references.get(data);
+        references.put(data, count != null ? count + 1 : 1);
+    }
+
+    public synchronized void release(ByteBuffer data) {
+        Integer count = references.get(data);
+        if (count == null) return;
+
+        if (count == 1) {
+            references.remove(data);
+            sysVSharedMemory.detach(data);
+        }
+        else references.put(data, count - 1);
     }
 }
@@ -4,8 +4,11 @@ import android.util.SparseArray;
 
 import com.winlator.xserver.events.SelectionClear;
 
+import java.util.ArrayList;
+
 public class SelectionManager implements XResourceManager.OnResourceLifecycleListener {
     private final SparseArray<Selection> selections = new SparseArray<>();
+    private final ArrayList<OnSelectionChangeListener> onSelectionChangeListeners = new ArrayList<>();
 
     public SelectionManager(WindowManager windowManager) {
         windowManager.addOnResourceLifecycleListener(this);
@@ -14,6 +17,17 @@ public class SelectionManager implements XResourceManager.OnResourceLifecycleLis
     public static class Selection {
         public Window owner;
         private XClient client;
+        private int timestamp;
+
+        public int getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    public interface OnSelectionChangeListener {
+        default void onSetSelectionOwner(int atom, Selection selection) {}
+
+        default void onDestroySelectionOwner(int atom, Selection selection) {}
     }
 
     public void setSelection(int atom, Window owner, XClient client, int timestamp) {
@@ -23,6 +37,11 @@ public class SelectionManager implements XResourceManager.OnResourceLifecycleLis
         }
         selection.owner = owner;
         selection.client = client;
+        selection.timestamp = timestamp != 0 ? timestamp : (int)System.currentTimeMillis();
+
+        for (int i = onSelectionChangeListeners.size()-1; i >= 0; i--) {
+            onSelectionChangeListeners.get(i).onSetSelectionOwner(atom, selection);
+        }
     }
 
     public Selection getSelection(int atom) {
@@ -33,11 +52,25 @@ public class SelectionManager implements XResourceManager.OnResourceLifecycleLis
         return selection;
     }
 
+    public void addOnSelectionChangeListener(OnSelectionChangeListener onSelectionChangeListener) {
+        onSelectionChangeListeners.add(onSelectionChangeListener);
+    }
+
+    public void removeOnSelectionChangeListener(OnSelectionChangeListener onSelectionChangeListener) {
+        onSelectionChangeListeners.remove(onSelectionChangeListener);
+    }
+
     @Override
     public void onFreeResource(XResource resource) {
         for (int i = 0; i < selections.size(); i++) {
             Selection selection = selections.valueAt(i);
-            if (selection.owner == resource) selection.owner = null;
+            if (selection.owner == resource) {
+                for (int j = onSelectionChangeListeners.size()-1; j >= 0; j--) {
+                    onSelectionChangeListeners.get(j).onDestroySelectionOwner(selections.keyAt(i), selection);
+                }
+                selection.owner = null;
+                selection.client = null;
+            }
         }
     }
 }
@@ -0,0 +1,18 @@
+package com.winlator.xserver;
+
+public class WMClassFilter {
+    private final String[] patterns;
+
+    public WMClassFilter(String... patterns) {
+        if (patterns.length > 32) throw new IllegalArgumentException("Too many WM_CLASS patterns.");
+        this.patterns = patterns;
+    }
+
+    public int match(String className) {
+        int result = 0;
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i] != null && className.contains(patterns[i])) result |= 1 << i;
+        }
+        return result;
+    }
+}
@@ -28,12 +28,22 @@ public class Window extends XResource {
     private short height;
     private short borderWidth;
     private Window parent;
+    private volatile long rootPosition;
     public final XClient originClient;
     public final WindowAttributes attributes = new WindowAttributes(this);
     private final SparseArray<Property> properties = new SparseArray<>();
+    private long propertyMemoryUsage;
     private final ArrayList<Window> children = new ArrayList<>();
     private final List<Window> immutableChildren = Collections.unmodifiableList(children);
     private final ArrayList<EventListener> eventListeners = new ArrayList<>();
+    private String name = "";
+    private String className = "";
+    private int processId = 0;
+    private boolean wow64 = false;
+    private long handle = 0;
+    private int windowGroup = 0;
+    private WMClassFilter classFilter;
+    private int classFilterResult;
 
     public Window(int id, Drawable content, int x, int y, int width, int height, XClient originClient) {
         super(id);
@@ -51,6 +61,7 @@ public class Window extends XResource {
 
     public void setX(short x) {
         this.x = x;
+        invalidateRootPosition();
     }
 
     public short getY() {
@@ -59,6 +70,7 @@ public class Window extends XResource {
 
     public void setY(short y) {
         this.y = y;
+        invalidateRootPosition();
     }
 
     public short getWidth() {
@@ -93,12 +105,18 @@ public class Window extends XResource {
         this.content = content;
     }
 
+    public Drawable getFlipContent() {
+        Drawable content = this.content;
+        return content != null ? content.getFlipContent() : null;
+    }
+
     public Window getParent() {
         return parent;
     }
 
     public void setParent(Window parent) {
         this.parent = parent;
+        invalidateRootPosition();
     }
 
     public Property getProperty(int id) {
@@ -106,14 +124,25 @@ public class Window extends XResource {
     }
 
     public void addProperty(Property property) {
+        Property oldProperty = properties.get(property.name);
+        if (oldProperty != null) propertyMemoryUsage -= oldProperty.getBytesAllocated();
         properties.put(property.name, property);
+        propertyMemoryUsage += property.getBytesAllocated();
+        updateMetadata(property.name);
     }
 
     public void removeProperty(int id) {
+        Property property = properties.get(id);
+        if (property != null) propertyMemoryUsage -= property.getBytesAllocated();
         properties.remove(id);
+        updateMetadata(id);
         sendEvent(Event.PROPERTY_CHANGE, new PropertyNotify(this, id, true));
     }
 
+    public long getPropertyMemoryUsage() {
+        return propertyMemoryUsage;
+    }
+
     public Property modifyProperty(int atom, int type, Property.Format format, Property.Mode mode, byte[] data) {
         Property property = getProperty(atom);
         boolean modified = false;
@@ -122,62 +151,96 @@ public class Window extends XResource {
             modified = true;
         }
         else if (mode == Property.Mode.REPLACE) {
+            propertyMemoryUsage -= property.getBytesAllocated();
             if (property.format == format) {
                 property.replace(data);
             }
-            else properties.put(atom, new Property(atom, type, format, data));
+            else properties.put(atom, (property = new Property(atom, type, format, data)));
+            propertyMemoryUsage += property.getBytesAllocated();
             modified = true;
         }
         else if (property.format == format && property.type == type) {
+            propertyMemoryUsage -= property.getBytesAllocated();
             if (mode == Property.Mode.PREPEND) {
                 property.prepend(data);
             }
             else if (mode == Property.Mode.APPEND) {
                 property.append(data);
             }
+            propertyMemoryUsage += property.getBytesAllocated();
             modified = true;
         }
 
         if (modified) {
+            updateMetadata(atom);
             sendEvent(Event.PROPERTY_CHANGE, new PropertyNotify(this, atom, false));
             return property;
         }
         else return null;
     }
 
+    private void updateMetadata(int atom) {
+        Property property = getProperty(atom);
+        if (atom == Atom.WM_NAME) {
+            name = property != null ? property.toString() : "";
+        }
+        else if (atom == Atom.WM_CLASS) {
+            className = property != null ? property.toString() : "";
+            classFilter = null;
+        }
+        else if (atom == Atom.WM_HINTS) {
+            windowGroup = property != null && property.size() >= (WMHints.WINDOW_GROUP.ordinal() + 1) * 4 ? property.getInt(WMHints.WINDOW_GROUP.ordinal()) : 0;
+        }
+        else if (atom == Atom.NET_WM_PID) {
+            processId = property != null && property.size() >= 4 ? property.getInt(0) : 0;
+        }
+        else if (atom == Atom.NET_WM_WOW64) {
+            wow64 = property != null && property.size() >= 1 && property.data.get(0) == 1;
+        }
+        else if (atom == Atom.NET_WM_HWND) {
+            handle = property != null && property.size() >= 8 ? property.getLong(0) : 0;
+        }
+    }
+
     public String getName() {
-        Property property = getProperty(Atom.getId("WM_NAME"));
-        return property != null ? property.toString() : "";
+        return name;
     }
 
     public String getClassName() {
-        Property property = getProperty(Atom.getId("WM_CLASS"));
-        return property != null ? property.toString() : "";
+        return className;
+    }
+
+    public int getClassFilterResult(WMClassFilter classFilter) {
+        if (this.classFilter != classFilter) {
+            classFilterResult = classFilter.match(className);
+            this.classFilter = classFilter;
+        }
+        return classFilterResult;
     }
 
     public int getWMHintsValue(WMHints wmHints) {
-        Property property = getProperty(Atom.getId("WM_HINTS"));
+        Property property = getProperty(Atom.WM_HINTS);
         return property != null ? property.getInt(wmHints.ordinal()) : 0;
     }
 
+    public int getWindowGroup() {
+        return windowGroup;
+    }
+
     public int getProcessId() {
-        Property property = getProperty(Atom.getId("_NET_WM_PID"));
-        return property != null ? property.getInt(0) : 0;
+        return processId;
     }
 
     public boolean isWoW64() {
-        Property property = getProperty(Atom.getId("_NET_WM_WOW64"));
-        return property != null && property.data.get(0) == 1;
+        return wow64;
     }
 
     public long getHandle() {
-        Property property = getProperty(Atom.getId("_NET_WM_HWND"));
-        return property != null ? property.getLong(0) : 0;
+        return handle;
     }
 
     public boolean isApplicationWindow() {
-        int windowGroup = getWMHintsValue(WMHints.WINDOW_GROUP);
-        return attributes.isMapped() && !getName().isEmpty() && windowGroup == id && width > 1 && height > 1;
+        return attributes.isMapped() && !name.isEmpty() && windowGroup == id && width > 1 && height > 1;
     }
 
     public boolean isInputOutput() {
@@ -187,12 +250,14 @@ public class Window extends XResource {
     public void addChild(Window child) {
         if (child == null || child.parent == this) return;
         child.parent = this;
+        child.invalidateRootPosition();
         children.add(child);
     }
 
     public void removeChild(Window child) {
         if (child == null || child.parent != this) return;
         child.parent = null;
+        child.invalidateRootPosition();
         children.remove(child);
     }
 
@@ -286,49 +351,66 @@ public class Window extends XResource {
         for (EventListener eventListener : eventListeners) eventListener.sendEvent(event);
     }
 
+    public void sendInputDeviceEvent(int eventId, XClient client, byte code, byte detail, Window event, Window child, short rootX, short rootY, short eventX, short eventY, short state) {
+        for (EventListener eventListener : eventListeners) {
+            if (eventListener.isInterestedIn(eventId) && (client == null || eventListener.client == client)) {
+                eventListener.sendInputDeviceEvent(code, detail, event, child, rootX, rootY, eventX, eventY, state);
+            }
+        }
+    }
+
+    public void sendInputDeviceEvent(Bitmask eventMask, XClient client, byte code, byte detail, Window event, Window child, short rootX, short rootY, short eventX, short eventY, short state) {
+        for (EventListener eventListener : eventListeners) {
+            if (eventListener.isInterestedIn(eventMask) && (client == null || eventListener.client == client)) {
+                eventListener.sendInputDeviceEvent(code, detail, event, child, rootX, rootY, eventX, eventY, state);
+            }
+        }
+    }
+
     public boolean containsPoint(short rootX, short rootY) {
-        short[] localPoint = rootPointToLocal(rootX, rootY);
-        return localPoint[0] >= 0 && localPoint[1] >= 0 && localPoint[0] < width && localPoint[1] < height;
+        long rootPosition = getRootPosition();
+        short localX = (short)(rootX - (short)(rootPosition >> 16));
+        short localY = (short)(rootY - (short)rootPosition);
+        return localX >= 0 && localY >= 0 && localX < width && localY < height;
     }
 
     public short[] rootPointToLocal(short x, short y) {
-        Window window = this;
-        while (window != null) {
-            x -= window.x;
-            y -= window.y;
-            window = window.parent;
-        }
-        return new short[]{x, y};
+        long rootPosition = getRootPosition();
+        return new short[]{(short)(x - (short)(rootPosition >> 16)), (short)(y - (short)rootPosition)};
     }
 
     public short[] localPointToRoot(short x, short y) {
-        Window window = this;
-        while (window != null) {
-            x += window.x;
-            y += window.y;
-            window = window.parent;
-        }
-        return new short[]{x, y};
+        long rootPosition = getRootPosition();
+        return new short[]{(short)(x + (short)(rootPosition >> 16)), (short)(y + (short)rootPosition)};
     }
 
     public short getRootX() {
-        short rootX = x;
-        Window window = parent;
-        while (window != null) {
-            rootX += window.x;
-            window = window.parent;
-        }
-        return rootX;
+        return (short)(getRootPosition() >> 16);
     }
 
     public short getRootY() {
-        short rootY = y;
-        Window window = parent;
-        while (window != null) {
-            rootY += window.y;
-            window = window.parent;
+        return (short)getRootPosition();
+    }
+
+    private long getRootPosition() {
+        long rootPosition = this.rootPosition;
+        if (rootPosition == 0) {
+            short rootX = x;
+            short rootY = y;
+            if (parent != null) {
+                long parentPosition = parent.getRootPosition();
+                rootX += (short)(parentPosition >> 16);
+                rootY += (short)parentPosition;
+            }
+            this.rootPosition = rootPosition = (1L << 32) | ((rootX & 0xffffL) << 16) | (rootY & 0xffffL);
         }
-        return rootY;
+        return rootPosition;
+    }
+
+    private void invalidateRootPosition() {
+        if (rootPosition == 0) return;
+        rootPosition = 0;
+        for (Window child : children) child.invalidateRootPosition();
     }
 
     public Window getAncestorWithEventMask(Bitmask eventMask) {
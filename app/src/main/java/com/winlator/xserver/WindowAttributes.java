@@ -32,7 +32,7 @@ public class WindowAttributes {
     private boolean mapped = false;
     private boolean overrideRedirect = false;
     private boolean saveUnder = false;
-    private boolean enabled = true;
+    private volatile boolean enabled = true;
     private WinGravity winGravity = WinGravity.CENTER;
     private WindowClass windowClass = WindowClass.INPUT_OUTPUT;
     public final Window window;
@@ -1,7 +1,5 @@
 package com.winlator.xserver;
 
-import android.util.SparseArray;
-
 import com.winlator.xconnector.XInputStream;
 import com.winlator.xserver.errors.BadIdChoice;
 import com.winlator.xserver.errors.BadMatch;
@@ -22,8 +20,9 @@ import java.util.List;
 public class WindowManager extends XResourceManager {
     public enum FocusRevertTo {NONE, POINTER_ROOT, PARENT}
     public final Window rootWindow;
-    private final SparseArray<Window> windows = new SparseArray<>();
+    private final IntObjectMap<Window> windows = new IntObjectMap<>();
     public final DrawableManager drawableManager;
+    private final WindowSpatialIndex spatialIndex;
     private Window focusedWindow;
     private FocusRevertTo focusRevertTo = FocusRevertTo.NONE;
     private final ArrayList<OnWindowModificationListener> onWindowModificationListeners = new ArrayList<>();
@@ -51,6 +50,7 @@ public class WindowManager extends XResourceManager {
         rootWindow = new Window(id, drawable, 0, 0, screenInfo.width, screenInfo.height, null);
         rootWindow.attributes.setMapped(true);
         windows.put(id, rootWindow);
+        spatialIndex = new WindowSpatialIndex(rootWindow);
     }
 
     public Window getWindow(int id) {
@@ -58,7 +58,7 @@ public class WindowManager extends XResourceManager {
     }
 
     public Window findWindowWithProcessId(int processId) {
-        for (int i = 0; i < windows.size(); i++) {
+        for (int i = 0; i < windows.capacity(); i++) {
             Window window = windows.valueAt(i);
             if (window != null && window.getProcessId() == processId) return window;
         }
@@ -85,6 +85,7 @@ public class WindowManager extends XResourceManager {
         triggerOnFreeResourceListener(window);
         if (window == focusedWindow) revertFocus();
         parent.removeChild(window);
+        spatialIndex.invalidate();
     }
 
     public void mapWindow(Window window) {
@@ -92,6 +93,7 @@ public class WindowManager extends XResourceManager {
             Window parent = window.getParent();
             if (!parent.hasEventListenerFor(Event.SUBSTRUCTURE_REDIRECT) || window.attributes.isOverrideRedirect()) {
                 window.attributes.setMapped(true);
+                spatialIndex.invalidate();
                 window.sendEvent(Event.STRUCTURE_NOTIFY, new MapNotify(window, window));
                 parent.sendEvent(Event.SUBSTRUCTURE_NOTIFY, new MapNotify(parent, window));
                 window.sendEvent(Event.EXPOSURE, new Expose(window));
@@ -104,6 +106,7 @@ public class WindowManager extends XResourceManager {
     public void unmapWindow(Window window) {
         if (rootWindow.id != window.id && window.attributes.isMapped()) {
             window.attributes.setMapped(false);
+            spatialIndex.invalidate();
             Window parent = window.getParent();
             window.sendEvent(Event.STRUCTURE_NOTIFY, new UnmapNotify(window, window));
             parent.sendEvent(Event.SUBSTRUCTURE_NOTIFY, new UnmapNotify(parent, window));
@@ -140,7 +143,7 @@ public class WindowManager extends XResourceManager {
     }
 
     public Window createWindow(int id, Window parent, short x, short y, short width, short height, WindowAttributes.WindowClass windowClass, Visual visual, byte depth, XClient client) throws XRequestError {
-        if (windows.indexOfKey(id) >= 0) throw new BadIdChoice(id);
+        if (windows.containsKey(id)) throw new BadIdChoice(id);
 
         boolean isInputOutput = false;
         switch (windowClass) {
@@ -193,6 +196,7 @@ public class WindowManager extends XResourceManager {
             drawableManager.removeDrawable(oldContent.id);
             Drawable newContent = drawableManager.createDrawable(oldContent.id, width, height, oldContent.visual);
             newContent.setOnDrawListener(() -> triggerOnUpdateWindowContent(window));
+            newContent.setOnDamageListener(oldContent.getOnDamageListener());
             window.setContent(newContent);
         }
 
@@ -201,6 +205,7 @@ public class WindowManager extends XResourceManager {
             window.setY(y);
             window.setWidth(width);
             window.setHeight(height);
+            spatialIndex.updateGeometry(window);
             triggerOnUpdateWindowGeometry(window, resized);
         }
 
@@ -211,6 +216,7 @@ public class WindowManager extends XResourceManager {
 
     private void changeWindowZOrder(Window.StackMode stackMode, Window window, Window sibling) {
         Window parent = window.getParent();
+        Window previousSibling = window.previousSibling();
         switch (stackMode) {
             case ABOVE:
                 parent.moveChildAbove(window, sibling);
@@ -219,6 +225,7 @@ public class WindowManager extends XResourceManager {
                 parent.moveChildBelow(window, sibling);
                 break;
         }
+        if (window.previousSibling() != previousSibling) spatialIndex.invalidate();
         triggerOnChangeWindowZOrder(window);
     }
 
@@ -276,16 +283,11 @@ public class WindowManager extends XResourceManager {
         Window oldParent = window.getParent();
         if (oldParent != null) oldParent.removeChild(window);
         newParent.addChild(window);
+        spatialIndex.invalidate();
     }
 
     public Window findPointWindow(short rootX, short rootY) {
-        return findPointWindow(rootWindow, rootX, rootY);
-    }
-
-    private Window findPointWindow(Window window, short rootX, short rootY) {
-        if (!(window.attributes.isMapped() && window.containsPoint(rootX, rootY))) return null;
-        Window child = window.getChildByCoords(rootX, rootY);
-        return child != null ? findPointWindow(child, rootX, rootY) : window;
+        return spatialIndex.findPointWindow(rootX, rootY);
     }
 
     public void addOnWindowModificationListener(OnWindowModificationListener onWindowModificationListener) {
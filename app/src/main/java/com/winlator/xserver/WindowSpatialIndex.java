@@ -0,0 +1,181 @@
+package com.winlator.xserver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class WindowSpatialIndex {
+    private static final int CELL_SHIFT = 7;
+    private final Window rootWindow;
+    private volatile Grid grid;
+
+    private static class Grid {
+        private final Window[] windows;
+        private final int[] parents;
+        private final int[] subtreeEnds;
+        private final int[] origins;
+        private final int[] rects;
+        private final int columns;
+        private final int rows;
+        private final int[][] cells;
+        private final int[] cellSizes;
+
+        private Grid(ArrayList<Window> windows, int[] parents, int[] subtreeEnds, int width, int height) {
+            this.windows = windows.toArray(new Window[0]);
+            this.parents = parents;
+            this.subtreeEnds = subtreeEnds;
+            origins = new int[this.windows.length * 2];
+            rects = new int[this.windows.length * 4];
+
+            columns = (Math.max(width, 1) + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT;
+            rows = (Math.max(height, 1) + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT;
+            cells = new int[columns * rows][];
+            cellSizes = new int[cells.length];
+            for (int i = 0; i < this.windows.length; i++) {
+                updateRect(i);
+                addToCells(i);
+            }
+        }
+
+        private Window findPointWindow(int x, int y) {
+            if (x < 0 || y < 0) return null;
+            int column = x >> CELL_SHIFT;
+            int row = y >> CELL_SHIFT;
+            if (column >= columns || row >= rows) return null;
+
+            int cell = row * columns + column;
+            int[] entries = cells[cell];
+            for (int i = cellSizes[cell] - 1; i >= 0; i--) {
+                int offset = entries[i] * 4;
+                if (x >= rects[offset] && y >= rects[offset + 1] && x < rects[offset + 2] && y < rects[offset + 3]) {
+                    return windows[entries[i]];
+                }
+            }
+            return null;
+        }
+
+        private boolean updateGeometry(Window window) {
+            int index = indexOf(window);
+            if (index == -1) return false;
+
+            for (int i = index, end = subtreeEnds[index]; i < end; i++) {
+                removeFromCells(i);
+                updateRect(i);
+                addToCells(i);
+            }
+            return true;
+        }
+
+        private int indexOf(Window window) {
+            for (int i = 0; i < windows.length; i++) {
+                if (windows[i] == window) return i;
+            }
+            return -1;
+        }
+
+        private void updateRect(int index) {
+            Window window = windows[index];
+            int parent = parents[index];
+            int originX = origins[index * 2] = (parent != -1 ? origins[parent * 2] : 0) + window.getX();
+            int originY = origins[index * 2 + 1] = (parent != -1 ? origins[parent * 2 + 1] : 0) + window.getY();
+            int offset = index * 4;
+            rects[offset] = originX;
+            rects[offset + 1] = originY;
+            rects[offset + 2] = originX + window.getWidth();
+            rects[offset + 3] = originY + window.getHeight();
+
+            if (parent != -1) {
+                int clipOffset = parent * 4;
+                rects[offset] = Math.max(rects[offset], rects[clipOffset]);
+                rects[offset + 1] = Math.max(rects[offset + 1], rects[clipOffset + 1]);
+                rects[offset + 2] = Math.min(rects[offset + 2], rects[clipOffset + 2]);
+                rects[offset + 3] = Math.min(rects[offset + 3], rects[clipOffset + 3]);
+            }
+        }
+
+        private void addToCells(int index) {
+            int offset = index * 4;
+            if (rects[offset] >= rects[offset + 2] || rects[offset + 1] >= rects[offset + 3]) return;
+            int startColumn = Math.max(rects[offset] >> CELL_SHIFT, 0);
+            int startRow = Math.max(rects[offset + 1] >> CELL_SHIFT, 0);
+            int endColumn = Math.min((rects[offset + 2] - 1) >> CELL_SHIFT, columns - 1);
+            int endRow = Math.min((rects[offset + 3] - 1) >> CELL_SHIFT, rows - 1);
+
+            for (int row = startRow; row <= endRow; row++) {
+                for (int column = startColumn, cell = row * columns + startColumn; column <= endColumn; column++, cell++) {
+                    int[] entries = cells[cell];
+                    int size = cellSizes[cell];
+                    if (entries == null) {
+                        cells[cell] = entries = new int[8];
+                    }
+                    else if (size == entries.length) cells[cell] = entries = Arrays.copyOf(entries, size * 2);
+
+                    int position = size > 0 && entries[size - 1] > index ? -Arrays.binarySearch(entries, 0, size, index) - 1 : size;
+                    System.arraycopy(entries, position, entries, position + 1, size - position);
+                    entries[position] = index;
+                    cellSizes[cell]++;
+                }
+            }
+        }
+
+        private void removeFromCells(int index) {
+            int offset = index * 4;
+            if (rects[offset] >= rects[offset + 2] || rects[offset + 1] >= rects[offset + 3]) return;
+            int startColumn = Math.max(rects[offset] >> CELL_SHIFT, 0);
+            int startRow = Math.max(rects[offset + 1] >> CELL_SHIFT, 0);
+            int endColumn = Math.min((rects[offset + 2] - 1) >> CELL_SHIFT, columns - 1);
+            int endRow = Math.min((rects[offset + 3] - 1) >> CELL_SHIFT, rows - 1);
+
+            for (int row = startRow; row <= endRow; row++) {
+                for (int column = startColumn, cell = row * columns + startColumn; column <= endColumn; column++, cell++) {
+                    int[] entries = cells[cell];
+                    int size = cellSizes[cell];
+                    int position = Arrays.binarySearch(entries, 0, size, index);
+                    if (position < 0) continue;
+                    System.arraycopy(entries, position + 1, entries, position, size - position - 1);
+                    cellSizes[cell]--;
+                }
+            }
+        }
+    }
+
+    public WindowSpatialIndex(Window rootWindow) {
+        this.rootWindow = rootWindow;
+    }
+
+    public void invalidate() {
+        grid = null;
+    }
+
+    public void updateGeometry(Window window) {
+        Grid grid = this.grid;
+        if (grid != null && !grid.updateGeometry(window) && window.getMapState() == Window.MapState.VIEWABLE) invalidate();
+    }
+
+    public Window findPointWindow(int rootX, int rootY) {
+        Grid grid = this.grid;
+        if (grid == null) this.grid = grid = build();
+        return grid.findPointWindow(rootX, rootY);
+    }
+
+    private Grid build() {
+        ArrayList<Window> windows = new ArrayList<>();
+        int[][] arrays = {new int[16], new int[16]};
+        if (rootWindow.attributes.isMapped()) collectWindows(rootWindow, -1, windows, arrays);
+        return new Grid(windows, arrays[0], arrays[1], rootWindow.getWidth(), rootWindow.getHeight());
+    }
+
+    private static void collectWindows(Window window, int parent, ArrayList<Window> windows, int[][] arrays) {
+        int index = windows.size();
+        if (index >= arrays[0].length) {
+            arrays[0] = Arrays.copyOf(arrays[0], index * 2);
+            arrays[1] = Arrays.copyOf(arrays[1], index * 2);
+        }
+
+        arrays[0][index] = parent;
+        windows.add(window);
+        for (Window child : window.getChildren()) {
+            if (child.attributes.isMapped()) collectWindows(child, index, windows, arrays);
+        }
+        arrays[1][index] = windows.size();
+    }
+}
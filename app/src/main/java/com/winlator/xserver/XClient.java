@@ -4,9 +4,16 @@ import androidx.collection.ArrayMap;
 
 import com.winlator.xconnector.XInputStream;
 import com.winlator.xconnector.XOutputStream;
+import com.winlator.xconnector.XStreamLock;
+import com.winlator.xserver.events.EnterNotify;
 import com.winlator.xserver.events.Event;
+import com.winlator.xserver.events.EventEncoder;
+import com.winlator.xserver.events.InputDeviceEvent;
+import com.winlator.xserver.events.LeaveNotify;
+import com.winlator.xserver.events.MotionNotify;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 public class XClient implements XResourceManager.OnResourceLifecycleListener {
@@ -21,11 +28,22 @@ public class XClient implements XResourceManager.OnResourceLifecycleListener {
     private final XOutputStream outputStream;
     private final ArrayMap<Window, EventListener> eventListeners = new ArrayMap<>();
     private final ArrayList<XResource> resources = new ArrayList<>();
+    private final ByteBuffer pendingMotionEvent = ByteBuffer.allocate(EventEncoder.EVENT_SIZE);
+    private boolean hasPendingMotionEvent = false;
+    private boolean hasMotionHint = false;
+    private int motionHintEventId;
+    private int motionHintChildId;
+    private short motionHintState;
+    private volatile long sentEventCount;
+    private volatile long coalescedEventCount;
 
     public XClient(XServer xServer, XInputStream inputStream, XOutputStream outputStream) {
         this.xServer = xServer;
         this.inputStream = inputStream;
         this.outputStream = outputStream;
+        outputStream.setOnFlushListener((stream) -> {
+            if (stream.getPendingBytes() == 0) writePendingMotionEvent();
+        });
 
         try (XLock lock = xServer.lockAll()) {
             resourceIDBase = xServer.resourceIDs.get();
@@ -50,14 +68,96 @@ public class XClient implements XResourceManager.OnResourceLifecycleListener {
     }
 
     public void sendEvent(Event event) {
-        try {
+        sendEvent(event, false);
+    }
+
+    public void sendEvent(Event event, boolean motionHint) {
+        if (event instanceof MotionNotify) {
+            MotionNotify motionEvent = (MotionNotify)event;
+            sendInputDeviceEvent(MotionNotify.CODE, motionEvent.getDetail(), motionEvent.getEventWindow(), motionEvent.getChild(), motionEvent.getRootX(), motionEvent.getRootY(), motionEvent.getEventX(), motionEvent.getEventY(), (short)motionEvent.getStateBits(), motionHint);
+            return;
+        }
+
+        try (XStreamLock lock = outputStream.lock()) {
+            if (event instanceof InputDeviceEvent || event instanceof EnterNotify || event instanceof LeaveNotify) hasMotionHint = false;
+            writePendingMotionEvent();
             event.send(sequenceNumber, outputStream);
+            sentEventCount++;
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void sendInputDeviceEvent(byte code, byte detail, Window event, Window child, short rootX, short rootY, short eventX, short eventY, short state, boolean motionHint) {
+        int timestamp = (int)System.currentTimeMillis();
+        int rootId = xServer.windowManager.rootWindow.id;
+        int eventId = event.id;
+        int childId = child != null ? child.id : 0;
+
+        try (XStreamLock lock = outputStream.lock()) {
+            if (code != MotionNotify.CODE) {
+                hasMotionHint = false;
+                writePendingMotionEvent();
+                EventEncoder.putInputDeviceEvent(outputStream.reserve(EventEncoder.EVENT_SIZE), code, detail, sequenceNumber, timestamp, rootId, eventId, childId, rootX, rootY, eventX, eventY, state);
+                sentEventCount++;
+                return;
+            }
+
+            if (motionHint) {
+                if (hasMotionHint && motionHintEventId == eventId && motionHintChildId == childId && motionHintState == state) {
+                    coalescedEventCount++;
+                    return;
+                }
+                hasMotionHint = true;
+                motionHintEventId = eventId;
+                motionHintChildId = childId;
+                motionHintState = state;
+                detail = 1;
+            }
+
+            if (hasPendingMotionEvent) {
+                if (pendingMotionEvent.getInt(12) == eventId && pendingMotionEvent.getInt(16) == childId && pendingMotionEvent.getShort(28) == state) {
+                    coalescedEventCount++;
+                }
+                else writePendingMotionEvent();
+            }
+
+            pendingMotionEvent.clear();
+            pendingMotionEvent.order(outputStream.getByteOrder());
+            EventEncoder.putInputDeviceEvent(pendingMotionEvent, code, detail, (short)0, timestamp, rootId, eventId, childId, rootX, rootY, eventX, eventY, state);
+            hasPendingMotionEvent = true;
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writePendingMotionEvent() {
+        if (!hasPendingMotionEvent) return;
+        hasPendingMotionEvent = false;
+        pendingMotionEvent.putShort(2, sequenceNumber);
+        outputStream.write(pendingMotionEvent.array(), 0, EventEncoder.EVENT_SIZE);
+        sentEventCount++;
+    }
+
+    public void resetMotionHint() {
+        try (XStreamLock lock = outputStream.lock()) {
+            hasMotionHint = false;
         }
         catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    public long getSentEventCount() {
+        return sentEventCount;
+    }
+
+    public long getCoalescedEventCount() {
+        return coalescedEventCount;
+    }
+
     public boolean isInterestedIn(int eventId, Window window) {
         EventListener eventListener = eventListeners.get(window);
         return eventListener != null && eventListener.isInterestedIn(eventId);
@@ -73,6 +173,8 @@ public class XClient implements XResourceManager.OnResourceLifecycleListener {
 
     public void freeResources() {
         try (XLock lock = xServer.lockAll()) {
+            for (int i = 0; i < xServer.extensions.size(); i++) xServer.extensions.valueAt(i).freeResources(this);
+
             while (!resources.isEmpty()) {
                 XResource resource = resources.remove(resources.size()-1);
                 if (resource instanceof Window) {
@@ -152,7 +254,8 @@ public class XClient implements XResourceManager.OnResourceLifecycleListener {
     @Override
     public void onFreeResource(XResource resource) {
         if (resource instanceof Window) eventListeners.remove(resource);
-        resources.remove(resource);
+        int index = resources.lastIndexOf(resource);
+        if (index != -1) resources.remove(index);
     }
 
     public boolean isValidResourceId(int id) {
@@ -26,6 +26,70 @@ public class XClientRequestHandler implements RequestHandler {
     public static final byte RESPONSE_CODE_ERROR = 0;
     public static final byte RESPONSE_CODE_SUCCESS = 1;
     public static final int MAX_REQUEST_LENGTH = 65535;
+    private static final int WINDOW_MANAGER = XServer.Lockable.WINDOW_MANAGER.flag();
+    private static final int PIXMAP_MANAGER = XServer.Lockable.PIXMAP_MANAGER.flag();
+    private static final int DRAWABLE_MANAGER = XServer.Lockable.DRAWABLE_MANAGER.flag();
+    private static final int GRAPHIC_CONTEXT_MANAGER = XServer.Lockable.GRAPHIC_CONTEXT_MANAGER.flag();
+    private static final int INPUT_DEVICE = XServer.Lockable.INPUT_DEVICE.flag();
+    private static final int CURSOR_MANAGER = XServer.Lockable.CURSOR_MANAGER.flag();
+    private static final RequestDispatchTable.Handler SKIP_REQUEST = (client, inputStream, outputStream) -> client.skipRequest();
+    private static final RequestDispatchTable REQUESTS = new RequestDispatchTable(128);
+
+    static {
+        REQUESTS.put(ClientOpcodes.CREATE_WINDOW, 0, WINDOW_MANAGER | DRAWABLE_MANAGER | INPUT_DEVICE | CURSOR_MANAGER, WindowRequests::createWindow);
+        REQUESTS.put(ClientOpcodes.CHANGE_WINDOW_ATTRIBUTES, CURSOR_MANAGER, WINDOW_MANAGER, WindowRequests::changeWindowAttributes);
+        REQUESTS.put(ClientOpcodes.GET_WINDOW_ATTRIBUTES, WINDOW_MANAGER, 0, WindowRequests::getWindowAttributes);
+        REQUESTS.put(ClientOpcodes.DESTROY_WINDOW, 0, WINDOW_MANAGER | DRAWABLE_MANAGER | INPUT_DEVICE, WindowRequests::destroyWindow);
+        REQUESTS.put(ClientOpcodes.REPARENT_WINDOW, 0, WINDOW_MANAGER, WindowRequests::reparentWindow);
+        REQUESTS.put(ClientOpcodes.MAP_WINDOW, 0, WINDOW_MANAGER | INPUT_DEVICE, WindowRequests::mapWindow);
+        REQUESTS.put(ClientOpcodes.UNMAP_WINDOW, 0, WINDOW_MANAGER | INPUT_DEVICE, WindowRequests::unmapWindow);
+        REQUESTS.put(ClientOpcodes.CONFIGURE_WINDOW, 0, WINDOW_MANAGER | INPUT_DEVICE, WindowRequests::configureWindow);
+        REQUESTS.put(ClientOpcodes.GET_GEOMETRY, WINDOW_MANAGER | DRAWABLE_MANAGER, 0, WindowRequests::getGeometry);
+        REQUESTS.put(ClientOpcodes.QUERY_TREE, WINDOW_MANAGER, 0, WindowRequests::queryTree);
+        REQUESTS.put(ClientOpcodes.INTERN_ATOM, AtomRequests::internAtom);
+        REQUESTS.put(ClientOpcodes.CHANGE_PROPERTY, 0, WINDOW_MANAGER, WindowRequests::changeProperty);
+        REQUESTS.put(ClientOpcodes.DELETE_PROPERTY, 0, WINDOW_MANAGER, WindowRequests::deleteProperty);
+        REQUESTS.put(ClientOpcodes.GET_PROPERTY, WINDOW_MANAGER, 0, WindowRequests::getProperty);
+        REQUESTS.setRequestDataWriteMask(ClientOpcodes.GET_PROPERTY, WINDOW_MANAGER);
+        REQUESTS.put(ClientOpcodes.SET_SELECTION_OWNER, 0, WINDOW_MANAGER, SelectionRequests::setSelectionOwner);
+        REQUESTS.put(ClientOpcodes.GET_SELECTION_OWNER, WINDOW_MANAGER, 0, SelectionRequests::getSelectionOwner);
+        REQUESTS.put(ClientOpcodes.SEND_EVENT, WINDOW_MANAGER, 0, WindowRequests::sendEvent);
+        REQUESTS.put(ClientOpcodes.GRAB_POINTER, WINDOW_MANAGER | CURSOR_MANAGER, INPUT_DEVICE, GrabRequests::grabPointer);
+        REQUESTS.put(ClientOpcodes.UNGRAB_POINTER, WINDOW_MANAGER, INPUT_DEVICE, GrabRequests::ungrabPointer);
+        REQUESTS.put(ClientOpcodes.QUERY_POINTER, WINDOW_MANAGER | INPUT_DEVICE, 0, WindowRequests::queryPointer);
+        REQUESTS.put(ClientOpcodes.TRANSLATE_COORDINATES, WINDOW_MANAGER, 0, WindowRequests::translateCoordinates);
+        REQUESTS.put(ClientOpcodes.WARP_POINTER, WINDOW_MANAGER, INPUT_DEVICE, WindowRequests::warpPointer);
+        REQUESTS.put(ClientOpcodes.SET_INPUT_FOCUS, 0, WINDOW_MANAGER, WindowRequests::setInputFocus);
+        REQUESTS.put(ClientOpcodes.GET_INPUT_FOCUS, WINDOW_MANAGER, 0, WindowRequests::getInputFocus);
+        REQUESTS.put(ClientOpcodes.OPEN_FONT, FontRequests::openFont);
+        REQUESTS.put(ClientOpcodes.LIST_FONTS, FontRequests::listFonts);
+        REQUESTS.put(ClientOpcodes.CREATE_PIXMAP, 0, PIXMAP_MANAGER | DRAWABLE_MANAGER, PixmapRequests::createPixmap);
+        REQUESTS.put(ClientOpcodes.FREE_PIXMAP, 0, PIXMAP_MANAGER | DRAWABLE_MANAGER, PixmapRequests::freePixmap);
+        REQUESTS.put(ClientOpcodes.CREATE_GC, PIXMAP_MANAGER | DRAWABLE_MANAGER, GRAPHIC_CONTEXT_MANAGER, GraphicsContextRequests::createGC);
+        REQUESTS.put(ClientOpcodes.CHANGE_GC, PIXMAP_MANAGER | DRAWABLE_MANAGER, GRAPHIC_CONTEXT_MANAGER, GraphicsContextRequests::changeGC);
+        REQUESTS.put(ClientOpcodes.SET_CLIP_RECTANGLES, SKIP_REQUEST);
+        REQUESTS.put(ClientOpcodes.FREE_GC, 0, GRAPHIC_CONTEXT_MANAGER, GraphicsContextRequests::freeGC);
+        REQUESTS.put(ClientOpcodes.COPY_AREA, GRAPHIC_CONTEXT_MANAGER, DRAWABLE_MANAGER, DrawRequests::copyArea);
+        REQUESTS.put(ClientOpcodes.POLY_LINE, GRAPHIC_CONTEXT_MANAGER, DRAWABLE_MANAGER, DrawRequests::polyLine);
+        REQUESTS.put(ClientOpcodes.POLY_SEGMENT, SKIP_REQUEST);
+        REQUESTS.put(ClientOpcodes.POLY_RECTANGLE, SKIP_REQUEST);
+        REQUESTS.put(ClientOpcodes.POLY_FILL_RECTANGLE, GRAPHIC_CONTEXT_MANAGER, DRAWABLE_MANAGER, DrawRequests::polyFillRectangle);
+        REQUESTS.put(ClientOpcodes.PUT_IMAGE, GRAPHIC_CONTEXT_MANAGER, DRAWABLE_MANAGER, DrawRequests::putImage);
+        REQUESTS.put(ClientOpcodes.GET_IMAGE, PIXMAP_MANAGER | DRAWABLE_MANAGER, 0, DrawRequests::getImage);
+        REQUESTS.put(ClientOpcodes.CREATE_COLORMAP, SKIP_REQUEST);
+        REQUESTS.put(ClientOpcodes.FREE_COLORMAP, SKIP_REQUEST);
+        REQUESTS.put(ClientOpcodes.CREATE_CURSOR, PIXMAP_MANAGER, DRAWABLE_MANAGER | CURSOR_MANAGER, CursorRequests::createCursor);
+        REQUESTS.put(ClientOpcodes.CREATE_GLYPH_CURSOR, SKIP_REQUEST);
+        REQUESTS.put(ClientOpcodes.FREE_CURSOR, PIXMAP_MANAGER, DRAWABLE_MANAGER | CURSOR_MANAGER, CursorRequests::freeCursor);
+        REQUESTS.put(ClientOpcodes.QUERY_EXTENSION, ExtensionRequests::queryExtension);
+        REQUESTS.put(ClientOpcodes.GET_KEYBOARD_MAPPING, INPUT_DEVICE, 0, KeyboardRequests::getKeyboardMapping);
+        REQUESTS.put(ClientOpcodes.BELL, SKIP_REQUEST);
+        REQUESTS.put(ClientOpcodes.SET_SCREEN_SAVER, SKIP_REQUEST);
+        REQUESTS.put(ClientOpcodes.GET_SCREEN_SAVER, WindowRequests::getScreenSaver);
+        REQUESTS.put(ClientOpcodes.FORCE_SCREEN_SAVER, SKIP_REQUEST);
+        REQUESTS.put(ClientOpcodes.GET_MODIFIER_MAPPING, KeyboardRequests::getModifierMapping);
+        REQUESTS.put(ClientOpcodes.NO_OPERATION, SKIP_REQUEST);
+    }
 
     @Override
     public boolean handleRequest(Client client) throws IOException {
@@ -139,7 +203,7 @@ public class XClientRequestHandler implements RequestHandler {
         if (nameLength > 0) inputStream.readString8(nameLength);
         if (dataLength > 0) inputStream.readString8(dataLength);
 
-        try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
+        try (XLock lock = client.xServer.lockForRead(XServer.Lockable.WINDOW_MANAGER)) {
             sendServerInformation(client, outputStream);
         }
 
@@ -160,255 +224,34 @@ public class XClientRequestHandler implements RequestHandler {
             return false;
         }
         else requestLength = inputStream.readInt() * 4 - 8;
-        if (inputStream.available() < requestLength) return false;
+
+        if (inputStream.available() < requestLength) {
+            inputStream.reserve(requestLength + 8);
+            return false;
+        }
 
         client.generateSequenceNumber();
         client.setRequestData(requestData);
         client.setRequestLength(requestLength);
 
+        RequestProfiler requestProfiler = client.xServer.requestProfiler;
+        long startTime = requestProfiler.isEnabled() ? requestProfiler.beginRequest() : 0;
         try {
-            switch (opcode) {
-                case ClientOpcodes.CREATE_WINDOW:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.INPUT_DEVICE, XServer.Lockable.CURSOR_MANAGER)) {
-                        WindowRequests.createWindow(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.CHANGE_WINDOW_ATTRIBUTES:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.CURSOR_MANAGER)) {
-                        WindowRequests.changeWindowAttributes(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.GET_WINDOW_ATTRIBUTES:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        WindowRequests.getWindowAttributes(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.DESTROY_WINDOW:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.INPUT_DEVICE)) {
-                        WindowRequests.destroyWindow(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.REPARENT_WINDOW:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        WindowRequests.reparentWindow(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.MAP_WINDOW:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.INPUT_DEVICE)) {
-                        WindowRequests.mapWindow(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.UNMAP_WINDOW:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.INPUT_DEVICE)) {
-                        WindowRequests.unmapWindow(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.CONFIGURE_WINDOW:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.INPUT_DEVICE)) {
-                        WindowRequests.configureWindow(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.GET_GEOMETRY:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
-                        WindowRequests.getGeometry(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.QUERY_TREE:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        WindowRequests.queryTree(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.INTERN_ATOM:
-                    AtomRequests.internAtom(client, inputStream, outputStream);
-                    break;
-                case ClientOpcodes.CHANGE_PROPERTY:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        WindowRequests.changeProperty(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.DELETE_PROPERTY:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        WindowRequests.deleteProperty(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.GET_PROPERTY:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        WindowRequests.getProperty(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.SET_SELECTION_OWNER:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        SelectionRequests.setSelectionOwner(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.GET_SELECTION_OWNER:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        SelectionRequests.getSelectionOwner(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.SEND_EVENT:
-                    try (XLock lock = client.xServer.lockAll()) {
-                        WindowRequests.sendEvent(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.GRAB_POINTER:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.INPUT_DEVICE, XServer.Lockable.CURSOR_MANAGER)) {
-                        GrabRequests.grabPointer(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.UNGRAB_POINTER:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.INPUT_DEVICE)) {
-                        GrabRequests.ungrabPointer(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.QUERY_POINTER:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.INPUT_DEVICE)) {
-                        WindowRequests.queryPointer(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.TRANSLATE_COORDINATES:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        WindowRequests.translateCoordinates(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.WARP_POINTER:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.INPUT_DEVICE)) {
-                        WindowRequests.warpPointer(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.SET_INPUT_FOCUS:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        WindowRequests.setInputFocus(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.GET_INPUT_FOCUS:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                        WindowRequests.getInputFocus(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.OPEN_FONT:
-                    FontRequests.openFont(client, inputStream, outputStream);
-                    break;
-                case ClientOpcodes.LIST_FONTS:
-                    FontRequests.listFonts(client, inputStream, outputStream);
-                    break;
-                case ClientOpcodes.CREATE_PIXMAP:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.PIXMAP_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
-                        PixmapRequests.createPixmap(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.FREE_PIXMAP:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.PIXMAP_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
-                        PixmapRequests.freePixmap(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.CREATE_GC:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.PIXMAP_MANAGER, XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.GRAPHIC_CONTEXT_MANAGER)) {
-                        GraphicsContextRequests.createGC(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.CHANGE_GC:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.PIXMAP_MANAGER, XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.GRAPHIC_CONTEXT_MANAGER)) {
-                        GraphicsContextRequests.changeGC(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.SET_CLIP_RECTANGLES:
-                    client.skipRequest();
-                    break;
-                case ClientOpcodes.FREE_GC:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.GRAPHIC_CONTEXT_MANAGER)) {
-                        GraphicsContextRequests.freeGC(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.COPY_AREA:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.GRAPHIC_CONTEXT_MANAGER)) {
-                        DrawRequests.copyArea(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.POLY_LINE:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.GRAPHIC_CONTEXT_MANAGER)) {
-                        DrawRequests.polyLine(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.POLY_SEGMENT:
-                    client.skipRequest();
-                    break;
-                case ClientOpcodes.POLY_RECTANGLE:
-                    client.skipRequest();
-                    break;
-                case ClientOpcodes.POLY_FILL_RECTANGLE:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.GRAPHIC_CONTEXT_MANAGER)) {
-                        DrawRequests.polyFillRectangle(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.PUT_IMAGE:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.GRAPHIC_CONTEXT_MANAGER)) {
-                        DrawRequests.putImage(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.GET_IMAGE:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.PIXMAP_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
-                        DrawRequests.getImage(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.CREATE_COLORMAP:
-                    client.skipRequest();
-                    break;
-                case ClientOpcodes.FREE_COLORMAP:
-                    client.skipRequest();
-                    break;
-                case ClientOpcodes.CREATE_CURSOR:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.PIXMAP_MANAGER, XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.CURSOR_MANAGER)) {
-                        CursorRequests.createCursor(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.CREATE_GLYPH_CURSOR:
-                    client.skipRequest();
-                    break;
-                case ClientOpcodes.FREE_CURSOR:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.PIXMAP_MANAGER, XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.CURSOR_MANAGER)) {
-                        CursorRequests.freeCursor(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.QUERY_EXTENSION:
-                    ExtensionRequests.queryExtension(client, inputStream, outputStream);
-                    break;
-                case ClientOpcodes.GET_KEYBOARD_MAPPING:
-                    try (XLock lock = client.xServer.lock(XServer.Lockable.INPUT_DEVICE)) {
-                        KeyboardRequests.getKeyboardMapping(client, inputStream, outputStream);
-                    }
-                    break;
-                case ClientOpcodes.BELL:
-                    client.skipRequest();
-                    break;
-                case ClientOpcodes.SET_SCREEN_SAVER:
-                    client.skipRequest();
-                    break;
-                case ClientOpcodes.GET_SCREEN_SAVER:
-                    WindowRequests.getScreenSaver(client, inputStream, outputStream);
-                    break;
-                case ClientOpcodes.FORCE_SCREEN_SAVER:
-                    client.skipRequest();
-                    break;
-                case ClientOpcodes.GET_MODIFIER_MAPPING:
-                    KeyboardRequests.getModifierMapping(client, inputStream, outputStream);
-                    break;
-                case ClientOpcodes.NO_OPERATION:
-                    client.skipRequest();
-                    break;
-                default:
-                    if (opcode < 0) {
-                        Extension extension = client.xServer.extensions.get(opcode);
-                        if (extension != null) extension.handleRequest(client, inputStream, outputStream);
-                    }
-                    else throw new UnsupportedOperationException("Unsupported opcode "+opcode+".");
-                    break;
+            if (!REQUESTS.dispatch(client, opcode, inputStream, outputStream)) {
+                if (opcode < 0) {
+                    Extension extension = client.xServer.getExtension(opcode);
+                    if (extension != null) extension.handleRequest(client, inputStream, outputStream);
+                }
+                else throw new UnsupportedOperationException("Unsupported opcode "+opcode+".");
             }
         }
         catch (XRequestError e) {
             client.skipRequest();
             e.sendError(client, opcode);
         }
+        finally {
+            if (startTime != 0) requestProfiler.endRequest(opcode, requestData, requestLength + 4, startTime);
+        }
 
         return true;
     }
@@ -7,21 +7,33 @@ import com.winlator.renderer.GLRenderer;
 import com.winlator.winhandler.WinHandler;
 import com.winlator.xserver.extensions.BigReqExtension;
 import com.winlator.xserver.extensions.DRI3Extension;
+import com.winlator.xserver.extensions.DamageExtension;
 import com.winlator.xserver.extensions.Extension;
 import com.winlator.xserver.extensions.MITSHMExtension;
 import com.winlator.xserver.extensions.PresentExtension;
 import com.winlator.xserver.extensions.SyncExtension;
+import com.winlator.xserver.extensions.XFixesExtension;
 
 import java.nio.charset.Charset;
-import java.util.EnumMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class XServer {
-    public enum Lockable {WINDOW_MANAGER, PIXMAP_MANAGER, DRAWABLE_MANAGER, GRAPHIC_CONTEXT_MANAGER, INPUT_DEVICE, CURSOR_MANAGER, SHMSEGMENT_MANAGER}
+    public enum Lockable {
+        WINDOW_MANAGER, PIXMAP_MANAGER, DRAWABLE_MANAGER, GRAPHIC_CONTEXT_MANAGER, INPUT_DEVICE, CURSOR_MANAGER, SHMSEGMENT_MANAGER;
+
+        public int flag() {
+            return 1 << ordinal();
+        }
+    }
+    private static final Lockable[] LOCKABLES = Lockable.values();
+    public static final int ALL_LOCKABLES = (1 << LOCKABLES.length) - 1;
     public static final short VERSION = 11;
     public static final String VENDOR_NAME = "Elbrus Technologies, LLC";
     public static final Charset LATIN1_CHARSET = Charset.forName("latin1");
     public final SparseArray<Extension> extensions = new SparseArray<>();
+    private final Extension[] extensionsByOpcode = new Extension[128];
     public final ScreenInfo screenInfo;
     public final PixmapManager pixmapManager;
     public final ResourceIDs resourceIDs = new ResourceIDs(128);
@@ -35,16 +47,24 @@ public class XServer {
     public final InputDeviceManager inputDeviceManager;
     public final GrabManager grabManager;
     public final CursorLocker cursorLocker;
+    public final DisplayClock displayClock = new DisplayClock();
+    public final RequestProfiler requestProfiler;
     private SHMSegmentManager shmSegmentManager;
     private GLRenderer renderer;
     private WinHandler winHandler;
-    private final EnumMap<Lockable, ReentrantLock> locks = new EnumMap<>(Lockable.class);
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCKABLES.length];
+    private final ThreadLocal<LockTokenStack> lockTokens = new ThreadLocal<LockTokenStack>() {
+        @Override
+        protected LockTokenStack initialValue() {
+            return new LockTokenStack();
+        }
+    };
     private boolean relativeMouseMovement = false;
 
     public XServer(ScreenInfo screenInfo) {
         this.screenInfo = screenInfo;
         cursorLocker = new CursorLocker(this);
-        for (Lockable lockable : Lockable.values()) locks.put(lockable, new ReentrantLock());
+        for (int i = 0; i < locks.length; i++) locks[i] = new ReentrantReadWriteLock();
 
         pixmapManager = new PixmapManager();
         drawableManager = new DrawableManager(this);
@@ -56,6 +76,7 @@ public class XServer {
 
         DesktopHelper.attachTo(this);
         setupExtensions();
+        requestProfiler = new RequestProfiler(this);
     }
 
     public boolean isRelativeMouseMovement() {
@@ -91,46 +112,96 @@ public class XServer {
         this.shmSegmentManager = shmSegmentManager;
     }
 
-    private class SingleXLock implements XLock {
-        private final ReentrantLock lock;
+    private void acquireLock(Lockable lockable, boolean write) {
+        ReentrantReadWriteLock readWriteLock = locks[lockable.ordinal()];
+        Lock lock = write ? readWriteLock.writeLock() : readWriteLock.readLock();
+        if (requestProfiler != null && requestProfiler.isEnabled()) {
+            if (!lock.tryLock()) {
+                long startTime = System.nanoTime();
+                lock.lock();
+                requestProfiler.addLockWait(lockable, write, System.nanoTime() - startTime);
+            }
+        }
+        else lock.lock();
+    }
 
-        private SingleXLock(Lockable lockable) {
-            this.lock = locks.get(lockable);
-            lock.lock();
+    private class LockToken implements XLock {
+        private final LockTokenStack stack;
+        private int readMask;
+        private int writeMask;
+
+        private LockToken(LockTokenStack stack) {
+            this.stack = stack;
+        }
+
+        private void acquire(int readMask, int writeMask) {
+            this.writeMask = writeMask & ALL_LOCKABLES;
+            this.readMask = readMask & ALL_LOCKABLES & ~this.writeMask;
+            for (Lockable lockable : LOCKABLES) {
+                int flag = lockable.flag();
+                if ((this.writeMask & flag) != 0) {
+                    acquireLock(lockable, true);
+                }
+                else if ((this.readMask & flag) != 0) acquireLock(lockable, false);
+            }
         }
 
         @Override
         public void close() {
-            lock.unlock();
+            for (int i = LOCKABLES.length - 1; i >= 0; i--) {
+                int flag = 1 << i;
+                if ((writeMask & flag) != 0) {
+                    locks[i].writeLock().unlock();
+                }
+                else if ((readMask & flag) != 0) locks[i].readLock().unlock();
+            }
+            stack.size--;
         }
     }
 
-    private class MultiXLock implements XLock {
-        private final Lockable[] lockables;
+    private class LockTokenStack {
+        private LockToken[] tokens = new LockToken[4];
+        private int size = 0;
 
-        private MultiXLock(Lockable[] lockables) {
-            this.lockables = lockables;
-            for (Lockable lockable : lockables) locks.get(lockable).lock();
+        private LockToken push() {
+            if (size == tokens.length) tokens = Arrays.copyOf(tokens, size * 2);
+            LockToken token = tokens[size];
+            if (token == null) tokens[size] = token = new LockToken(this);
+            size++;
+            return token;
         }
+    }
 
-        @Override
-        public void close() {
-            for (int i = lockables.length - 1; i >= 0; i--) {
-                locks.get(lockables[i]).unlock();
-            }
-        }
+    public static int getLockMask(Lockable... lockables) {
+        int mask = 0;
+        for (Lockable lockable : lockables) mask |= lockable.flag();
+        return mask;
+    }
+
+    public XLock lock(int readMask, int writeMask) {
+        LockToken token = lockTokens.get().push();
+        token.acquire(readMask, writeMask);
+        return token;
     }
 
     public XLock lock(Lockable lockable) {
-        return new SingleXLock(lockable);
+        return lock(0, lockable.flag());
     }
 
     public XLock lock(Lockable... lockables) {
-        return new MultiXLock(lockables);
+        return lock(0, getLockMask(lockables));
+    }
+
+    public XLock lockForRead(Lockable lockable) {
+        return lock(lockable.flag(), 0);
+    }
+
+    public XLock lockForRead(Lockable... lockables) {
+        return lock(getLockMask(lockables), 0);
     }
 
     public XLock lockAll() {
-        return new MultiXLock(Lockable.values());
+        return lock(0, ALL_LOCKABLES);
     }
 
     public Extension getExtensionByName(String name) {
@@ -142,13 +213,13 @@ public class XServer {
     }
 
     public void injectPointerMove(int x, int y) {
-        try (XLock lock = lock(Lockable.WINDOW_MANAGER, Lockable.INPUT_DEVICE)) {
+        try (XLock lock = lock(Lockable.WINDOW_MANAGER.flag(), Lockable.INPUT_DEVICE.flag())) {
             pointer.setPosition(x, y);
         }
     }
 
     public void injectPointerMoveDelta(int dx, int dy) {
-        try (XLock lock = lock(Lockable.WINDOW_MANAGER, Lockable.INPUT_DEVICE)) {
+        try (XLock lock = lock(Lockable.WINDOW_MANAGER.flag(), Lockable.INPUT_DEVICE.flag())) {
             pointer.setPosition(pointer.getX() + dx, pointer.getY() + dy);
         }
     }
@@ -170,26 +241,35 @@ public class XServer {
     }
 
     public void injectKeyPress(XKeycode xKeycode, int keysym) {
-        try (XLock lock = lock(Lockable.WINDOW_MANAGER, Lockable.INPUT_DEVICE)) {
+        try (XLock lock = lock(Lockable.WINDOW_MANAGER.flag(), Lockable.INPUT_DEVICE.flag())) {
             keyboard.setKeyPress(xKeycode.id, keysym);
         }
     }
 
     public void injectKeyRelease(XKeycode xKeycode) {
-        try (XLock lock = lock(Lockable.WINDOW_MANAGER, Lockable.INPUT_DEVICE)) {
+        try (XLock lock = lock(Lockable.WINDOW_MANAGER.flag(), Lockable.INPUT_DEVICE.flag())) {
             keyboard.setKeyRelease(xKeycode.id);
         }
     }
 
     private void setupExtensions() {
-        extensions.put(BigReqExtension.MAJOR_OPCODE, new BigReqExtension());
-        extensions.put(MITSHMExtension.MAJOR_OPCODE, new MITSHMExtension());
-        extensions.put(DRI3Extension.MAJOR_OPCODE, new DRI3Extension());
-        extensions.put(PresentExtension.MAJOR_OPCODE, new PresentExtension());
-        extensions.put(SyncExtension.MAJOR_OPCODE, new SyncExtension());
+        addExtension(new BigReqExtension());
+        addExtension(new MITSHMExtension());
+        addExtension(new DRI3Extension());
+        addExtension(new PresentExtension());
+        addExtension(new SyncExtension());
+        addExtension(new DamageExtension());
+        addExtension(new XFixesExtension());
+
+        for (int i = 0; i < extensions.size(); i++) extensions.valueAt(i).attach(this);
+    }
+
+    private void addExtension(Extension extension) {
+        extensions.put(extension.getMajorOpcode(), extension);
+        extensionsByOpcode[extension.getMajorOpcode() & 127] = extension;
     }
 
     public <T extends Extension> T getExtension(int opcode) {
-        return (T)extensions.get(opcode);
+        return opcode < 0 ? (T)extensionsByOpcode[opcode & 127] : null;
     }
 }
@@ -0,0 +1,7 @@
+package com.winlator.xserver.errors;
+
+public class BadDamage extends XRequestError {
+    public BadDamage(int id) {
+        super(Byte.MIN_VALUE + 3, id);
+    }
+}
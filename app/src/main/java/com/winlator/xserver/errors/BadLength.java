@@ -0,0 +1,7 @@
+package com.winlator.xserver.errors;
+
+public class BadLength extends XRequestError {
+    public BadLength() {
+        super(16, 0);
+    }
+}
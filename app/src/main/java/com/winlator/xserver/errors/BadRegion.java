@@ -0,0 +1,7 @@
+package com.winlator.xserver.errors;
+
+public class BadRegion extends XRequestError {
+    public BadRegion(int id) {
+        super(Byte.MIN_VALUE + 4, id);
+    }
+}
@@ -4,7 +4,9 @@ import com.winlator.xserver.Bitmask;
 import com.winlator.xserver.Window;
 
 public class ButtonPress extends InputDeviceEvent {
+    public static final byte CODE = 4;
+
     public ButtonPress(byte detail, Window root, Window event, Window child, short rootX, short rootY, short eventX, short eventY, Bitmask state) {
-        super(4, detail, root, event, child, rootX, rootY, eventX, eventY, state);
+        super(CODE, detail, root, event, child, rootX, rootY, eventX, eventY, state);
     }
 }
@@ -4,7 +4,9 @@ import com.winlator.xserver.Bitmask;
 import com.winlator.xserver.Window;
 
 public class ButtonRelease extends InputDeviceEvent {
+    public static final byte CODE = 5;
+
     public ButtonRelease(byte detail, Window root, Window event, Window child, short rootX, short rootY, short eventX, short eventY, Bitmask state) {
-        super(5, detail, root, event, child, rootX, rootY, eventX, eventY, state);
+        super(CODE, detail, root, event, child, rootX, rootY, eventX, eventY, state);
     }
 }
@@ -33,19 +33,7 @@ public class ConfigureNotify extends Event {
     @Override
     public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
         try (XStreamLock lock = outputStream.lock()) {
-            outputStream.writeByte(code);
-            outputStream.writeByte((byte)0);
-            outputStream.writeShort(sequenceNumber);
-            outputStream.writeInt(event.id);
-            outputStream.writeInt(window.id);
-            outputStream.writeInt(aboveSibling != null ? aboveSibling.id : 0);
-            outputStream.writeShort(x);
-            outputStream.writeShort(y);
-            outputStream.writeShort(width);
-            outputStream.writeShort(height);
-            outputStream.writeShort(borderWidth);
-            outputStream.writeByte((byte)(overrideRedirect ? 1 : 0));
-            outputStream.writePad(5);
+            EventEncoder.putConfigureNotify(outputStream.reserve(EventEncoder.EVENT_SIZE), code, sequenceNumber, event.id, window.id, aboveSibling != null ? aboveSibling.id : 0, x, y, width, height, borderWidth, overrideRedirect);
         }
     }
 }
@@ -0,0 +1,45 @@
+package com.winlator.xserver.events;
+
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xconnector.XStreamLock;
+import com.winlator.xserver.extensions.DamageExtension;
+
+import java.io.IOException;
+
+public class DamageNotify extends Event {
+    private final byte level;
+    private final int drawableId;
+    private final int damageId;
+    private final int timestamp;
+    private final short x;
+    private final short y;
+    private final short width;
+    private final short height;
+    private final short geometryX;
+    private final short geometryY;
+    private final short geometryWidth;
+    private final short geometryHeight;
+
+    public DamageNotify(byte level, int drawableId, int damageId, int x, int y, int width, int height, int geometryX, int geometryY, int geometryWidth, int geometryHeight) {
+        super(DamageExtension.FIRST_EVENT_ID);
+        this.level = level;
+        this.drawableId = drawableId;
+        this.damageId = damageId;
+        this.timestamp = (int)System.currentTimeMillis();
+        this.x = (short)x;
+        this.y = (short)y;
+        this.width = (short)width;
+        this.height = (short)height;
+        this.geometryX = (short)geometryX;
+        this.geometryY = (short)geometryY;
+        this.geometryWidth = (short)geometryWidth;
+        this.geometryHeight = (short)geometryHeight;
+    }
+
+    @Override
+    public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
+        try (XStreamLock lock = outputStream.lock()) {
+            EventEncoder.putDamageNotify(outputStream.reserve(EventEncoder.EVENT_SIZE), code, level, sequenceNumber, drawableId, damageId, timestamp, x, y, width, height, geometryX, geometryY, geometryWidth, geometryHeight);
+        }
+    }
+}
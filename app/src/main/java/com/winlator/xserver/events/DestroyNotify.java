@@ -19,12 +19,7 @@ public class DestroyNotify extends Event {
     @Override
     public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
         try (XStreamLock lock = outputStream.lock()) {
-            outputStream.writeByte(code);
-            outputStream.writeByte((byte)0);
-            outputStream.writeShort(sequenceNumber);
-            outputStream.writeInt(event.id);
-            outputStream.writeInt(window.id);
-            outputStream.writePad(20);
+            EventEncoder.putWindowNotify(outputStream.reserve(EventEncoder.EVENT_SIZE), code, sequenceNumber, event.id, window.id, (byte)0);
         }
     }
 }
@@ -0,0 +1,158 @@
+package com.winlator.xserver.events;
+
+import java.nio.ByteBuffer;
+
+public final class EventEncoder {
+    public static final int EVENT_SIZE = 32;
+    public static final int GENERIC_EVENT_SIZE = 40;
+
+    private EventEncoder() {}
+
+    public static void putInputDeviceEvent(ByteBuffer buffer, byte code, byte detail, short sequenceNumber, int timestamp, int rootId, int eventId, int childId, short rootX, short rootY, short eventX, short eventY, short state) {
+        buffer.put(code);
+        buffer.put(detail);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt(timestamp);
+        buffer.putInt(rootId);
+        buffer.putInt(eventId);
+        buffer.putInt(childId);
+        buffer.putShort(rootX);
+        buffer.putShort(rootY);
+        buffer.putShort(eventX);
+        buffer.putShort(eventY);
+        buffer.putShort(state);
+        buffer.put((byte)1);
+        buffer.put((byte)0);
+    }
+
+    public static void putPointerWindowEvent(ByteBuffer buffer, byte code, byte detail, short sequenceNumber, int timestamp, int rootId, int eventId, int childId, short rootX, short rootY, short eventX, short eventY, short state, byte mode, boolean sameScreenAndFocus) {
+        buffer.put(code);
+        buffer.put(detail);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt(timestamp);
+        buffer.putInt(rootId);
+        buffer.putInt(eventId);
+        buffer.putInt(childId);
+        buffer.putShort(rootX);
+        buffer.putShort(rootY);
+        buffer.putShort(eventX);
+        buffer.putShort(eventY);
+        buffer.putShort(state);
+        buffer.put(mode);
+        buffer.put((byte)(sameScreenAndFocus ? 1 : 0));
+    }
+
+    public static void putExpose(ByteBuffer buffer, byte code, short sequenceNumber, int windowId, short x, short y, short width, short height) {
+        buffer.put(code);
+        buffer.put((byte)0);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt(windowId);
+        buffer.putShort(x);
+        buffer.putShort(y);
+        buffer.putShort(width);
+        buffer.putShort(height);
+        buffer.putShort((short)0);
+        putPad(buffer, 14);
+    }
+
+    public static void putConfigureNotify(ByteBuffer buffer, byte code, short sequenceNumber, int eventId, int windowId, int aboveSiblingId, short x, short y, short width, short height, short borderWidth, boolean overrideRedirect) {
+        buffer.put(code);
+        buffer.put((byte)0);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt(eventId);
+        buffer.putInt(windowId);
+        buffer.putInt(aboveSiblingId);
+        buffer.putShort(x);
+        buffer.putShort(y);
+        buffer.putShort(width);
+        buffer.putShort(height);
+        buffer.putShort(borderWidth);
+        buffer.put((byte)(overrideRedirect ? 1 : 0));
+        putPad(buffer, 5);
+    }
+
+    public static void putWindowNotify(ByteBuffer buffer, byte code, short sequenceNumber, int eventId, int windowId, byte flag) {
+        buffer.put(code);
+        buffer.put((byte)0);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt(eventId);
+        buffer.putInt(windowId);
+        buffer.put(flag);
+        putPad(buffer, 19);
+    }
+
+    public static void putPropertyNotify(ByteBuffer buffer, byte code, short sequenceNumber, int windowId, int atom, int timestamp, boolean deleted) {
+        buffer.put(code);
+        buffer.put((byte)0);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt(windowId);
+        buffer.putInt(atom);
+        buffer.putInt(timestamp);
+        buffer.put((byte)(deleted ? 1 : 0));
+        putPad(buffer, 15);
+    }
+
+    public static void putPresentCompleteNotify(ByteBuffer buffer, byte code, byte majorOpcode, short sequenceNumber, short eventType, byte kind, byte mode, int eventId, int windowId, int serial, long ust, long msc) {
+        buffer.put(code);
+        buffer.put(majorOpcode);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt((GENERIC_EVENT_SIZE - EVENT_SIZE) / 4);
+        buffer.putShort(eventType);
+        buffer.put(kind);
+        buffer.put(mode);
+        buffer.putInt(eventId);
+        buffer.putInt(windowId);
+        buffer.putInt(serial);
+        buffer.putLong(ust);
+        buffer.putLong(msc);
+    }
+
+    public static void putPresentIdleNotify(ByteBuffer buffer, byte code, byte majorOpcode, short sequenceNumber, short eventType, int eventId, int windowId, int serial, int pixmapId, int idleFence) {
+        buffer.put(code);
+        buffer.put(majorOpcode);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt(0);
+        buffer.putShort(eventType);
+        buffer.putShort((short)0);
+        buffer.putInt(eventId);
+        buffer.putInt(windowId);
+        buffer.putInt(serial);
+        buffer.putInt(pixmapId);
+        buffer.putInt(idleFence);
+    }
+
+    public static void putDamageNotify(ByteBuffer buffer, byte code, byte level, short sequenceNumber, int drawableId, int damageId, int timestamp, short x, short y, short width, short height, short geometryX, short geometryY, short geometryWidth, short geometryHeight) {
+        buffer.put(code);
+        buffer.put(level);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt(drawableId);
+        buffer.putInt(damageId);
+        buffer.putInt(timestamp);
+        buffer.putShort(x);
+        buffer.putShort(y);
+        buffer.putShort(width);
+        buffer.putShort(height);
+        buffer.putShort(geometryX);
+        buffer.putShort(geometryY);
+        buffer.putShort(geometryWidth);
+        buffer.putShort(geometryHeight);
+    }
+
+    public static void putShmCompletion(ByteBuffer buffer, byte code, short sequenceNumber, int drawableId, short minorEvent, byte majorEvent, int shmseg, int offset) {
+        buffer.put(code);
+        buffer.put((byte)0);
+        buffer.putShort(sequenceNumber);
+        buffer.putInt(drawableId);
+        buffer.putShort(minorEvent);
+        buffer.put(majorEvent);
+        buffer.put((byte)0);
+        buffer.putInt(shmseg);
+        buffer.putInt(offset);
+        putPad(buffer, 12);
+    }
+
+    private static void putPad(ByteBuffer buffer, int length) {
+        for (; length >= 4; length -= 4) buffer.putInt(0);
+        for (; length > 0; length--) buffer.put((byte)0);
+    }
+}
@@ -25,16 +25,7 @@ public class Expose extends Event {
     @Override
     public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
         try (XStreamLock lock = outputStream.lock()) {
-            outputStream.writeByte(code);
-            outputStream.writeByte((byte)0);
-            outputStream.writeShort(sequenceNumber);
-            outputStream.writeInt(window.id);
-            outputStream.writeShort(x);
-            outputStream.writeShort(y);
-            outputStream.writeShort(width);
-            outputStream.writeShort(height);
-            outputStream.writeShort((short)0);
-            outputStream.writePad(14);
+            EventEncoder.putExpose(outputStream.reserve(EventEncoder.EVENT_SIZE), code, sequenceNumber, window.id, x, y, width, height);
         }
     }
 }
@@ -8,16 +8,16 @@ import com.winlator.xserver.Window;
 import java.io.IOException;
 
 public class InputDeviceEvent extends Event {
-    private final byte detail;
-    private final int timestamp;
-    private final Window root;
-    private final Window event;
-    private final Window child;
-    private final short eventX;
-    private final short eventY;
-    private final short rootX;
-    private final short rootY;
-    private final Bitmask state;
+    protected final byte detail;
+    protected final int timestamp;
+    protected final Window root;
+    protected final Window event;
+    protected final Window child;
+    protected final short eventX;
+    protected final short eventY;
+    protected final short rootX;
+    protected final short rootY;
+    protected final Bitmask state;
 
     public InputDeviceEvent(int code, byte detail, Window root, Window event, Window child, short rootX, short rootY, short eventX, short eventY, Bitmask state) {
         super(code);
@@ -33,23 +33,42 @@ public class InputDeviceEvent extends Event {
         this.state = state;
     }
 
+    public byte getDetail() {
+        return detail;
+    }
+
+    public Window getEventWindow() {
+        return event;
+    }
+
+    public Window getChild() {
+        return child;
+    }
+
+    public short getRootX() {
+        return rootX;
+    }
+
+    public short getRootY() {
+        return rootY;
+    }
+
+    public short getEventX() {
+        return eventX;
+    }
+
+    public short getEventY() {
+        return eventY;
+    }
+
+    public int getStateBits() {
+        return state.getBits();
+    }
+
     @Override
     public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
         try (XStreamLock lock = outputStream.lock()) {
-            outputStream.writeByte(code);
-            outputStream.writeByte(detail);
-            outputStream.writeShort(sequenceNumber);
-            outputStream.writeInt(timestamp);
-            outputStream.writeInt(root.id);
-            outputStream.writeInt(event.id);
-            outputStream.writeInt(child != null ? child.id : 0);
-            outputStream.writeShort(rootX);
-            outputStream.writeShort(rootY);
-            outputStream.writeShort(eventX);
-            outputStream.writeShort(eventY);
-            outputStream.writeShort((short)state.getBits());
-            outputStream.writeByte((byte)1);
-            outputStream.writeByte((byte)0);
+            EventEncoder.putInputDeviceEvent(outputStream.reserve(EventEncoder.EVENT_SIZE), code, detail, sequenceNumber, timestamp, root.id, event.id, child != null ? child.id : 0, rootX, rootY, eventX, eventY, (short)state.getBits());
         }
     }
 }
@@ -4,7 +4,9 @@ import com.winlator.xserver.Bitmask;
 import com.winlator.xserver.Window;
 
 public class MotionNotify extends InputDeviceEvent {
+    public static final byte CODE = 6;
+
     public MotionNotify(boolean detail, Window root, Window event, Window child, short rootX, short rootY, short eventX, short eventY, Bitmask state) {
-        super(6, (byte)(detail ? 1 : 0), root, event, child, rootX, rootY, eventX, eventY, state);
+        super(CODE, (byte)(detail ? 1 : 0), root, event, child, rootX, rootY, eventX, eventY, state);
     }
 }
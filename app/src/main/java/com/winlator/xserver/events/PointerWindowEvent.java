@@ -42,20 +42,7 @@ public abstract class PointerWindowEvent extends Event {
     @Override
     public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
         try (XStreamLock lock = outputStream.lock()) {
-            outputStream.writeByte(code);
-            outputStream.writeByte((byte)detail.ordinal());
-            outputStream.writeShort(sequenceNumber);
-            outputStream.writeInt(timestamp);
-            outputStream.writeInt(root.id);
-            outputStream.writeInt(event.id);
-            outputStream.writeInt(child != null ? child.id : 0);
-            outputStream.writeShort(rootX);
-            outputStream.writeShort(rootY);
-            outputStream.writeShort(eventX);
-            outputStream.writeShort(eventY);
-            outputStream.writeShort((short)state.getBits());
-            outputStream.writeByte((byte)mode.ordinal());
-            outputStream.writeByte((byte)(sameScreenAndFocus ? 1 : 0));
+            EventEncoder.putPointerWindowEvent(outputStream.reserve(EventEncoder.EVENT_SIZE), code, (byte)detail.ordinal(), sequenceNumber, timestamp, root.id, event.id, child != null ? child.id : 0, rootX, rootY, eventX, eventY, (short)state.getBits(), (byte)mode.ordinal(), sameScreenAndFocus);
         }
     }
 }
@@ -30,18 +30,7 @@ public class PresentCompleteNotify extends Event {
     @Override
     public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
         try (XStreamLock lock = outputStream.lock()) {
-            outputStream.writeByte(code);
-            outputStream.writeByte(PresentExtension.MAJOR_OPCODE);
-            outputStream.writeShort(sequenceNumber);
-            outputStream.writeInt(2);
-            outputStream.writeShort(getEventType());
-            outputStream.writeByte((byte)kind.ordinal());
-            outputStream.writeByte((byte)mode.ordinal());
-            outputStream.writeInt(eventId);
-            outputStream.writeInt(window.id);
-            outputStream.writeInt(serial);
-            outputStream.writeLong(ust);
-            outputStream.writeLong(msc);
+            EventEncoder.putPresentCompleteNotify(outputStream.reserve(EventEncoder.GENERIC_EVENT_SIZE), code, PresentExtension.MAJOR_OPCODE, sequenceNumber, getEventType(), (byte)kind.ordinal(), (byte)mode.ordinal(), eventId, window.id, serial, ust, msc);
         }
     }
 
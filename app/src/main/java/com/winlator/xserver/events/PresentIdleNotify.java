@@ -27,17 +27,7 @@ public class PresentIdleNotify extends Event {
     @Override
     public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
         try (XStreamLock lock = outputStream.lock()) {
-            outputStream.writeByte(code);
-            outputStream.writeByte(PresentExtension.MAJOR_OPCODE);
-            outputStream.writeShort(sequenceNumber);
-            outputStream.writeInt(0);
-            outputStream.writeShort(getEventType());
-            outputStream.writeShort((short)0);
-            outputStream.writeInt(eventId);
-            outputStream.writeInt(window.id);
-            outputStream.writeInt(serial);
-            outputStream.writeInt(pixmap.id);
-            outputStream.writeInt(idleFence);
+            EventEncoder.putPresentIdleNotify(outputStream.reserve(EventEncoder.EVENT_SIZE), code, PresentExtension.MAJOR_OPCODE, sequenceNumber, getEventType(), eventId, window.id, serial, pixmap.id, idleFence);
         }
     }
 
@@ -23,14 +23,7 @@ public class PropertyNotify extends Event {
     @Override
     public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
         try (XStreamLock lock = outputStream.lock()) {
-            outputStream.writeByte(code);
-            outputStream.writeByte((byte)0);
-            outputStream.writeShort(sequenceNumber);
-            outputStream.writeInt(window.id);
-            outputStream.writeInt(atom);
-            outputStream.writeInt(timestamp);
-            outputStream.writeByte((byte)(deleted ? 1 : 0));
-            outputStream.writePad(15);
+            EventEncoder.putPropertyNotify(outputStream.reserve(EventEncoder.EVENT_SIZE), code, sequenceNumber, window.id, atom, timestamp, deleted);
         }
     }
 }
@@ -0,0 +1,29 @@
+package com.winlator.xserver.events;
+
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xconnector.XStreamLock;
+import com.winlator.xserver.extensions.MITSHMExtension;
+
+import java.io.IOException;
+
+public class ShmCompletion extends Event {
+    private final int drawableId;
+    private final short minorEvent;
+    private final int shmseg;
+    private final int offset;
+
+    public ShmCompletion(int drawableId, int minorEvent, int shmseg, int offset) {
+        super(MITSHMExtension.FIRST_EVENT_ID);
+        this.drawableId = drawableId;
+        this.minorEvent = (short)minorEvent;
+        this.shmseg = shmseg;
+        this.offset = offset;
+    }
+
+    @Override
+    public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
+        try (XStreamLock lock = outputStream.lock()) {
+            EventEncoder.putShmCompletion(outputStream.reserve(EventEncoder.EVENT_SIZE), code, sequenceNumber, drawableId, minorEvent, MITSHMExtension.MAJOR_OPCODE, shmseg, offset);
+        }
+    }
+}
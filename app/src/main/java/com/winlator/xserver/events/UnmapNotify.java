@@ -19,13 +19,7 @@ public class UnmapNotify extends Event {
     @Override
     public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
         try (XStreamLock lock = outputStream.lock()) {
-            outputStream.writeByte(code);
-            outputStream.writeByte((byte)0);
-            outputStream.writeShort(sequenceNumber);
-            outputStream.writeInt(event.id);
-            outputStream.writeInt(window.id);
-            outputStream.writeByte((byte)0);
-            outputStream.writePad(19);
+            EventEncoder.putWindowNotify(outputStream.reserve(EventEncoder.EVENT_SIZE), code, sequenceNumber, event.id, window.id, (byte)0);
         }
     }
 }
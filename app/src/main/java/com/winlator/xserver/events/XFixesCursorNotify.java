@@ -0,0 +1,36 @@
+package com.winlator.xserver.events;
+
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xconnector.XStreamLock;
+import com.winlator.xserver.Window;
+import com.winlator.xserver.extensions.XFixesExtension;
+
+import java.io.IOException;
+
+public class XFixesCursorNotify extends Event {
+    public static final byte DISPLAY_CURSOR = 0;
+    private final Window window;
+    private final int cursorSerial;
+    private final int timestamp;
+
+    public XFixesCursorNotify(Window window, int cursorSerial) {
+        super(XFixesExtension.FIRST_EVENT_ID + 1);
+        this.window = window;
+        this.cursorSerial = cursorSerial;
+        this.timestamp = (int)System.currentTimeMillis();
+    }
+
+    @Override
+    public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
+        try (XStreamLock lock = outputStream.lock()) {
+            outputStream.writeByte(code);
+            outputStream.writeByte(DISPLAY_CURSOR);
+            outputStream.writeShort(sequenceNumber);
+            outputStream.writeInt(window.id);
+            outputStream.writeInt(cursorSerial);
+            outputStream.writeInt(timestamp);
+            outputStream.writeInt(0);
+            outputStream.writePad(12);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.winlator.xserver.events;
+
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xconnector.XStreamLock;
+import com.winlator.xserver.Window;
+import com.winlator.xserver.extensions.XFixesExtension;
+
+import java.io.IOException;
+
+public class XFixesSelectionNotify extends Event {
+    public static final byte SET_SELECTION_OWNER = 0;
+    public static final byte SELECTION_WINDOW_DESTROY = 1;
+    public static final byte SELECTION_CLIENT_CLOSE = 2;
+    private final byte subtype;
+    private final Window window;
+    private final Window owner;
+    private final int selection;
+    private final int timestamp;
+    private final int selectionTimestamp;
+
+    public XFixesSelectionNotify(byte subtype, Window window, Window owner, int selection, int selectionTimestamp) {
+        super(XFixesExtension.FIRST_EVENT_ID);
+        this.subtype = subtype;
+        this.window = window;
+        this.owner = owner;
+        this.selection = selection;
+        this.timestamp = (int)System.currentTimeMillis();
+        this.selectionTimestamp = selectionTimestamp;
+    }
+
+    @Override
+    public void send(short sequenceNumber, XOutputStream outputStream) throws IOException {
+        try (XStreamLock lock = outputStream.lock()) {
+            outputStream.writeByte(code);
+            outputStream.writeByte(subtype);
+            outputStream.writeShort(sequenceNumber);
+            outputStream.writeInt(window.id);
+            outputStream.writeInt(owner != null ? owner.id : 0);
+            outputStream.writeInt(selection);
+            outputStream.writeInt(timestamp);
+            outputStream.writeInt(selectionTimestamp);
+            outputStream.writePad(8);
+        }
+    }
+}
@@ -10,9 +10,9 @@ import com.winlator.xconnector.XOutputStream;
 import com.winlator.xconnector.XStreamLock;
 import com.winlator.xserver.Drawable;
 import com.winlator.xserver.Pixmap;
+import com.winlator.xserver.RequestDispatchTable;
 import com.winlator.xserver.Window;
 import com.winlator.xserver.XClient;
-import com.winlator.xserver.XLock;
 import com.winlator.xserver.XServer;
 import com.winlator.xserver.errors.BadAlloc;
 import com.winlator.xserver.errors.BadDrawable;
@@ -26,6 +26,7 @@ import java.nio.ByteBuffer;
 
 public class DRI3Extension implements Extension {
     public static final byte MAJOR_OPCODE = -102;
+    private final RequestDispatchTable requests = new RequestDispatchTable(8);
     private final Callback<Drawable> onDestroyDrawableListener = (drawable) -> {
         ByteBuffer data = drawable.getData();
         SysVSharedMemory.unmapSHMSegment(data, data.capacity());
@@ -38,6 +39,13 @@ public class DRI3Extension implements Extension {
         private static final byte PIXMAP_FROM_BUFFERS = 7;
     }
 
+    public DRI3Extension() {
+        requests.put(ClientOpcodes.QUERY_VERSION, this::queryVersion);
+        requests.put(ClientOpcodes.OPEN, XServer.Lockable.DRAWABLE_MANAGER.flag(), 0, this::open);
+        requests.put(ClientOpcodes.PIXMAP_FROM_BUFFER, XServer.Lockable.WINDOW_MANAGER.flag(), XServer.Lockable.PIXMAP_MANAGER.flag() | XServer.Lockable.DRAWABLE_MANAGER.flag(), this::pixmapFromBuffer);
+        requests.put(ClientOpcodes.PIXMAP_FROM_BUFFERS, XServer.Lockable.WINDOW_MANAGER.flag(), XServer.Lockable.PIXMAP_MANAGER.flag() | XServer.Lockable.DRAWABLE_MANAGER.flag(), this::pixmapFromBuffers);
+    }
+
     @Override
     public String getName() {
         return "DRI3";
@@ -150,28 +158,6 @@ public class DRI3Extension implements Extension {
 
     @Override
     public void handleRequest(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
-        int opcode = client.getRequestData();
-        switch (opcode) {
-            case ClientOpcodes.QUERY_VERSION :
-                queryVersion(client, inputStream, outputStream);
-                break;
-            case ClientOpcodes.OPEN :
-                try (XLock lock = client.xServer.lock(XServer.Lockable.DRAWABLE_MANAGER)) {
-                    open(client, inputStream, outputStream);
-                }
-                break;
-            case ClientOpcodes.PIXMAP_FROM_BUFFER:
-                try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.PIXMAP_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
-                    pixmapFromBuffer(client, inputStream, outputStream);
-                }
-                break;
-            case ClientOpcodes.PIXMAP_FROM_BUFFERS:
-                try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.PIXMAP_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
-                    pixmapFromBuffers(client, inputStream, outputStream);
-                }
-                break;
-            default:
-                throw new BadImplementation();
-        }
+        if (!requests.dispatch(client, client.getRequestData(), inputStream, outputStream)) throw new BadImplementation();
     }
 }
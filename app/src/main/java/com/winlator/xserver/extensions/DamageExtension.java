@@ -0,0 +1,323 @@
+package com.winlator.xserver.extensions;
+
+import static com.winlator.xserver.XClientRequestHandler.RESPONSE_CODE_SUCCESS;
+
+import com.winlator.xconnector.XInputStream;
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xconnector.XStreamLock;
+import com.winlator.xserver.Drawable;
+import com.winlator.xserver.IntObjectMap;
+import com.winlator.xserver.Pixmap;
+import com.winlator.xserver.Region;
+import com.winlator.xserver.RequestDispatchTable;
+import com.winlator.xserver.Window;
+import com.winlator.xserver.XClient;
+import com.winlator.xserver.XResource;
+import com.winlator.xserver.XResourceManager;
+import com.winlator.xserver.XServer;
+import com.winlator.xserver.errors.BadDamage;
+import com.winlator.xserver.errors.BadDrawable;
+import com.winlator.xserver.errors.BadIdChoice;
+import com.winlator.xserver.errors.BadImplementation;
+import com.winlator.xserver.errors.BadRegion;
+import com.winlator.xserver.errors.BadValue;
+import com.winlator.xserver.errors.XRequestError;
+import com.winlator.xserver.events.DamageNotify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+public class DamageExtension implements Extension, XResourceManager.OnResourceLifecycleListener {
+    public static final byte MAJOR_OPCODE = -105;
+    public static final byte FIRST_EVENT_ID = 65;
+    private static final byte NOTIFY_MORE = (byte)0x80;
+    public enum ReportLevel {RAW_RECTANGLES, DELTA_RECTANGLES, BOUNDING_BOX, NON_EMPTY}
+    private static final ReportLevel[] REPORT_LEVELS = ReportLevel.values();
+    private final RequestDispatchTable requests = new RequestDispatchTable(5);
+    private final IntObjectMap<Damage> damages = new IntObjectMap<>();
+    private final Region damagedRegion = new Region();
+    private final Region deltaRegion = new Region();
+    private XFixesExtension xFixesExtension;
+    private boolean resourceListenerAdded = false;
+
+    private static abstract class ClientOpcodes {
+        private static final byte QUERY_VERSION = 0;
+        private static final byte CREATE = 1;
+        private static final byte DESTROY = 2;
+        private static final byte SUBTRACT = 3;
+        private static final byte ADD = 4;
+    }
+
+    private static class Damage {
+        private int id;
+        private XClient client;
+        private Drawable drawable;
+        private Window window;
+        private ReportLevel level;
+        private DamageListener listener;
+        private final Region region = new Region();
+
+        private Drawable getDrawable() {
+            return window != null ? window.getContent() : drawable;
+        }
+    }
+
+    private class DamageListener implements Drawable.OnDamageListener {
+        private final ArrayList<Damage> damages = new ArrayList<>();
+
+        @Override
+        public void onDamage(Drawable drawable, int x, int y, int width, int height) {
+            synchronized (DamageExtension.this.damages) {
+                damagedRegion.setRect(x, y, width, height);
+                for (int i = 0; i < damages.size(); i++) addDamage(damages.get(i), damagedRegion);
+            }
+        }
+    }
+
+    public DamageExtension() {
+        requests.put(ClientOpcodes.QUERY_VERSION, DamageExtension::queryVersion);
+        requests.put(ClientOpcodes.CREATE, XServer.Lockable.WINDOW_MANAGER.flag() | XServer.Lockable.PIXMAP_MANAGER.flag() | XServer.Lockable.DRAWABLE_MANAGER.flag(), 0, this::create);
+        requests.put(ClientOpcodes.DESTROY, XServer.Lockable.WINDOW_MANAGER.flag(), 0, this::destroy);
+        requests.put(ClientOpcodes.SUBTRACT, XServer.Lockable.WINDOW_MANAGER.flag(), 0, this::subtract);
+        requests.put(ClientOpcodes.ADD, XServer.Lockable.DRAWABLE_MANAGER.flag(), 0, this::add);
+    }
+
+    @Override
+    public String getName() {
+        return "DAMAGE";
+    }
+
+    @Override
+    public byte getMajorOpcode() {
+        return MAJOR_OPCODE;
+    }
+
+    @Override
+    public byte getFirstErrorId() {
+        return Byte.MIN_VALUE + 3;
+    }
+
+    @Override
+    public byte getFirstEventId() {
+        return FIRST_EVENT_ID;
+    }
+
+    private void addDamage(Damage damage, Region region) {
+        switch (damage.level) {
+            case RAW_RECTANGLES:
+                sendNotify(damage, region);
+                break;
+            case DELTA_RECTANGLES:
+                deltaRegion.subtract(region, damage.region);
+                if (!deltaRegion.isEmpty()) {
+                    damage.region.union(damage.region, deltaRegion);
+                    sendNotify(damage, deltaRegion);
+                }
+                break;
+            case BOUNDING_BOX: {
+                int x = damage.region.getExtentX();
+                int y = damage.region.getExtentY();
+                int width = damage.region.getExtentWidth();
+                int height = damage.region.getExtentHeight();
+                damage.region.union(damage.region, region);
+                if (!damage.region.extentsEqual(x, y, width, height)) sendNotify(damage, damage.region);
+                break;
+            }
+            case NON_EMPTY: {
+                boolean wasEmpty = damage.region.isEmpty();
+                damage.region.union(damage.region, region);
+                if (wasEmpty && !damage.region.isEmpty()) sendNotify(damage, damage.region);
+                break;
+            }
+        }
+    }
+
+    private void sendNotify(Damage damage, Region region) {
+        Drawable drawable = damage.getDrawable();
+        int geometryX = damage.window != null ? damage.window.getRootX() : 0;
+        int geometryY = damage.window != null ? damage.window.getRootY() : 0;
+        byte level = (byte)damage.level.ordinal();
+
+        switch (damage.level) {
+            case RAW_RECTANGLES:
+            case DELTA_RECTANGLES:
+                int count = region.getRectCount();
+                int[] rects = region.getRects();
+                for (int i = 0, offset = 0; i < count; i++, offset += 4) {
+                    damage.client.sendEvent(new DamageNotify((byte)(i < count - 1 ? level | NOTIFY_MORE : level), drawable.id, damage.id, rects[offset], rects[offset + 1], rects[offset + 2] - rects[offset], rects[offset + 3] - rects[offset + 1], geometryX, geometryY, drawable.width, drawable.height));
+                }
+                break;
+            case BOUNDING_BOX:
+                damage.client.sendEvent(new DamageNotify(level, drawable.id, damage.id, region.getExtentX(), region.getExtentY(), region.getExtentWidth(), region.getExtentHeight(), geometryX, geometryY, drawable.width, drawable.height));
+                break;
+            case NON_EMPTY:
+                damage.client.sendEvent(new DamageNotify(level, drawable.id, damage.id, 0, 0, drawable.width, drawable.height, geometryX, geometryY, drawable.width, drawable.height));
+                break;
+        }
+    }
+
+    private void removeDamage(Damage damage) {
+        damages.remove(damage.id);
+        damage.listener.damages.remove(damage);
+        if (damage.listener.damages.isEmpty()) {
+            Drawable drawable = damage.getDrawable();
+            if (drawable != null && drawable.getOnDamageListener() == damage.listener) drawable.setOnDamageListener(null);
+        }
+    }
+
+    private static void queryVersion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        inputStream.skip(8);
+
+        try (XStreamLock lock = outputStream.lock()) {
+            outputStream.writeByte(RESPONSE_CODE_SUCCESS);
+            outputStream.writeByte((byte)0);
+            outputStream.writeShort(client.getSequenceNumber());
+            outputStream.writeInt(0);
+            outputStream.writeInt(1);
+            outputStream.writeInt(1);
+            outputStream.writePad(16);
+        }
+    }
+
+    private void create(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int damageId = inputStream.readInt();
+        int drawableId = inputStream.readInt();
+        byte level = inputStream.readByte();
+        inputStream.skip(3);
+
+        if (!client.isValidResourceId(damageId)) throw new BadIdChoice(damageId);
+
+        Drawable drawable = client.xServer.drawableManager.getDrawable(drawableId);
+        if (drawable == null) throw new BadDrawable(drawableId);
+        if (level < 0 || level >= REPORT_LEVELS.length) throw new BadValue(level);
+
+        synchronized (damages) {
+            if (damages.containsKey(damageId)) throw new BadIdChoice(damageId);
+
+            if (!resourceListenerAdded) {
+                client.xServer.windowManager.addOnResourceLifecycleListener(this);
+                client.xServer.pixmapManager.addOnResourceLifecycleListener(this);
+                resourceListenerAdded = true;
+            }
+
+            Damage damage = new Damage();
+            damage.id = damageId;
+            damage.client = client;
+            damage.window = client.xServer.windowManager.getWindow(drawableId);
+            damage.drawable = damage.window == null ? drawable : null;
+            damage.level = REPORT_LEVELS[level];
+
+            Drawable.OnDamageListener onDamageListener = drawable.getOnDamageListener();
+            if (onDamageListener instanceof DamageListener) {
+                damage.listener = (DamageListener)onDamageListener;
+            }
+            else {
+                damage.listener = new DamageListener();
+                drawable.setOnDamageListener(damage.listener);
+            }
+
+            damage.listener.damages.add(damage);
+            damages.put(damageId, damage);
+
+            if (damage.window != null && damage.window.getMapState() == Window.MapState.VIEWABLE) {
+                damagedRegion.setRect(0, 0, drawable.width, drawable.height);
+                addDamage(damage, damagedRegion);
+            }
+        }
+    }
+
+    private void destroy(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int damageId = inputStream.readInt();
+
+        synchronized (damages) {
+            Damage damage = damages.get(damageId);
+            if (damage == null) throw new BadDamage(damageId);
+            removeDamage(damage);
+        }
+    }
+
+    private void subtract(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int damageId = inputStream.readInt();
+        int repairRegionId = inputStream.readInt();
+        int partsRegionId = inputStream.readInt();
+
+        Region repairRegion = repairRegionId != 0 ? xFixesExtension.cloneRegion(repairRegionId) : null;
+        if (partsRegionId != 0 && !xFixesExtension.hasRegion(partsRegionId)) throw new BadRegion(partsRegionId);
+        Region partsRegion = partsRegionId != 0 ? new Region() : null;
+
+        synchronized (damages) {
+            Damage damage = damages.get(damageId);
+            if (damage == null) throw new BadDamage(damageId);
+
+            if (repairRegion != null) {
+                if (partsRegion != null) partsRegion.intersect(damage.region, repairRegion);
+                damage.region.subtract(damage.region, repairRegion);
+                if (!damage.region.isEmpty()) sendNotify(damage, damage.region);
+            }
+            else {
+                if (partsRegion != null) partsRegion.set(damage.region);
+                damage.region.setEmpty();
+            }
+        }
+
+        if (partsRegion != null) xFixesExtension.replaceRegion(partsRegionId, partsRegion);
+    }
+
+    private void add(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int drawableId = inputStream.readInt();
+        int regionId = inputStream.readInt();
+
+        Drawable drawable = client.xServer.drawableManager.getDrawable(drawableId);
+        if (drawable == null) throw new BadDrawable(drawableId);
+        Region region = xFixesExtension.cloneRegion(regionId);
+
+        synchronized (damages) {
+            Drawable.OnDamageListener onDamageListener = drawable.getOnDamageListener();
+            if (!(onDamageListener instanceof DamageListener)) return;
+
+            damagedRegion.setRect(0, 0, drawable.width, drawable.height);
+            damagedRegion.intersect(damagedRegion, region);
+            if (damagedRegion.isEmpty()) return;
+
+            ArrayList<Damage> damages = ((DamageListener)onDamageListener).damages;
+            for (int i = 0; i < damages.size(); i++) addDamage(damages.get(i), damagedRegion);
+        }
+    }
+
+    @Override
+    public void onFreeResource(XResource resource) {
+        Drawable drawable = null;
+        if (resource instanceof Window) {
+            drawable = ((Window)resource).getContent();
+        }
+        else if (resource instanceof Pixmap) drawable = ((Pixmap)resource).drawable;
+        if (drawable == null) return;
+
+        synchronized (damages) {
+            Drawable.OnDamageListener onDamageListener = drawable.getOnDamageListener();
+            if (!(onDamageListener instanceof DamageListener)) return;
+
+            ArrayList<Damage> damages = ((DamageListener)onDamageListener).damages;
+            while (!damages.isEmpty()) removeDamage(damages.get(damages.size() - 1));
+        }
+    }
+
+    @Override
+    public void freeResources(XClient client) {
+        synchronized (damages) {
+            ArrayList<Damage> clientDamages = new ArrayList<>();
+            for (int i = 0; i < damages.capacity(); i++) {
+                Damage damage = damages.valueAt(i);
+                if (damage != null && damage.client == client) clientDamages.add(damage);
+            }
+            for (Damage damage : clientDamages) removeDamage(damage);
+        }
+    }
+
+    @Override
+    public void handleRequest(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        if (xFixesExtension == null) xFixesExtension = client.xServer.getExtension(XFixesExtension.MAJOR_OPCODE);
+
+        if (!requests.dispatch(client, client.getRequestData(), inputStream, outputStream)) throw new BadImplementation();
+    }
+}
@@ -3,6 +3,7 @@ package com.winlator.xserver.extensions;
 import com.winlator.xconnector.XInputStream;
 import com.winlator.xconnector.XOutputStream;
 import com.winlator.xserver.XClient;
+import com.winlator.xserver.XServer;
 import com.winlator.xserver.errors.XRequestError;
 
 import java.io.IOException;
@@ -17,4 +18,8 @@ public interface Extension {
     byte getFirstEventId();
 
     void handleRequest(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError;
+
+    default void attach(XServer xServer) {}
+
+    default void freeResources(XClient client) {}
 }
@@ -7,26 +7,49 @@ import com.winlator.xconnector.XOutputStream;
 import com.winlator.xconnector.XStreamLock;
 import com.winlator.xserver.Drawable;
 import com.winlator.xserver.GraphicsContext;
+import com.winlator.xserver.Pixmap;
+import com.winlator.xserver.RequestDispatchTable;
+import com.winlator.xserver.SHMSegmentManager;
+import com.winlator.xserver.Visual;
 import com.winlator.xserver.XClient;
-import com.winlator.xserver.XLock;
 import com.winlator.xserver.XServer;
+import com.winlator.xserver.errors.BadAccess;
 import com.winlator.xserver.errors.BadDrawable;
 import com.winlator.xserver.errors.BadGraphicsContext;
+import com.winlator.xserver.errors.BadIdChoice;
 import com.winlator.xserver.errors.BadImplementation;
+import com.winlator.xserver.errors.BadMatch;
 import com.winlator.xserver.errors.BadSHMSegment;
+import com.winlator.xserver.errors.BadValue;
 import com.winlator.xserver.errors.XRequestError;
+import com.winlator.xserver.events.ShmCompletion;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class MITSHMExtension implements Extension {
     public static final byte MAJOR_OPCODE = -101;
+    public static final byte FIRST_EVENT_ID = 64;
+    private static final byte Z_PIXMAP = 2;
+    private final RequestDispatchTable requests = new RequestDispatchTable(6);
 
     private static abstract class ClientOpcodes {
         private static final byte QUERY_VERSION = 0;
         private static final byte ATTACH = 1;
         private static final byte DETACH = 2;
         private static final byte PUT_IMAGE = 3;
+        private static final byte GET_IMAGE = 4;
+        private static final byte CREATE_PIXMAP = 5;
+    }
+
+    public MITSHMExtension() {
+        requests.put(ClientOpcodes.QUERY_VERSION, MITSHMExtension::queryVersion);
+        requests.put(ClientOpcodes.ATTACH, 0, XServer.Lockable.SHMSEGMENT_MANAGER.flag(), MITSHMExtension::attach);
+        requests.put(ClientOpcodes.DETACH, 0, XServer.Lockable.SHMSEGMENT_MANAGER.flag(), MITSHMExtension::detach);
+        requests.put(ClientOpcodes.PUT_IMAGE, XServer.Lockable.SHMSEGMENT_MANAGER.flag() | XServer.Lockable.GRAPHIC_CONTEXT_MANAGER.flag(), XServer.Lockable.DRAWABLE_MANAGER.flag(), MITSHMExtension::putImage);
+        requests.put(ClientOpcodes.GET_IMAGE, XServer.Lockable.SHMSEGMENT_MANAGER.flag() | XServer.Lockable.PIXMAP_MANAGER.flag() | XServer.Lockable.DRAWABLE_MANAGER.flag(), 0, MITSHMExtension::getImage);
+        requests.put(ClientOpcodes.CREATE_PIXMAP, XServer.Lockable.SHMSEGMENT_MANAGER.flag(), XServer.Lockable.PIXMAP_MANAGER.flag() | XServer.Lockable.DRAWABLE_MANAGER.flag(), MITSHMExtension::createPixmap);
     }
 
     @Override
@@ -46,28 +69,40 @@ public class MITSHMExtension implements Extension {
 
     @Override
     public byte getFirstEventId() {
-        return 64;
+        return FIRST_EVENT_ID;
+    }
+
+    private static ByteBuffer getSegmentData(XClient client, int shmseg, int offset, long length) throws XRequestError {
+        ByteBuffer data = client.xServer.getSHMSegmentManager().getData(shmseg);
+        if (data == null) throw new BadSHMSegment(shmseg);
+        if (offset < 0 || offset + length > data.capacity()) throw new BadValue(offset);
+
+        ByteBuffer view = data.duplicate();
+        view.position(offset);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
     }
 
     private static void queryVersion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
         try (XStreamLock lock = outputStream.lock()) {
             outputStream.writeByte(RESPONSE_CODE_SUCCESS);
-            outputStream.writeByte((byte)0);
+            outputStream.writeByte((byte)1);
             outputStream.writeShort(client.getSequenceNumber());
             outputStream.writeInt(0);
             outputStream.writeShort((short)1);
             outputStream.writeShort((short)1);
             outputStream.writeShort((short)0);
             outputStream.writeShort((short)0);
-            outputStream.writeByte((byte)0);
+            outputStream.writeByte(Z_PIXMAP);
+            outputStream.writePad(15);
         }
     }
 
     private static void attach(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
         int xid = inputStream.readInt();
         int shmid = inputStream.readInt();
-        inputStream.skip(4);
-        client.xServer.getSHMSegmentManager().attach(xid, shmid);
+        boolean readOnly = inputStream.readByte() != 0;
+        inputStream.skip(3);
+        client.xServer.getSHMSegmentManager().attach(xid, shmid, readOnly);
     }
 
     private static void detach(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
@@ -86,50 +121,100 @@ public class MITSHMExtension implements Extension {
         short dstX = inputStream.readShort();
         short dstY = inputStream.readShort();
         byte depth = inputStream.readByte();
-        inputStream.skip(3);
+        boolean sendEvent = inputStream.readByte() != 0;
+        inputStream.skip(2);
         int shmseg = inputStream.readInt();
-        inputStream.skip(4);
+        int offset = inputStream.readInt();
 
-        Drawable drawable = client.xServer.drawableManager.getDrawable(drawableId);
+        Drawable drawable = client.xServer.drawableManager.getDrawableForWrite(drawableId);
         if (drawable == null) throw new BadDrawable(drawableId);
 
         GraphicsContext graphicsContext = client.xServer.graphicsContextManager.getGraphicsContext(gcId);
         if (graphicsContext == null) throw new BadGraphicsContext(gcId);
 
-        ByteBuffer data = client.xServer.getSHMSegmentManager().getData(shmseg);
-        if (data == null) throw new BadSHMSegment(shmseg);
+        long length = depth == 1 ? (long)((totalWidth + 31) / 32) * 4 * totalHeight : (long)totalWidth * totalHeight * 4;
+        ByteBuffer data = getSegmentData(client, shmseg, offset, length);
 
         if (graphicsContext.getFunction() != GraphicsContext.Function.COPY) {
             throw new UnsupportedOperationException("GC Function other than COPY is not supported.");
         }
 
         drawable.drawImage(srcX, srcY, dstX, dstY, srcWidth, srcHeight, depth, data, totalWidth, totalHeight);
+        if (sendEvent) client.sendEvent(new ShmCompletion(drawableId, ClientOpcodes.PUT_IMAGE, shmseg, offset));
+    }
+
+    private static void getImage(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int drawableId = inputStream.readInt();
+        short x = inputStream.readShort();
+        short y = inputStream.readShort();
+        short width = inputStream.readShort();
+        short height = inputStream.readShort();
+        inputStream.skip(4);
+        byte format = inputStream.readByte();
+        inputStream.skip(3);
+        int shmseg = inputStream.readInt();
+        int offset = inputStream.readInt();
+
+        if (format != Z_PIXMAP) throw new BadValue(format);
+
+        Drawable drawable = client.xServer.drawableManager.getDrawableForRead(drawableId);
+        if (drawable == null) throw new BadDrawable(drawableId);
+        if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > drawable.width || y + height > drawable.height) throw new BadMatch();
+
+        int length = width * height * 4;
+        ByteBuffer data = getSegmentData(client, shmseg, offset, length);
+        if (client.xServer.getSHMSegmentManager().isReadOnly(shmseg)) throw new BadAccess();
+
+        drawable.getImage(x, y, width, height, data);
+        int visualId = client.xServer.pixmapManager.getPixmap(drawableId) == null ? drawable.visual.id : 0;
+
+        try (XStreamLock lock = outputStream.lock()) {
+            outputStream.writeByte(RESPONSE_CODE_SUCCESS);
+            outputStream.writeByte(drawable.visual.depth);
+            outputStream.writeShort(client.getSequenceNumber());
+            outputStream.writeInt(0);
+            outputStream.writeInt(visualId);
+            outputStream.writeInt(length);
+            outputStream.writePad(16);
+        }
+    }
+
+    private static void createPixmap(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int pixmapId = inputStream.readInt();
+        int drawableId = inputStream.readInt();
+        short width = inputStream.readShort();
+        short height = inputStream.readShort();
+        byte depth = inputStream.readByte();
+        inputStream.skip(3);
+        int shmseg = inputStream.readInt();
+        int offset = inputStream.readInt();
+
+        if (!client.isValidResourceId(pixmapId)) throw new BadIdChoice(pixmapId);
+
+        Drawable drawable = client.xServer.drawableManager.getDrawable(drawableId);
+        if (drawable == null) throw new BadDrawable(drawableId);
+        if (width <= 0) throw new BadValue(width);
+        if (height <= 0) throw new BadValue(height);
+
+        Visual visual = client.xServer.pixmapManager.getVisualForDepth(depth);
+        if (visual == null || depth == 1) throw new BadValue(depth);
+
+        final ByteBuffer data = getSegmentData(client, shmseg, offset, (long)width * height * 4);
+        final SHMSegmentManager shmSegmentManager = client.xServer.getSHMSegmentManager();
+
+        Drawable backingStore = client.xServer.drawableManager.createDrawable(pixmapId, width, height, visual, data);
+        if (backingStore == null) throw new BadIdChoice(pixmapId);
+        Pixmap pixmap = client.xServer.pixmapManager.createPixmap(backingStore);
+        if (pixmap == null) throw new BadIdChoice(pixmapId);
+
+        ByteBuffer segmentData = shmSegmentManager.getData(shmseg);
+        shmSegmentManager.acquire(segmentData);
+        backingStore.setOnDestroyListener((destroyedDrawable) -> shmSegmentManager.release(segmentData));
+        client.registerAsOwnerOfResource(pixmap);
     }
 
     @Override
     public void handleRequest(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
-        int opcode = client.getRequestData();
-        switch (opcode) {
-            case ClientOpcodes.QUERY_VERSION :
-                queryVersion(client, inputStream, outputStream);
-                break;
-            case ClientOpcodes.ATTACH :
-                try (XLock lock = client.xServer.lock(XServer.Lockable.SHMSEGMENT_MANAGER)) {
-                    attach(client, inputStream, outputStream);
-                }
-                break;
-            case ClientOpcodes.DETACH :
-                try (XLock lock = client.xServer.lock(XServer.Lockable.SHMSEGMENT_MANAGER)) {
-                    detach(client, inputStream, outputStream);
-                }
-                break;
-            case ClientOpcodes.PUT_IMAGE :
-                try (XLock lock = client.xServer.lock(XServer.Lockable.SHMSEGMENT_MANAGER, XServer.Lockable.DRAWABLE_MANAGER, XServer.Lockable.GRAPHIC_CONTEXT_MANAGER)) {
-                    putImage(client, inputStream, outputStream);
-                }
-                break;
-            default:
-                throw new BadImplementation();
-        }
+        if (!requests.dispatch(client, client.getRequestData(), inputStream, outputStream)) throw new BadImplementation();
     }
 }
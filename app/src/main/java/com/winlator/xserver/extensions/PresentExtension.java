@@ -4,17 +4,22 @@ import static com.winlator.xserver.XClientRequestHandler.RESPONSE_CODE_SUCCESS;
 
 import android.util.SparseArray;
 
+import com.winlator.core.Callback;
 import com.winlator.renderer.GPUImage;
 import com.winlator.renderer.Texture;
 import com.winlator.xconnector.XInputStream;
 import com.winlator.xconnector.XOutputStream;
 import com.winlator.xconnector.XStreamLock;
 import com.winlator.xserver.Bitmask;
+import com.winlator.xserver.DisplayClock;
 import com.winlator.xserver.Drawable;
 import com.winlator.xserver.Pixmap;
+import com.winlator.xserver.RequestDispatchTable;
 import com.winlator.xserver.Window;
 import com.winlator.xserver.XClient;
 import com.winlator.xserver.XLock;
+import com.winlator.xserver.XResource;
+import com.winlator.xserver.XResourceManager;
 import com.winlator.xserver.XServer;
 import com.winlator.xserver.errors.BadImplementation;
 import com.winlator.xserver.errors.BadMatch;
@@ -25,21 +30,45 @@ import com.winlator.xserver.events.PresentCompleteNotify;
 import com.winlator.xserver.events.PresentIdleNotify;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 
-public class PresentExtension implements Extension {
+public class PresentExtension implements Extension, DisplayClock.OnFrameListener, XResourceManager.OnResourceLifecycleListener {
     public static final byte MAJOR_OPCODE = -103;
-    private static final int FAKE_INTERVAL = 1000000 / 60;
+    private static final int OPTION_ASYNC = 1;
+    private static final int OPTION_COPY = 2;
     public enum Kind {PIXMAP, MSC_NOTIFY}
     public enum Mode {COPY, FLIP, SKIP}
+    private final RequestDispatchTable requests = new RequestDispatchTable(4);
     private final SparseArray<Event> events = new SparseArray<>();
+    private final ArrayList<Presentation> presentations = new ArrayList<>();
+    private final ArrayList<Presentation> flips = new ArrayList<>();
+    private final Callback<Drawable> onWriteFlippedContentListener = this::onWriteFlippedContent;
+    private XServer xServer;
     private SyncExtension syncExtension;
 
     private static abstract class ClientOpcodes {
         private static final byte QUERY_VERSION = 0;
         private static final byte PRESENT_PIXMAP = 1;
+        private static final byte NOTIFY_MSC = 2;
         private static final byte SELECT_INPUT = 3;
     }
 
+    private static class Presentation {
+        private Kind kind;
+        private Window window;
+        private Pixmap pixmap;
+        private int serial;
+        private short xOff;
+        private short yOff;
+        private int idleFence;
+        private int options;
+        private long targetMsc;
+        private Mode mode;
+        private long displayMsc = -1;
+        private Presentation replacedFlip;
+    }
+
     private static class Event {
         private Window window;
         private XClient client;
@@ -47,6 +76,13 @@ public class PresentExtension implements Extension {
         private Bitmask mask;
     }
 
+    public PresentExtension() {
+        requests.put(ClientOpcodes.QUERY_VERSION, PresentExtension::queryVersion);
+        requests.put(ClientOpcodes.PRESENT_PIXMAP, XServer.Lockable.WINDOW_MANAGER.flag() | XServer.Lockable.PIXMAP_MANAGER.flag(), 0, this::presentPixmap);
+        requests.put(ClientOpcodes.NOTIFY_MSC, XServer.Lockable.WINDOW_MANAGER.flag(), 0, this::notifyMSC);
+        requests.put(ClientOpcodes.SELECT_INPUT, 0, XServer.Lockable.WINDOW_MANAGER.flag(), this::selectInput);
+    }
+
     @Override
     public String getName() {
         return "Present";
@@ -67,6 +103,15 @@ public class PresentExtension implements Extension {
         return 0;
     }
 
+    @Override
+    public void attach(XServer xServer) {
+        this.xServer = xServer;
+        syncExtension = xServer.getExtension(SyncExtension.MAJOR_OPCODE);
+        xServer.displayClock.setOnFrameListener(this);
+        xServer.windowManager.addOnResourceLifecycleListener(this);
+        xServer.pixmapManager.addOnResourceLifecycleListener(this);
+    }
+
     private void sendIdleNotify(Window window, Pixmap pixmap, int serial, int idleFence) {
         if (idleFence != 0) syncExtension.setTriggered(idleFence);
 
@@ -105,6 +150,25 @@ public class PresentExtension implements Extension {
         }
     }
 
+    private static long adjustTargetMsc(long crtcMsc, long targetMsc, long divisor, long remainder, int options) {
+        if (crtcMsc < targetMsc) return targetMsc;
+        boolean async = (options & OPTION_ASYNC) != 0;
+
+        if (divisor != 0) {
+            targetMsc = crtcMsc - crtcMsc % divisor + remainder;
+            if (async ? crtcMsc > targetMsc : crtcMsc >= targetMsc) targetMsc += divisor;
+            return targetMsc;
+        }
+        else return async ? crtcMsc : crtcMsc + 1;
+    }
+
+    private void queuePresentation(Presentation presentation) {
+        synchronized (presentations) {
+            presentations.add(presentation);
+        }
+        xServer.displayClock.requestFrame();
+    }
+
     private void presentPixmap(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
         int windowId = inputStream.readInt();
         int pixmapId = inputStream.readInt();
@@ -114,6 +178,11 @@ public class PresentExtension implements Extension {
         short yOff = inputStream.readShort();
         inputStream.skip(8);
         int idleFence = inputStream.readInt();
+        int options = inputStream.readInt();
+        inputStream.skip(4);
+        long targetMsc = inputStream.readLong();
+        long divisor = inputStream.readLong();
+        long remainder = inputStream.readLong();
         inputStream.skip(client.getRemainingRequestLength());
 
         final Window window = client.xServer.windowManager.getWindow(windowId);
@@ -125,13 +194,236 @@ public class PresentExtension implements Extension {
         Drawable content = window.getContent();
         if (content.visual.depth != pixmap.drawable.visual.depth) throw new BadMatch();
 
-        long ust = System.nanoTime() / 1000;
-        long msc = ust / FAKE_INTERVAL;
+        Presentation presentation = new Presentation();
+        presentation.kind = Kind.PIXMAP;
+        presentation.window = window;
+        presentation.pixmap = pixmap;
+        presentation.serial = serial;
+        presentation.xOff = xOff;
+        presentation.yOff = yOff;
+        presentation.idleFence = idleFence;
+        presentation.options = options;
+        presentation.targetMsc = adjustTargetMsc(xServer.displayClock.getMsc(), targetMsc, divisor, remainder, options);
+        queuePresentation(presentation);
+    }
+
+    private void notifyMSC(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int windowId = inputStream.readInt();
+        int serial = inputStream.readInt();
+        inputStream.skip(4);
+        long targetMsc = inputStream.readLong();
+        long divisor = inputStream.readLong();
+        long remainder = inputStream.readLong();
+
+        final Window window = client.xServer.windowManager.getWindow(windowId);
+        if (window == null) throw new BadWindow(windowId);
+
+        DisplayClock displayClock = xServer.displayClock;
+        long crtcMsc = displayClock.getMsc();
+        targetMsc = adjustTargetMsc(crtcMsc, targetMsc, divisor, remainder, divisor == 0 ? OPTION_ASYNC : 0);
+
+        if (targetMsc == crtcMsc) {
+            sendCompleteNotify(window, serial, Kind.MSC_NOTIFY, Mode.COPY, displayClock.getUst(), crtcMsc);
+            return;
+        }
+
+        Presentation presentation = new Presentation();
+        presentation.kind = Kind.MSC_NOTIFY;
+        presentation.window = window;
+        presentation.serial = serial;
+        presentation.targetMsc = targetMsc;
+        queuePresentation(presentation);
+    }
+
+    private static boolean isPendingPixmap(Presentation presentation, long msc) {
+        return presentation.kind == Kind.PIXMAP && presentation.displayMsc == -1 && presentation.targetMsc <= msc;
+    }
+
+    private boolean hasPendingWork(long msc) {
+        synchronized (presentations) {
+            if (!flips.isEmpty()) return true;
+            for (Presentation presentation : presentations) {
+                if (isPendingPixmap(presentation, msc)) return true;
+            }
+            return false;
+        }
+    }
+
+    private boolean isSuperseded(int index, long msc) {
+        Window window = presentations.get(index).window;
+        for (int i = index + 1; i < presentations.size(); i++) {
+            Presentation presentation = presentations.get(i);
+            if (presentation.window == window && isPendingPixmap(presentation, msc)) return true;
+        }
+        return false;
+    }
+
+    private int indexOfFlip(Window window) {
+        for (int i = 0; i < flips.size(); i++) {
+            if (flips.get(i).window == window) return i;
+        }
+        return -1;
+    }
+
+    private static boolean canFlip(Presentation presentation) {
+        Drawable content = presentation.window.getContent();
+        Drawable drawable = presentation.pixmap.drawable;
+        return (presentation.options & OPTION_COPY) == 0 && presentation.xOff == 0 && presentation.yOff == 0 &&
+               drawable.width == content.width && drawable.height == content.height && drawable.getTexture() instanceof GPUImage;
+    }
+
+    private void flipWindow(Presentation presentation) {
+        Window window = presentation.window;
+        Drawable content = window.getContent();
+        Drawable drawable = presentation.pixmap.drawable;
+
+        int index = indexOfFlip(window);
+        if (index != -1) {
+            presentation.replacedFlip = flips.set(index, presentation);
+        }
+        else flips.add(presentation);
+
+        content.getDirtyRegion().clear();
+        setFlipContent(content, drawable);
+
+        Drawable.OnDamageListener onDamageListener = content.getOnDamageListener();
+        if (onDamageListener != null) onDamageListener.onDamage(content, 0, 0, content.width, content.height);
+    }
+
+    private void setFlipContent(Drawable content, Drawable flipContent) {
+        content.setOnWriteListener(flipContent != null ? onWriteFlippedContentListener : null);
+        content.setFlipContent(flipContent);
+    }
+
+    private void onWriteFlippedContent(Drawable content) {
+        synchronized (presentations) {
+            for (int i = flips.size() - 1; i >= 0; i--) {
+                if (flips.get(i).window.getContent() == content) unflipWindow(i, true);
+            }
+        }
+    }
+
+    private void unflipWindow(int index, boolean restoreContent) {
+        Presentation flip = flips.remove(index);
+        Window window = flip.window;
+        Drawable content = window.getContent();
+        Drawable drawable = flip.pixmap.drawable;
+
+        if (restoreContent && drawable.width == content.width && drawable.height == content.height) {
+            synchronized (content.renderLock) {
+                content.copyArea((short)0, (short)0, (short)0, (short)0, drawable.width, drawable.height, drawable);
+            }
+        }
+        else content.getDirtyRegion().add(0, 0, content.width, content.height);
+
+        setFlipContent(content, null);
+        sendIdleNotify(window, flip.pixmap, flip.serial, flip.idleFence);
+    }
+
+    private void validateFlips() {
+        for (int i = flips.size() - 1; i >= 0; i--) {
+            Presentation flip = flips.get(i);
+            Window window = flip.window;
+            Drawable content = window.getContent();
+            Drawable drawable = flip.pixmap.drawable;
+
+            if (xServer.windowManager.getWindow(window.id) != window) {
+                flips.remove(i);
+                setFlipContent(content, null);
+            }
+            else if (drawable.width != content.width || drawable.height != content.height) {
+                unflipWindow(i, false);
+            }
+            else if (!content.getDirtyRegion().isEmpty()) {
+                unflipWindow(i, true);
+            }
+        }
+    }
+
+    @Override
+    public void onPrepareFrame(long msc) {
+        if (!hasPendingWork(msc)) return;
+
+        try (XLock lock = xServer.lock(XServer.Lockable.WINDOW_MANAGER.flag() | XServer.Lockable.PIXMAP_MANAGER.flag(), XServer.Lockable.DRAWABLE_MANAGER.flag())) {
+            synchronized (presentations) {
+                validateFlips();
 
-        synchronized (content.renderLock) {
-            content.copyArea((short)0, (short)0, xOff, yOff, pixmap.drawable.width, pixmap.drawable.height, pixmap.drawable);
-            sendIdleNotify(window, pixmap, serial, idleFence);
-            sendCompleteNotify(window, serial, Kind.PIXMAP, Mode.COPY, ust, msc);
+                for (int i = 0; i < presentations.size(); i++) {
+                    Presentation presentation = presentations.get(i);
+                    if (!isPendingPixmap(presentation, msc)) continue;
+
+                    Window window = presentation.window;
+                    if (xServer.windowManager.getWindow(window.id) != window) {
+                        presentations.remove(i--);
+                        continue;
+                    }
+
+                    Pixmap pixmap = presentation.pixmap;
+                    if (xServer.pixmapManager.getPixmap(pixmap.id) != pixmap || isSuperseded(i, msc)) {
+                        presentation.mode = Mode.SKIP;
+                    }
+                    else if (canFlip(presentation)) {
+                        flipWindow(presentation);
+                        presentation.mode = Mode.FLIP;
+                    }
+                    else {
+                        int index = indexOfFlip(window);
+                        if (index != -1) unflipWindow(index, true);
+
+                        Drawable content = window.getContent();
+                        synchronized (content.renderLock) {
+                            content.copyArea((short)0, (short)0, presentation.xOff, presentation.yOff, pixmap.drawable.width, pixmap.drawable.height, pixmap.drawable);
+                        }
+                        presentation.mode = Mode.COPY;
+                    }
+
+                    presentation.displayMsc = msc;
+                    if (presentation.mode != Mode.FLIP) sendIdleNotify(window, pixmap, presentation.serial, presentation.idleFence);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onFrameDisplayed(long ust, long msc) {
+        boolean pending = false;
+        synchronized (presentations) {
+            Iterator<Presentation> iterator = presentations.iterator();
+            while (iterator.hasNext()) {
+                Presentation presentation = iterator.next();
+                if (presentation.kind == Kind.PIXMAP && presentation.displayMsc != -1 && presentation.displayMsc <= msc) {
+                    Presentation replacedFlip = presentation.replacedFlip;
+                    if (replacedFlip != null) {
+                        sendIdleNotify(replacedFlip.window, replacedFlip.pixmap, replacedFlip.serial, replacedFlip.idleFence);
+                        presentation.replacedFlip = null;
+                    }
+                    sendCompleteNotify(presentation.window, presentation.serial, Kind.PIXMAP, presentation.mode, ust, msc);
+                    iterator.remove();
+                }
+                else if (presentation.kind == Kind.MSC_NOTIFY && presentation.targetMsc <= msc) {
+                    sendCompleteNotify(presentation.window, presentation.serial, Kind.MSC_NOTIFY, Mode.COPY, ust, msc);
+                    iterator.remove();
+                }
+                else pending = true;
+            }
+        }
+
+        if (pending) xServer.displayClock.requestFrame();
+    }
+
+    @Override
+    public void onFreeResource(XResource resource) {
+        synchronized (presentations) {
+            for (int i = flips.size() - 1; i >= 0; i--) {
+                Presentation flip = flips.get(i);
+                if (flip.pixmap == resource) {
+                    unflipWindow(i, true);
+                }
+                else if (flip.window == resource) {
+                    flips.remove(i);
+                    setFlipContent(flip.window.getContent(), null);
+                }
+            }
         }
     }
 
@@ -173,25 +465,6 @@ public class PresentExtension implements Extension {
 
     @Override
     public void handleRequest(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
-        int opcode = client.getRequestData();
-        if (syncExtension == null) syncExtension = client.xServer.getExtension(SyncExtension.MAJOR_OPCODE);
-
-        switch (opcode) {
-            case ClientOpcodes.QUERY_VERSION :
-                queryVersion(client, inputStream, outputStream);
-                break;
-            case ClientOpcodes.PRESENT_PIXMAP:
-                try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.PIXMAP_MANAGER)) {
-                    presentPixmap(client, inputStream, outputStream);
-                }
-                break;
-            case ClientOpcodes.SELECT_INPUT:
-                try (XLock lock = client.xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {
-                    selectInput(client, inputStream, outputStream);
-                }
-                break;
-            default:
-                throw new BadImplementation();
-        }
+        if (!requests.dispatch(client, client.getRequestData(), inputStream, outputStream)) throw new BadImplementation();
     }
 }
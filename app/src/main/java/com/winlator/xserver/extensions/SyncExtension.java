@@ -4,6 +4,7 @@ import android.util.SparseBooleanArray;
 
 import com.winlator.xconnector.XInputStream;
 import com.winlator.xconnector.XOutputStream;
+import com.winlator.xserver.RequestDispatchTable;
 import com.winlator.xserver.XClient;
 import com.winlator.xserver.errors.BadFence;
 import com.winlator.xserver.errors.BadIdChoice;
@@ -15,6 +16,7 @@ import java.io.IOException;
 
 public class SyncExtension implements Extension {
     public static final byte MAJOR_OPCODE = -104;
+    private final RequestDispatchTable requests = new RequestDispatchTable(20);
     private final SparseBooleanArray fences = new SparseBooleanArray();
 
     private static abstract class ClientOpcodes {
@@ -25,6 +27,14 @@ public class SyncExtension implements Extension {
         private static final byte AWAIT_FENCE = 19;
     }
 
+    public SyncExtension() {
+        requests.put(ClientOpcodes.CREATE_FENCE, this::createFence);
+        requests.put(ClientOpcodes.TRIGGER_FENCE, this::triggerFence);
+        requests.put(ClientOpcodes.RESET_FENCE, this::resetFence);
+        requests.put(ClientOpcodes.DESTROY_FENCE, this::destroyFence);
+        requests.put(ClientOpcodes.AWAIT_FENCE, this::awaitFence);
+    }
+
     @Override
     public String getName() {
         return "SYNC";
@@ -104,6 +114,7 @@ public class SyncExtension implements Extension {
                 length -= 4;
             }
 
+            outputStream.flush();
             boolean anyTriggered = false;
             do {
                 for (int id : ids) {
@@ -118,25 +129,6 @@ public class SyncExtension implements Extension {
 
     @Override
     public void handleRequest(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
-        int opcode = client.getRequestData();
-        switch (opcode) {
-            case ClientOpcodes.CREATE_FENCE :
-                createFence(client, inputStream, outputStream);
-                break;
-            case ClientOpcodes.TRIGGER_FENCE:
-                triggerFence(client, inputStream, outputStream);
-                break;
-            case ClientOpcodes.RESET_FENCE:
-                resetFence(client, inputStream, outputStream);
-                break;
-            case ClientOpcodes.DESTROY_FENCE:
-                destroyFence(client, inputStream, outputStream);
-                break;
-            case ClientOpcodes.AWAIT_FENCE:
-                awaitFence(client, inputStream, outputStream);
-                break;
-            default:
-                throw new BadImplementation();
-        }
+        if (!requests.dispatch(client, client.getRequestData(), inputStream, outputStream)) throw new BadImplementation();
     }
 }
@@ -0,0 +1,474 @@
+package com.winlator.xserver.extensions;
+
+import static com.winlator.xserver.XClientRequestHandler.RESPONSE_CODE_SUCCESS;
+
+import com.winlator.xconnector.XInputStream;
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xconnector.XStreamLock;
+import com.winlator.xserver.Atom;
+import com.winlator.xserver.Bitmask;
+import com.winlator.xserver.Cursor;
+import com.winlator.xserver.IntObjectMap;
+import com.winlator.xserver.Region;
+import com.winlator.xserver.RequestDispatchTable;
+import com.winlator.xserver.SelectionManager;
+import com.winlator.xserver.Window;
+import com.winlator.xserver.WindowAttributes;
+import com.winlator.xserver.WindowManager;
+import com.winlator.xserver.XClient;
+import com.winlator.xserver.XResource;
+import com.winlator.xserver.XResourceManager;
+import com.winlator.xserver.XServer;
+import com.winlator.xserver.errors.BadAtom;
+import com.winlator.xserver.errors.BadIdChoice;
+import com.winlator.xserver.errors.BadImplementation;
+import com.winlator.xserver.errors.BadLength;
+import com.winlator.xserver.errors.BadRegion;
+import com.winlator.xserver.errors.BadValue;
+import com.winlator.xserver.errors.BadWindow;
+import com.winlator.xserver.errors.XRequestError;
+import com.winlator.xserver.events.XFixesCursorNotify;
+import com.winlator.xserver.events.XFixesSelectionNotify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+public class XFixesExtension implements Extension, SelectionManager.OnSelectionChangeListener, WindowManager.OnWindowModificationListener, XResourceManager.OnResourceLifecycleListener {
+    public static final byte MAJOR_OPCODE = -106;
+    public static final byte FIRST_EVENT_ID = 66;
+    private static final int SET_SELECTION_OWNER_NOTIFY_MASK = 1<<0;
+    private static final int SELECTION_WINDOW_DESTROY_NOTIFY_MASK = 1<<1;
+    private static final int SELECTION_CLIENT_CLOSE_NOTIFY_MASK = 1<<2;
+    private static final int DISPLAY_CURSOR_NOTIFY_MASK = 1<<0;
+    private final RequestDispatchTable requests = new RequestDispatchTable(20);
+    private final IntObjectMap<Region> regions = new IntObjectMap<>();
+    private final ArrayList<SelectionInput> selectionInputs = new ArrayList<>();
+    private final ArrayList<CursorInput> cursorInputs = new ArrayList<>();
+    private XServer xServer;
+    private int displayCursorSerial = 0;
+
+    private static class SelectionInput {
+        private XClient client;
+        private Window window;
+        private int selection;
+        private int mask;
+    }
+
+    private static class CursorInput {
+        private XClient client;
+        private Window window;
+    }
+
+    private static abstract class ClientOpcodes {
+        private static final byte QUERY_VERSION = 0;
+        private static final byte CHANGE_SAVE_SET = 1;
+        private static final byte SELECT_SELECTION_INPUT = 2;
+        private static final byte SELECT_CURSOR_INPUT = 3;
+        private static final byte CREATE_REGION = 5;
+        private static final byte CREATE_REGION_FROM_WINDOW = 7;
+        private static final byte DESTROY_REGION = 10;
+        private static final byte SET_REGION = 11;
+        private static final byte COPY_REGION = 12;
+        private static final byte UNION_REGION = 13;
+        private static final byte INTERSECT_REGION = 14;
+        private static final byte SUBTRACT_REGION = 15;
+        private static final byte INVERT_REGION = 16;
+        private static final byte TRANSLATE_REGION = 17;
+        private static final byte REGION_EXTENTS = 18;
+        private static final byte FETCH_REGION = 19;
+    }
+
+    public XFixesExtension() {
+        requests.put(ClientOpcodes.QUERY_VERSION, XFixesExtension::queryVersion);
+        requests.put(ClientOpcodes.CHANGE_SAVE_SET, XFixesExtension::ignoreRequest);
+        requests.put(ClientOpcodes.SELECT_SELECTION_INPUT, XServer.Lockable.WINDOW_MANAGER.flag(), 0, this::selectSelectionInput);
+        requests.put(ClientOpcodes.SELECT_CURSOR_INPUT, XServer.Lockable.WINDOW_MANAGER.flag(), 0, this::selectCursorInput);
+        requests.put(ClientOpcodes.CREATE_REGION, this::createRegion);
+        requests.put(ClientOpcodes.CREATE_REGION_FROM_WINDOW, XServer.Lockable.WINDOW_MANAGER.flag(), 0, this::createRegionFromWindow);
+        requests.put(ClientOpcodes.DESTROY_REGION, this::destroyRegion);
+        requests.put(ClientOpcodes.SET_REGION, this::setRegion);
+        requests.put(ClientOpcodes.COPY_REGION, this::copyRegion);
+        requests.put(ClientOpcodes.UNION_REGION, this::combineRegions);
+        requests.put(ClientOpcodes.INTERSECT_REGION, this::combineRegions);
+        requests.put(ClientOpcodes.SUBTRACT_REGION, this::combineRegions);
+        requests.put(ClientOpcodes.INVERT_REGION, this::invertRegion);
+        requests.put(ClientOpcodes.TRANSLATE_REGION, this::translateRegion);
+        requests.put(ClientOpcodes.REGION_EXTENTS, this::regionExtents);
+        requests.put(ClientOpcodes.FETCH_REGION, this::fetchRegion);
+    }
+
+    @Override
+    public String getName() {
+        return "XFIXES";
+    }
+
+    @Override
+    public byte getMajorOpcode() {
+        return MAJOR_OPCODE;
+    }
+
+    @Override
+    public byte getFirstErrorId() {
+        return Byte.MIN_VALUE + 4;
+    }
+
+    @Override
+    public byte getFirstEventId() {
+        return FIRST_EVENT_ID;
+    }
+
+    @Override
+    public void attach(XServer xServer) {
+        this.xServer = xServer;
+        xServer.selectionManager.addOnSelectionChangeListener(this);
+        xServer.windowManager.addOnWindowModificationListener(this);
+        xServer.windowManager.addOnResourceLifecycleListener(this);
+        xServer.inputDeviceManager.setOnPointWindowChangeListener((pointWindow) -> updateDisplayCursor());
+    }
+
+    public boolean hasRegion(int id) {
+        synchronized (regions) {
+            return regions.containsKey(id);
+        }
+    }
+
+    public Region cloneRegion(int id) throws BadRegion {
+        synchronized (regions) {
+            Region region = regions.get(id);
+            if (region == null) throw new BadRegion(id);
+            return new Region(region);
+        }
+    }
+
+    public void replaceRegion(int id, Region region) throws BadRegion {
+        synchronized (regions) {
+            Region dstRegion = regions.get(id);
+            if (dstRegion == null) throw new BadRegion(id);
+            dstRegion.set(region);
+        }
+    }
+
+    private Region getRegion(int id) throws BadRegion {
+        Region region = regions.get(id);
+        if (region == null) throw new BadRegion(id);
+        return region;
+    }
+
+    private void addRegion(XClient client, int id, Region region) throws BadIdChoice {
+        if (!client.isValidResourceId(id) || regions.containsKey(id)) throw new BadIdChoice(id);
+        regions.put(id, region);
+    }
+
+    private static short[] readRectangles(XClient client, XInputStream inputStream) throws BadLength {
+        if (client.getRemainingRequestLength() % 8 != 0) throw new BadLength();
+        short[] rectangles = new short[client.getRemainingRequestLength() / 2];
+        for (int i = 0; i < rectangles.length; i++) rectangles[i] = inputStream.readShort();
+        return rectangles;
+    }
+
+    private static void queryVersion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        inputStream.skip(8);
+
+        try (XStreamLock lock = outputStream.lock()) {
+            outputStream.writeByte(RESPONSE_CODE_SUCCESS);
+            outputStream.writeByte((byte)0);
+            outputStream.writeShort(client.getSequenceNumber());
+            outputStream.writeInt(0);
+            outputStream.writeInt(2);
+            outputStream.writeInt(0);
+            outputStream.writePad(16);
+        }
+    }
+
+    private static void ignoreRequest(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        client.skipRequest();
+    }
+
+    private void selectSelectionInput(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int windowId = inputStream.readInt();
+        int selection = inputStream.readInt();
+        int mask = inputStream.readInt();
+
+        Window window = client.xServer.windowManager.getWindow(windowId);
+        if (window == null) throw new BadWindow(windowId);
+        if (!Atom.isValid(selection)) throw new BadAtom(selection);
+        if ((mask & ~(SET_SELECTION_OWNER_NOTIFY_MASK | SELECTION_WINDOW_DESTROY_NOTIFY_MASK | SELECTION_CLIENT_CLOSE_NOTIFY_MASK)) != 0) throw new BadValue(mask);
+
+        synchronized (selectionInputs) {
+            for (int i = 0; i < selectionInputs.size(); i++) {
+                SelectionInput input = selectionInputs.get(i);
+                if (input.client == client && input.window == window && input.selection == selection) {
+                    if (mask != 0) {
+                        input.mask = mask;
+                    }
+                    else selectionInputs.remove(i);
+                    return;
+                }
+            }
+
+            if (mask != 0) {
+                SelectionInput input = new SelectionInput();
+                input.client = client;
+                input.window = window;
+                input.selection = selection;
+                input.mask = mask;
+                selectionInputs.add(input);
+            }
+        }
+    }
+
+    private void selectCursorInput(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int windowId = inputStream.readInt();
+        int mask = inputStream.readInt();
+
+        Window window = client.xServer.windowManager.getWindow(windowId);
+        if (window == null) throw new BadWindow(windowId);
+        if ((mask & ~DISPLAY_CURSOR_NOTIFY_MASK) != 0) throw new BadValue(mask);
+
+        synchronized (cursorInputs) {
+            if (cursorInputs.isEmpty()) displayCursorSerial = getDisplayCursorSerial();
+
+            for (int i = 0; i < cursorInputs.size(); i++) {
+                CursorInput input = cursorInputs.get(i);
+                if (input.client == client && input.window == window) {
+                    if (mask == 0) cursorInputs.remove(i);
+                    return;
+                }
+            }
+
+            if (mask != 0) {
+                CursorInput input = new CursorInput();
+                input.client = client;
+                input.window = window;
+                cursorInputs.add(input);
+            }
+        }
+    }
+
+    private int getDisplayCursorSerial() {
+        Window pointWindow = xServer.inputDeviceManager.getPointWindow();
+        Cursor cursor = pointWindow != null ? pointWindow.attributes.getCursor() : null;
+        return cursor != null ? cursor.id : 0;
+    }
+
+    private void updateDisplayCursor() {
+        synchronized (cursorInputs) {
+            if (cursorInputs.isEmpty()) return;
+            int serial = getDisplayCursorSerial();
+            if (serial == displayCursorSerial) return;
+            displayCursorSerial = serial;
+
+            for (CursorInput input : cursorInputs) input.client.sendEvent(new XFixesCursorNotify(input.window, serial));
+        }
+    }
+
+    private void sendSelectionNotify(byte subtype, int mask, int atom, SelectionManager.Selection selection) {
+        synchronized (selectionInputs) {
+            for (SelectionInput input : selectionInputs) {
+                if (input.selection == atom && (input.mask & mask) != 0) {
+                    Window owner = subtype == XFixesSelectionNotify.SET_SELECTION_OWNER ? selection.owner : null;
+                    input.client.sendEvent(new XFixesSelectionNotify(subtype, input.window, owner, atom, selection.getTimestamp()));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onSetSelectionOwner(int atom, SelectionManager.Selection selection) {
+        sendSelectionNotify(XFixesSelectionNotify.SET_SELECTION_OWNER, SET_SELECTION_OWNER_NOTIFY_MASK, atom, selection);
+    }
+
+    @Override
+    public void onDestroySelectionOwner(int atom, SelectionManager.Selection selection) {
+        sendSelectionNotify(XFixesSelectionNotify.SELECTION_WINDOW_DESTROY, SELECTION_WINDOW_DESTROY_NOTIFY_MASK, atom, selection);
+    }
+
+    @Override
+    public void onUpdateWindowAttributes(Window window, Bitmask mask) {
+        if (mask.isSet(WindowAttributes.FLAG_CURSOR)) updateDisplayCursor();
+    }
+
+    @Override
+    public void onFreeResource(XResource resource) {
+        synchronized (selectionInputs) {
+            for (int i = selectionInputs.size()-1; i >= 0; i--) {
+                if (selectionInputs.get(i).window == resource) selectionInputs.remove(i);
+            }
+        }
+
+        synchronized (cursorInputs) {
+            for (int i = cursorInputs.size()-1; i >= 0; i--) {
+                if (cursorInputs.get(i).window == resource) cursorInputs.remove(i);
+            }
+        }
+    }
+
+    private void createRegion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int regionId = inputStream.readInt();
+        short[] rectangles = readRectangles(client, inputStream);
+
+        Region region = new Region();
+        region.setRects(rectangles, rectangles.length);
+        synchronized (regions) {
+            addRegion(client, regionId, region);
+        }
+    }
+
+    private void createRegionFromWindow(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int regionId = inputStream.readInt();
+        int windowId = inputStream.readInt();
+        byte kind = inputStream.readByte();
+        inputStream.skip(3);
+
+        Window window = client.xServer.windowManager.getWindow(windowId);
+        if (window == null) throw new BadWindow(windowId);
+        if (kind != 0 && kind != 1) throw new BadValue(kind);
+
+        int borderWidth = kind == 0 ? window.getBorderWidth() : 0;
+        Region region = new Region(-borderWidth, -borderWidth, window.getWidth() + borderWidth * 2, window.getHeight() + borderWidth * 2);
+        synchronized (regions) {
+            addRegion(client, regionId, region);
+        }
+    }
+
+    private void destroyRegion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int regionId = inputStream.readInt();
+        synchronized (regions) {
+            if (regions.remove(regionId) == null) throw new BadRegion(regionId);
+        }
+    }
+
+    private void setRegion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int regionId = inputStream.readInt();
+        short[] rectangles = readRectangles(client, inputStream);
+
+        synchronized (regions) {
+            getRegion(regionId).setRects(rectangles, rectangles.length);
+        }
+    }
+
+    private void copyRegion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int srcRegionId = inputStream.readInt();
+        int dstRegionId = inputStream.readInt();
+
+        synchronized (regions) {
+            getRegion(dstRegionId).set(getRegion(srcRegionId));
+        }
+    }
+
+    private void combineRegions(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int srcRegionId1 = inputStream.readInt();
+        int srcRegionId2 = inputStream.readInt();
+        int dstRegionId = inputStream.readInt();
+
+        synchronized (regions) {
+            Region srcRegion1 = getRegion(srcRegionId1);
+            Region srcRegion2 = getRegion(srcRegionId2);
+            Region dstRegion = getRegion(dstRegionId);
+
+            switch (client.getRequestData()) {
+                case ClientOpcodes.UNION_REGION:
+                    dstRegion.union(srcRegion1, srcRegion2);
+                    break;
+                case ClientOpcodes.INTERSECT_REGION:
+                    dstRegion.intersect(srcRegion1, srcRegion2);
+                    break;
+                case ClientOpcodes.SUBTRACT_REGION:
+                    dstRegion.subtract(srcRegion1, srcRegion2);
+                    break;
+            }
+        }
+    }
+
+    private void invertRegion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int srcRegionId = inputStream.readInt();
+        short x = inputStream.readShort();
+        short y = inputStream.readShort();
+        short width = inputStream.readShort();
+        short height = inputStream.readShort();
+        int dstRegionId = inputStream.readInt();
+
+        synchronized (regions) {
+            getRegion(dstRegionId).inverse(getRegion(srcRegionId), x, y, width & 0xffff, height & 0xffff);
+        }
+    }
+
+    private void translateRegion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int regionId = inputStream.readInt();
+        short dx = inputStream.readShort();
+        short dy = inputStream.readShort();
+
+        synchronized (regions) {
+            getRegion(regionId).translate(dx, dy);
+        }
+    }
+
+    private void regionExtents(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int srcRegionId = inputStream.readInt();
+        int dstRegionId = inputStream.readInt();
+
+        synchronized (regions) {
+            Region srcRegion = getRegion(srcRegionId);
+            getRegion(dstRegionId).setRect(srcRegion.getExtentX(), srcRegion.getExtentY(), srcRegion.getExtentWidth(), srcRegion.getExtentHeight());
+        }
+    }
+
+    private void fetchRegion(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        int regionId = inputStream.readInt();
+
+        Region region;
+        synchronized (regions) {
+            region = new Region(getRegion(regionId));
+        }
+
+        int count = region.getRectCount();
+        int[] rects = region.getRects();
+        try (XStreamLock lock = outputStream.lock()) {
+            outputStream.writeByte(RESPONSE_CODE_SUCCESS);
+            outputStream.writeByte((byte)0);
+            outputStream.writeShort(client.getSequenceNumber());
+            outputStream.writeInt(count * 2);
+            outputStream.writeShort((short)region.getExtentX());
+            outputStream.writeShort((short)region.getExtentY());
+            outputStream.writeShort((short)region.getExtentWidth());
+            outputStream.writeShort((short)region.getExtentHeight());
+            outputStream.writePad(16);
+
+            for (int i = 0, offset = 0; i < count; i++, offset += 4) {
+                outputStream.writeShort((short)rects[offset]);
+                outputStream.writeShort((short)rects[offset + 1]);
+                outputStream.writeShort((short)(rects[offset + 2] - rects[offset]));
+                outputStream.writeShort((short)(rects[offset + 3] - rects[offset + 1]));
+            }
+        }
+    }
+
+    @Override
+    public void freeResources(XClient client) {
+        synchronized (regions) {
+            int[] ids = new int[regions.size()];
+            int count = 0;
+            for (int i = 0; i < regions.capacity(); i++) {
+                if (regions.valueAt(i) != null && client.isValidResourceId(regions.keyAt(i))) ids[count++] = regions.keyAt(i);
+            }
+            for (int i = 0; i < count; i++) regions.remove(ids[i]);
+        }
+
+        synchronized (selectionInputs) {
+            for (int i = selectionInputs.size()-1; i >= 0; i--) {
+                if (selectionInputs.get(i).client == client) selectionInputs.remove(i);
+            }
+        }
+
+        synchronized (cursorInputs) {
+            for (int i = cursorInputs.size()-1; i >= 0; i--) {
+                if (cursorInputs.get(i).client == client) cursorInputs.remove(i);
+            }
+        }
+    }
+
+    @Override
+    public void handleRequest(XClient client, XInputStream inputStream, XOutputStream outputStream) throws IOException, XRequestError {
+        if (!requests.dispatch(client, client.getRequestData(), inputStream, outputStream)) throw new BadImplementation();
+    }
+}
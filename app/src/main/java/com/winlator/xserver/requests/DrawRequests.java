@@ -34,7 +34,7 @@ public abstract class DrawRequests {
         int length = client.getRemainingRequestLength();
         ByteBuffer data = inputStream.readByteBuffer(length);
 
-        Drawable drawable =  client.xServer.drawableManager.getDrawable(drawableId);
+        Drawable drawable =  client.xServer.drawableManager.getDrawableForWrite(drawableId);
         if (drawable == null) throw new BadDrawable(drawableId);
 
         GraphicsContext graphicsContext = client.xServer.graphicsContextManager.getGraphicsContext(gcId);
@@ -75,11 +75,10 @@ public abstract class DrawRequests {
 
         if (format != Format.Z_PIXMAP) throw new UnsupportedOperationException("Only Z_PIXMAP is supported.");
 
-        Drawable drawable =  client.xServer.drawableManager.getDrawable(drawableId);
+        Drawable drawable =  client.xServer.drawableManager.getDrawableForRead(drawableId);
         if (drawable == null) throw new BadDrawable(drawableId);
         int visualId = client.xServer.pixmapManager.getPixmap(drawableId) == null ? drawable.visual.id : 0;
-        ByteBuffer data = drawable.getImage(x, y, width, height);
-        int length = data.limit();
+        int length = width * height * 4;
 
         try (XStreamLock lock = outputStream.lock()) {
             outputStream.writeByte(RESPONSE_CODE_SUCCESS);
@@ -88,8 +87,7 @@ public abstract class DrawRequests {
             outputStream.writeInt((length + 3) / 4);
             outputStream.writeInt(visualId);
             outputStream.writePad(20);
-            outputStream.write(data);
-            if ((-length & 3) > 0) outputStream.writePad(-length & 3);
+            drawable.getImage(x, y, width, height, outputStream.reserveSlice(length));
         }
     }
 
@@ -104,10 +102,10 @@ public abstract class DrawRequests {
         short width = inputStream.readShort();
         short height = inputStream.readShort();
 
-        Drawable srcDrawable =  client.xServer.drawableManager.getDrawable(srcDrawableId);
+        Drawable srcDrawable =  client.xServer.drawableManager.getDrawableForRead(srcDrawableId);
         if (srcDrawable == null) throw new BadDrawable(srcDrawableId);
 
-        Drawable dstDrawable =  client.xServer.drawableManager.getDrawable(dstDrawableId);
+        Drawable dstDrawable =  client.xServer.drawableManager.getDrawableForWrite(dstDrawableId);
         if (dstDrawable == null) throw new BadDrawable(dstDrawableId);
 
         GraphicsContext graphicsContext =  client.xServer.graphicsContextManager.getGraphicsContext(gcId);
@@ -123,7 +121,7 @@ public abstract class DrawRequests {
         int drawableId = inputStream.readInt();
         int gcId = inputStream.readInt();
 
-        Drawable drawable = client.xServer.drawableManager.getDrawable(drawableId);
+        Drawable drawable = client.xServer.drawableManager.getDrawableForWrite(drawableId);
         if (drawable == null) throw new BadDrawable(drawableId);
         GraphicsContext graphicsContext = client.xServer.graphicsContextManager.getGraphicsContext(gcId);
         if (graphicsContext == null) throw new BadGraphicsContext(gcId);
@@ -146,19 +144,14 @@ public abstract class DrawRequests {
         int drawableId = inputStream.readInt();
         int gcId = inputStream.readInt();
 
-        Drawable drawable = client.xServer.drawableManager.getDrawable(drawableId);
+        Drawable drawable = client.xServer.drawableManager.getDrawableForWrite(drawableId);
         if (drawable == null) throw new BadDrawable(drawableId);
         GraphicsContext graphicsContext = client.xServer.graphicsContextManager.getGraphicsContext(gcId);
         if (graphicsContext == null) throw new BadGraphicsContext(gcId);
         int length = client.getRemainingRequestLength();
 
-        while (length != 0) {
-            short x = inputStream.readShort();
-            short y = inputStream.readShort();
-            short width = inputStream.readShort();
-            short height = inputStream.readShort();
-            drawable.fillRect(x, y, width, height, graphicsContext.getBackground());
-            length -= 8;
-        }
+        short[] rects = new short[length / 2];
+        for (int i = 0; i < rects.length; i++) rects[i] = inputStream.readShort();
+        drawable.fillRects(rects, graphicsContext.getBackground());
     }
 }
\ No newline at end of file
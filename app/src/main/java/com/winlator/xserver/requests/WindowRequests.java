@@ -208,11 +208,12 @@ public abstract class WindowRequests {
                 outputStream.writePad(12);
             }
             else {
-                byte[] data = property.data.array();
-                int offset = longOffset * 4;
-                int length = Math.min(data.length - offset, longLength * 4);
-                if (length < 0) throw new BadValue(longOffset);
-                bytesAfter = data.length - (offset + length);
+                int size = property.size();
+                long byteOffset = (longOffset & 0xffffffffL) * 4;
+                if (byteOffset > size) throw new BadValue(longOffset);
+                int offset = (int)byteOffset;
+                int length = (int)Math.min(size - offset, (longLength & 0xffffffffL) * 4);
+                bytesAfter = size - (offset + length);
 
                 outputStream.writeByte(RESPONSE_CODE_SUCCESS);
                 outputStream.writeByte(property.format.value);
@@ -222,7 +223,7 @@ public abstract class WindowRequests {
                 outputStream.writeInt(bytesAfter);
                 outputStream.writeInt(length / (property.format.value / 8));
                 outputStream.writePad(12);
-                outputStream.write(data, offset, length);
+                property.write(outputStream, offset, length);
                 if ((-length & 3) > 0) outputStream.writePad(-length & 3);
             }
         }
@@ -240,6 +241,7 @@ public abstract class WindowRequests {
         short rootY = client.xServer.pointer.getClampedY();
         Window child = window.getChildByCoords(rootX, rootY);
         short[] localPoint = window.rootPointToLocal(rootX, rootY);
+        client.resetMotionHint();
 
         try (XStreamLock lock = outputStream.lock()) {
             outputStream.writeByte(RESPONSE_CODE_SUCCESS);
@@ -0,0 +1,69 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xserver.Atom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AtomBenchmark {
+    @Param({"100", "1000"})
+    public int numAtoms;
+    private String[] names;
+    private int[] ids;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        names = new String[numAtoms];
+        ids = new int[numAtoms];
+        for (int i = 0; i < numAtoms; i++) {
+            names[i] = "_BENCHMARK_ATOM_"+i;
+            ids[i] = Atom.internAtom(names[i]);
+        }
+    }
+
+    @Benchmark
+    public int getIdPredefined() {
+        return Atom.getId("WM_CLASS");
+    }
+
+    @Benchmark
+    public int getIdInterned() {
+        index = (index + 1) % numAtoms;
+        return Atom.getId(names[index]);
+    }
+
+    @Benchmark
+    public int getIdMissing() {
+        return Atom.getId("_BENCHMARK_MISSING_ATOM");
+    }
+
+    @Benchmark
+    public int internExisting() {
+        index = (index + 1) % numAtoms;
+        return Atom.internAtom(names[index]);
+    }
+
+    @Benchmark
+    public String getName() {
+        index = (index + 1) % numAtoms;
+        return Atom.getName(ids[index]);
+    }
+}
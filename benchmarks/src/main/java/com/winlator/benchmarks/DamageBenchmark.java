@@ -0,0 +1,73 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xserver.Drawable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DamageBenchmark {
+    private static final int RECTS_PER_FRAME = 64;
+    @Param({"none", "raw", "delta", "boundingBox", "nonEmpty"})
+    public String level;
+    private XServerFixture fixture;
+    private Drawable content;
+    private byte[] subtractRequest;
+    private int frame = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        int windowId = fixture.getResourceId(1);
+        int damageId = fixture.getResourceId(2);
+        RequestEncoder encoder = new RequestEncoder()
+            .createWindow(windowId, fixture.getRootWindowId(), 0, 0, fixture.xServer.screenInfo.width, fixture.xServer.screenInfo.height)
+            .mapWindow(windowId);
+
+        switch (level) {
+            case "raw":
+                encoder.createDamage(damageId, windowId, 0);
+                break;
+            case "delta":
+                encoder.createDamage(damageId, windowId, 1);
+                break;
+            case "boundingBox":
+                encoder.createDamage(damageId, windowId, 2);
+                break;
+            case "nonEmpty":
+                encoder.createDamage(damageId, windowId, 3);
+                break;
+        }
+        fixture.process(encoder.toByteArray());
+
+        content = fixture.xServer.windowManager.getWindow(windowId).getContent();
+        subtractRequest = !level.equals("none") ? new RequestEncoder().subtractDamage(damageId, 0, 0).toByteArray() : null;
+    }
+
+    @Benchmark
+    public long drawFrame() throws IOException {
+        frame = (frame + 1) & 7;
+        for (int i = 0; i < RECTS_PER_FRAME; i++) {
+            content.fillRect(((i & 7) * 150 + frame * 4), ((i >> 3) * 85 + frame * 2), 24, 16, 0xff00ff00);
+        }
+        if (subtractRequest != null) fixture.process(subtractRequest);
+        return fixture.getBytesWritten();
+    }
+}
@@ -0,0 +1,87 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xserver.Window;
+import com.winlator.xserver.WindowManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindPointWindowBenchmark {
+    private static final int NUM_POINTS = 1024;
+    private static final int CHILDREN_PER_WINDOW = 4;
+    @Param({"8", "64", "512"})
+    public int numWindows;
+    private WindowManager windowManager;
+    private final short[] pointsX = new short[NUM_POINTS];
+    private final short[] pointsY = new short[NUM_POINTS];
+    private int index = 0;
+    private XServerFixture fixture;
+    private byte[] moveRequests;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        windowManager = fixture.xServer.windowManager;
+        short screenWidth = fixture.xServer.screenInfo.width;
+        short screenHeight = fixture.xServer.screenInfo.height;
+
+        Random random = new Random(1234);
+        RequestEncoder encoder = new RequestEncoder();
+        int resourceIndex = 1;
+        for (int i = 0; i < numWindows; i++) {
+            int width = 64 + random.nextInt(screenWidth / 2);
+            int height = 64 + random.nextInt(screenHeight / 2);
+            int windowId = fixture.getResourceId(resourceIndex++);
+            encoder.createWindow(windowId, fixture.getRootWindowId(), random.nextInt(screenWidth - width), random.nextInt(screenHeight - height), width, height);
+
+            for (int j = 0; j < CHILDREN_PER_WINDOW; j++) {
+                int childId = fixture.getResourceId(resourceIndex++);
+                encoder.createWindow(childId, windowId, j * width / CHILDREN_PER_WINDOW, 0, width / CHILDREN_PER_WINDOW, height / 2);
+                encoder.mapWindow(childId);
+            }
+            encoder.mapWindow(windowId);
+        }
+        fixture.process(encoder.toByteArray());
+
+        for (int i = 0; i < NUM_POINTS; i++) {
+            pointsX[i] = (short)random.nextInt(screenWidth);
+            pointsY[i] = (short)random.nextInt(screenHeight);
+        }
+
+        moveRequests = new RequestEncoder()
+            .configureWindow(fixture.getResourceId(1), 10, 10, true)
+            .configureWindow(fixture.getResourceId(1), 20, 20, true)
+            .toByteArray();
+    }
+
+    @Benchmark
+    public Window findPointWindow() {
+        index = (index + 1) & (NUM_POINTS - 1);
+        return windowManager.findPointWindow(pointsX[index], pointsY[index]);
+    }
+
+    @Benchmark
+    public Window moveAndFindPointWindow() throws IOException {
+        fixture.process(moveRequests);
+        return findPointWindow();
+    }
+}
@@ -0,0 +1,118 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xconnector.LoopbackTransport;
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xconnector.XStreamLock;
+import com.winlator.xserver.Bitmask;
+import com.winlator.xserver.Pointer;
+import com.winlator.xserver.Window;
+import com.winlator.xserver.WindowManager;
+import com.winlator.xserver.XKeycode;
+import com.winlator.xserver.events.Event;
+import com.winlator.xserver.events.EventEncoder;
+import com.winlator.xserver.events.MotionNotify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputEventBenchmark {
+    private static final int EVENTS_PER_BATCH = 64;
+    @Param({"true", "false"})
+    public boolean autoFlush;
+    private XServerFixture fixture;
+    private XOutputStream clientOutputStream;
+    private XOutputStream outputStream;
+    private Window window;
+    private int offset = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        int windowId = fixture.getResourceId(1);
+        fixture.process(new RequestEncoder()
+            .createWindow(windowId, fixture.getRootWindowId(), 0, 0, fixture.xServer.screenInfo.width, fixture.xServer.screenInfo.height)
+            .mapWindow(windowId)
+            .toByteArray());
+
+        window = fixture.xServer.windowManager.getWindow(windowId);
+        fixture.xClient.setEventListenerForWindow(window, new Bitmask(Event.POINTER_MOTION | Event.BUTTON_PRESS | Event.BUTTON_RELEASE | Event.KEY_PRESS | Event.KEY_RELEASE));
+        fixture.xServer.windowManager.setFocus(window, WindowManager.FocusRevertTo.NONE);
+        clientOutputStream = fixture.xClient.getOutputStream();
+
+        outputStream = new XOutputStream(new LoopbackTransport(), 4096);
+        outputStream.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @TearDown
+    public void tearDown() {
+        outputStream.release();
+    }
+
+    @Benchmark
+    public long pointerInput() throws IOException {
+        offset = (offset + 1) & 255;
+        clientOutputStream.setAutoFlush(autoFlush);
+        for (int i = 0; i < EVENTS_PER_BATCH; i++) {
+            fixture.xServer.injectPointerMove(100 + offset + i, 100 + i);
+            if ((i & 15) == 0) {
+                fixture.xServer.injectPointerButtonPress(Pointer.Button.BUTTON_LEFT);
+                fixture.xServer.injectPointerButtonRelease(Pointer.Button.BUTTON_LEFT);
+            }
+        }
+        clientOutputStream.setAutoFlush(true);
+        return fixture.getBytesWritten();
+    }
+
+    @Benchmark
+    public long keyInput() throws IOException {
+        clientOutputStream.setAutoFlush(autoFlush);
+        for (int i = 0; i < EVENTS_PER_BATCH / 2; i++) {
+            fixture.xServer.injectKeyPress(XKeycode.KEY_A);
+            fixture.xServer.injectKeyRelease(XKeycode.KEY_A);
+        }
+        clientOutputStream.setAutoFlush(true);
+        return fixture.getBytesWritten();
+    }
+
+    @Benchmark
+    public void encodeEventObjects() throws IOException {
+        Window root = fixture.xServer.windowManager.rootWindow;
+        outputStream.setAutoFlush(autoFlush);
+        for (int i = 0; i < EVENTS_PER_BATCH; i++) {
+            new MotionNotify(false, root, window, null, (short)i, (short)i, (short)i, (short)i, new Bitmask()).send((short)i, outputStream);
+        }
+        outputStream.setAutoFlush(true);
+    }
+
+    @Benchmark
+    public void encodeEventSlots() throws IOException {
+        int rootId = fixture.getRootWindowId();
+        outputStream.setAutoFlush(autoFlush);
+        try (XStreamLock lock = outputStream.lock()) {
+            for (int i = 0; i < EVENTS_PER_BATCH; i++) {
+                EventEncoder.putInputDeviceEvent(outputStream.reserve(EventEncoder.EVENT_SIZE), MotionNotify.CODE, (byte)0, (short)i, i, rootId, window.id, 0, (short)i, (short)i, (short)i, (short)i, (short)0);
+            }
+        }
+        outputStream.setAutoFlush(true);
+    }
+}
@@ -0,0 +1,64 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xserver.Bitmask;
+import com.winlator.xserver.Window;
+import com.winlator.xserver.events.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointerMotionBenchmark {
+    private static final int MOVES_PER_FLUSH = 64;
+    @Param({"true", "false"})
+    public boolean autoFlush;
+    @Param({"false", "true"})
+    public boolean motionHint;
+    private XServerFixture fixture;
+    private XOutputStream outputStream;
+    private int offset = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        int windowId = fixture.getResourceId(1);
+        fixture.process(new RequestEncoder()
+            .createWindow(windowId, fixture.getRootWindowId(), 0, 0, fixture.xServer.screenInfo.width, fixture.xServer.screenInfo.height)
+            .mapWindow(windowId)
+            .toByteArray());
+
+        Window window = fixture.xServer.windowManager.getWindow(windowId);
+        Bitmask eventMask = new Bitmask(Event.POINTER_MOTION);
+        if (motionHint) eventMask.set(Event.POINTER_MOTION_HINT);
+        fixture.xClient.setEventListenerForWindow(window, eventMask);
+        outputStream = fixture.xClient.getOutputStream();
+    }
+
+    @Benchmark
+    public long injectPointerMoves() throws IOException {
+        offset = (offset + 1) & 255;
+        outputStream.setAutoFlush(autoFlush);
+        for (int i = 0; i < MOVES_PER_FLUSH; i++) fixture.xServer.injectPointerMove(100 + offset + i, 100 + i);
+        outputStream.setAutoFlush(true);
+        if (motionHint) fixture.xClient.resetMotionHint();
+        return fixture.getBytesWritten();
+    }
+}
@@ -0,0 +1,74 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xserver.GraphicsContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolyFillBenchmark {
+    @Param({"500"})
+    public int primitives;
+    private XServerFixture fixture;
+    private byte[] polyFillRectangleRequest;
+    private byte[] polyLineRequest;
+    private int drawCount = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        int windowId = fixture.getResourceId(1);
+        int gcId = fixture.getResourceId(2);
+        fixture.process(new RequestEncoder()
+            .createWindow(windowId, fixture.getRootWindowId(), 0, 0, fixture.xServer.screenInfo.width, fixture.xServer.screenInfo.height)
+            .mapWindow(windowId)
+            .createGC(gcId, windowId, GraphicsContext.FLAG_FOREGROUND | GraphicsContext.FLAG_BACKGROUND | GraphicsContext.FLAG_LINE_WIDTH, 0xff0000, 0x00ff00, 1)
+            .toByteArray());
+        fixture.xServer.windowManager.getWindow(windowId).getContent().setOnDrawListener(() -> drawCount++);
+
+        short[] rectangles = new short[primitives * 4];
+        short[] points = new short[(primitives + 1) * 2];
+        for (int i = 0; i < primitives; i++) {
+            rectangles[i * 4 + 0] = (short)((i % 40) * 32);
+            rectangles[i * 4 + 1] = (short)((i / 40) * 24);
+            rectangles[i * 4 + 2] = 24;
+            rectangles[i * 4 + 3] = 16;
+        }
+        for (int i = 0; i <= primitives; i++) {
+            points[i * 2 + 0] = (short)((i % 40) * 32);
+            points[i * 2 + 1] = (short)((i / 40) * 24 + (i & 1) * 16);
+        }
+
+        polyFillRectangleRequest = new RequestEncoder().polyFillRectangle(windowId, gcId, rectangles).toByteArray();
+        polyLineRequest = new RequestEncoder().polyLine(windowId, gcId, points).toByteArray();
+    }
+
+    @Benchmark
+    public int polyFillRectangle() throws IOException {
+        fixture.process(polyFillRectangleRequest);
+        return drawCount;
+    }
+
+    @Benchmark
+    public int polyLine() throws IOException {
+        fixture.process(polyLineRequest);
+        return drawCount;
+    }
+}
@@ -0,0 +1,67 @@
+package com.winlator.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestDispatchBenchmark {
+    private static final int BATCH_SIZE = 256;
+    private static final String[] MIXED_REQUESTS = {"noOperation", "getInputFocus", "getGeometry", "queryPointer", "internAtom"};
+    @Param({"noOperation", "getInputFocus", "getGeometry", "queryPointer", "internAtom", "mixed"})
+    public String request;
+    private XServerFixture fixture;
+    private byte[] batch;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        int rootId = fixture.getRootWindowId();
+        RequestEncoder encoder = new RequestEncoder();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            addRequest(encoder, request.equals("mixed") ? MIXED_REQUESTS[i % MIXED_REQUESTS.length] : request, rootId);
+        }
+        batch = encoder.toByteArray();
+    }
+
+    private static void addRequest(RequestEncoder encoder, String request, int rootId) {
+        switch (request) {
+            case "noOperation":
+                encoder.noOperation();
+                break;
+            case "getInputFocus":
+                encoder.getInputFocus();
+                break;
+            case "getGeometry":
+                encoder.getGeometry(rootId);
+                break;
+            case "queryPointer":
+                encoder.queryPointer(rootId);
+                break;
+            case "internAtom":
+                encoder.internAtom("_NET_WM_NAME", false);
+                break;
+        }
+    }
+
+    @Benchmark
+    public int dispatch() throws IOException {
+        return fixture.process(batch);
+    }
+}
@@ -0,0 +1,245 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xserver.ClientOpcodes;
+import com.winlator.xserver.Window;
+import com.winlator.xserver.XServer;
+import com.winlator.xserver.extensions.DamageExtension;
+import com.winlator.xserver.extensions.MITSHMExtension;
+import com.winlator.xserver.extensions.XFixesExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public class RequestEncoder {
+    private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+    public static byte[] connectionSetup() {
+        return new byte[]{'l', 0, 11, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+    }
+
+    public RequestEncoder noOperation() {
+        writeHeader(ClientOpcodes.NO_OPERATION, 0, 1);
+        return this;
+    }
+
+    public RequestEncoder getInputFocus() {
+        writeHeader(ClientOpcodes.GET_INPUT_FOCUS, 0, 1);
+        return this;
+    }
+
+    public RequestEncoder getGeometry(int drawableId) {
+        writeHeader(ClientOpcodes.GET_GEOMETRY, 0, 2);
+        buffer.putInt(drawableId);
+        return this;
+    }
+
+    public RequestEncoder queryPointer(int windowId) {
+        writeHeader(ClientOpcodes.QUERY_POINTER, 0, 2);
+        buffer.putInt(windowId);
+        return this;
+    }
+
+    public RequestEncoder internAtom(String name, boolean onlyIfExists) {
+        byte[] bytes = name.getBytes(XServer.LATIN1_CHARSET);
+        writeHeader(ClientOpcodes.INTERN_ATOM, onlyIfExists ? 1 : 0, 2 + (bytes.length + 3) / 4);
+        buffer.putShort((short)bytes.length);
+        buffer.putShort((short)0);
+        writePadded(bytes);
+        return this;
+    }
+
+    public RequestEncoder createWindow(int windowId, int parentId, int x, int y, int width, int height) {
+        writeHeader(ClientOpcodes.CREATE_WINDOW, 0, 8);
+        buffer.putInt(windowId);
+        buffer.putInt(parentId);
+        buffer.putShort((short)x);
+        buffer.putShort((short)y);
+        buffer.putShort((short)width);
+        buffer.putShort((short)height);
+        buffer.putShort((short)0);
+        buffer.putShort((short)1);
+        buffer.putInt(0);
+        buffer.putInt(0);
+        return this;
+    }
+
+    public RequestEncoder mapWindow(int windowId) {
+        writeHeader(ClientOpcodes.MAP_WINDOW, 0, 2);
+        buffer.putInt(windowId);
+        return this;
+    }
+
+    public RequestEncoder unmapWindow(int windowId) {
+        writeHeader(ClientOpcodes.UNMAP_WINDOW, 0, 2);
+        buffer.putInt(windowId);
+        return this;
+    }
+
+    public RequestEncoder configureWindow(int windowId, int x, int y, boolean raise) {
+        writeHeader(ClientOpcodes.CONFIGURE_WINDOW, 0, raise ? 6 : 5);
+        buffer.putInt(windowId);
+        buffer.putShort((short)(Window.FLAG_X | Window.FLAG_Y | (raise ? Window.FLAG_STACK_MODE : 0)));
+        buffer.putShort((short)0);
+        buffer.putInt(x);
+        buffer.putInt(y);
+        if (raise) buffer.putInt(Window.StackMode.ABOVE.ordinal());
+        return this;
+    }
+
+    public RequestEncoder destroyWindow(int windowId) {
+        writeHeader(ClientOpcodes.DESTROY_WINDOW, 0, 2);
+        buffer.putInt(windowId);
+        return this;
+    }
+
+    public RequestEncoder createPixmap(int pixmapId, int drawableId, int width, int height, int depth) {
+        writeHeader(ClientOpcodes.CREATE_PIXMAP, depth, 4);
+        buffer.putInt(pixmapId);
+        buffer.putInt(drawableId);
+        buffer.putShort((short)width);
+        buffer.putShort((short)height);
+        return this;
+    }
+
+    public RequestEncoder freePixmap(int pixmapId) {
+        writeHeader(ClientOpcodes.FREE_PIXMAP, 0, 2);
+        buffer.putInt(pixmapId);
+        return this;
+    }
+
+    public RequestEncoder changeProperty(int windowId, int atom, int type, int mode, byte[] data) {
+        writeHeader(ClientOpcodes.CHANGE_PROPERTY, mode, 6 + (data.length + 3) / 4);
+        buffer.putInt(windowId);
+        buffer.putInt(atom);
+        buffer.putInt(type);
+        buffer.put((byte)8);
+        buffer.put(new byte[3]);
+        buffer.putInt(data.length);
+        writePadded(data);
+        return this;
+    }
+
+    public RequestEncoder getProperty(int windowId, int atom, int type, int longLength) {
+        writeHeader(ClientOpcodes.GET_PROPERTY, 0, 6);
+        buffer.putInt(windowId);
+        buffer.putInt(atom);
+        buffer.putInt(type);
+        buffer.putInt(0);
+        buffer.putInt(longLength);
+        return this;
+    }
+
+    public RequestEncoder createGC(int gcId, int drawableId, int valueMask, int... values) {
+        writeHeader(ClientOpcodes.CREATE_GC, 0, 4 + values.length);
+        buffer.putInt(gcId);
+        buffer.putInt(drawableId);
+        buffer.putInt(valueMask);
+        for (int value : values) buffer.putInt(value);
+        return this;
+    }
+
+    public RequestEncoder polyLine(int drawableId, int gcId, short... points) {
+        writeHeader(ClientOpcodes.POLY_LINE, 0, 3 + points.length / 2);
+        buffer.putInt(drawableId);
+        buffer.putInt(gcId);
+        for (short value : points) buffer.putShort(value);
+        return this;
+    }
+
+    public RequestEncoder polyFillRectangle(int drawableId, int gcId, short... rectangles) {
+        writeHeader(ClientOpcodes.POLY_FILL_RECTANGLE, 0, 3 + rectangles.length / 2);
+        buffer.putInt(drawableId);
+        buffer.putInt(gcId);
+        for (short value : rectangles) buffer.putShort(value);
+        return this;
+    }
+
+    public RequestEncoder getImage(int drawableId, int x, int y, int width, int height) {
+        writeHeader(ClientOpcodes.GET_IMAGE, 2, 5);
+        buffer.putInt(drawableId);
+        buffer.putShort((short)x);
+        buffer.putShort((short)y);
+        buffer.putShort((short)width);
+        buffer.putShort((short)height);
+        buffer.putInt(-1);
+        return this;
+    }
+
+    public RequestEncoder shmAttach(int shmseg, int shmid, boolean readOnly) {
+        writeHeader(MITSHMExtension.MAJOR_OPCODE, 1, 4);
+        buffer.putInt(shmseg);
+        buffer.putInt(shmid);
+        buffer.put((byte)(readOnly ? 1 : 0));
+        buffer.put(new byte[3]);
+        return this;
+    }
+
+    public RequestEncoder shmGetImage(int drawableId, int x, int y, int width, int height, int shmseg, int offset) {
+        writeHeader(MITSHMExtension.MAJOR_OPCODE, 4, 8);
+        buffer.putInt(drawableId);
+        buffer.putShort((short)x);
+        buffer.putShort((short)y);
+        buffer.putShort((short)width);
+        buffer.putShort((short)height);
+        buffer.putInt(-1);
+        buffer.put((byte)2);
+        buffer.put(new byte[3]);
+        buffer.putInt(shmseg);
+        buffer.putInt(offset);
+        return this;
+    }
+
+    public RequestEncoder createDamage(int damageId, int drawableId, int level) {
+        writeHeader(DamageExtension.MAJOR_OPCODE, 1, 4);
+        buffer.putInt(damageId);
+        buffer.putInt(drawableId);
+        buffer.putInt(level);
+        return this;
+    }
+
+    public RequestEncoder subtractDamage(int damageId, int repairRegionId, int partsRegionId) {
+        writeHeader(DamageExtension.MAJOR_OPCODE, 3, 4);
+        buffer.putInt(damageId);
+        buffer.putInt(repairRegionId);
+        buffer.putInt(partsRegionId);
+        return this;
+    }
+
+    public RequestEncoder createRegion(int regionId, short... rectangles) {
+        writeHeader(XFixesExtension.MAJOR_OPCODE, 5, 2 + rectangles.length / 2);
+        buffer.putInt(regionId);
+        for (short value : rectangles) buffer.putShort(value);
+        return this;
+    }
+
+    public RequestEncoder fetchRegion(int regionId) {
+        writeHeader(XFixesExtension.MAJOR_OPCODE, 19, 2);
+        buffer.putInt(regionId);
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private void writeHeader(byte opcode, int requestData, int length) {
+        ensureCapacity(length * 4);
+        buffer.put(opcode);
+        buffer.put((byte)requestData);
+        buffer.putShort((short)length);
+    }
+
+    private void writePadded(byte[] data) {
+        buffer.put(data);
+        for (int i = -data.length & 3; i > 0; i--) buffer.put((byte)0);
+    }
+
+    private void ensureCapacity(int length) {
+        if (buffer.remaining() >= length) return;
+        ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+}
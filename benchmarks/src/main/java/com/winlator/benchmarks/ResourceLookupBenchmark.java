@@ -0,0 +1,64 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xserver.DrawableManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceLookupBenchmark {
+    private static final int PIXMAPS_PER_BATCH = 64;
+    @Param({"64", "4096"})
+    public int numResources;
+    private XServerFixture fixture;
+    private int[] lookupIds;
+    private byte[] createAndFreeRequests;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        int rootWindowId = fixture.getRootWindowId();
+        RequestEncoder encoder = new RequestEncoder();
+        for (int i = 1; i <= numResources; i++) encoder.createPixmap(fixture.getResourceId(i), rootWindowId, 1, 1, 32);
+        fixture.process(encoder.toByteArray());
+
+        Random random = new Random(numResources);
+        lookupIds = new int[PIXMAPS_PER_BATCH];
+        for (int i = 0; i < lookupIds.length; i++) lookupIds[i] = fixture.getResourceId(1 + random.nextInt(numResources));
+
+        encoder = new RequestEncoder();
+        for (int i = 1; i <= PIXMAPS_PER_BATCH; i++) encoder.createPixmap(fixture.getResourceId(numResources + i), rootWindowId, 1, 1, 32);
+        for (int i = PIXMAPS_PER_BATCH; i >= 1; i--) encoder.freePixmap(fixture.getResourceId(numResources + i));
+        createAndFreeRequests = encoder.toByteArray();
+    }
+
+    @Benchmark
+    public void getDrawable(Blackhole blackhole) {
+        DrawableManager drawableManager = fixture.xServer.drawableManager;
+        for (int id : lookupIds) blackhole.consume(drawableManager.getDrawable(id));
+    }
+
+    @Benchmark
+    public int createAndFreePixmaps() throws IOException {
+        return fixture.process(createAndFreeRequests);
+    }
+}
@@ -0,0 +1,56 @@
+package com.winlator.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShmImageBenchmark {
+    @Param({"socket", "shm"})
+    public String path;
+    private XServerFixture fixture;
+    private byte[] getImageRequest;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        int windowId = fixture.getResourceId(1);
+        int shmseg = fixture.getResourceId(2);
+        int width = fixture.xServer.screenInfo.width;
+        int height = fixture.xServer.screenInfo.height;
+        fixture.process(new RequestEncoder()
+            .createWindow(windowId, fixture.getRootWindowId(), 0, 0, width, height)
+            .mapWindow(windowId)
+            .shmAttach(shmseg, 1, false)
+            .toByteArray());
+
+        RequestEncoder encoder = new RequestEncoder();
+        if (path.equals("shm")) {
+            encoder.shmGetImage(windowId, 0, 0, width, height, shmseg, 0);
+        }
+        else encoder.getImage(windowId, 0, 0, width, height);
+        getImageRequest = encoder.toByteArray();
+    }
+
+    @Benchmark
+    public long readback() throws IOException {
+        fixture.process(getImageRequest);
+        return fixture.getBytesWritten();
+    }
+}
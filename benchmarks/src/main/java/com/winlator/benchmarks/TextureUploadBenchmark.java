@@ -0,0 +1,80 @@
+package com.winlator.benchmarks;
+
+import com.winlator.renderer.Texture;
+import com.winlator.xserver.Drawable;
+import com.winlator.xserver.XServer;
+import com.winlator.xserver.host.XTraceReplay;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextureUploadBenchmark {
+    @Param({"caret", "hud", "full"})
+    public String damage;
+    private Drawable drawable;
+    private Texture texture;
+    private int frame = 0;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class UploadCounters {
+        public long uploadedBytes;
+        public long frames;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            uploadedBytes = 0;
+            frames = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        XServer xServer = XTraceReplay.createXServer("1920x1080");
+        drawable = xServer.drawableManager.createDrawable(0, (short)1920, (short)1080, xServer.pixmapManager.visual);
+        texture = drawable.getTexture();
+        texture.updateFromDrawable(drawable);
+    }
+
+    @Benchmark
+    public int drawAndUpload(UploadCounters counters) {
+        frame = (frame + 1) & 63;
+        switch (damage) {
+            case "caret":
+                drawable.fillRect(400, 300, 2, 16, (frame & 1) != 0 ? 0xffffff : 0);
+                break;
+            case "hud":
+                drawable.fillRect(16, 16, 320, 48, frame);
+                drawable.drawLine(16, 70, 16 + frame * 4, 70, 0xff0000, 2);
+                drawable.fillRect(1600, 1000, 300, 60, frame);
+                break;
+            case "full":
+                drawable.fillColor(frame);
+                break;
+        }
+
+        int uploadedBytes = texture.updateFromDrawable(drawable);
+        counters.uploadedBytes += uploadedBytes;
+        counters.frames++;
+        return uploadedBytes;
+    }
+}
@@ -0,0 +1,86 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xserver.Atom;
+import com.winlator.xserver.Property;
+import com.winlator.xserver.Window;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WindowPropertyBenchmark {
+    @Param({"16", "65536"})
+    public int dataSize;
+    private XServerFixture fixture;
+    private Window window;
+    private int atom;
+    private int type;
+    private byte[] data;
+    private byte[] chunk;
+    private byte[] requests;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        int windowId = fixture.getResourceId(1);
+        fixture.process(new RequestEncoder().createWindow(windowId, fixture.getRootWindowId(), 0, 0, 640, 480).toByteArray());
+        window = fixture.xServer.windowManager.getWindow(windowId);
+
+        atom = Atom.internAtom("_BENCHMARK_PROPERTY");
+        type = Atom.getId("STRING");
+        data = new byte[dataSize];
+        for (int i = 0; i < dataSize; i++) data[i] = (byte)('a' + i % 26);
+        chunk = new byte[Math.min(dataSize, 1024)];
+        System.arraycopy(data, 0, chunk, 0, chunk.length);
+
+        requests = new RequestEncoder()
+            .changeProperty(windowId, atom, type, Property.Mode.REPLACE.ordinal(), data)
+            .getProperty(windowId, atom, type, (dataSize + 3) / 4)
+            .toByteArray();
+    }
+
+    @Benchmark
+    public Property replace() {
+        return window.modifyProperty(atom, type, Property.Format.BYTE_ARRAY, Property.Mode.REPLACE, data);
+    }
+
+    @Benchmark
+    public Property replaceAndAppend() {
+        window.modifyProperty(atom, type, Property.Format.BYTE_ARRAY, Property.Mode.REPLACE, data);
+        return window.modifyProperty(atom, type, Property.Format.BYTE_ARRAY, Property.Mode.APPEND, data);
+    }
+
+    @Benchmark
+    public Property appendStream() {
+        Property property = window.modifyProperty(atom, type, Property.Format.BYTE_ARRAY, Property.Mode.REPLACE, null);
+        for (int i = 0; i < 64; i++) window.modifyProperty(atom, type, Property.Format.BYTE_ARRAY, Property.Mode.APPEND, chunk);
+        return property;
+    }
+
+    @Benchmark
+    public String getName() {
+        return window.getName();
+    }
+
+    @Benchmark
+    public int changeAndGetPropertyRequests() throws IOException {
+        return fixture.process(requests);
+    }
+}
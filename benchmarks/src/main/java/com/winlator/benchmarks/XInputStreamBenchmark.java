@@ -0,0 +1,80 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xconnector.LoopbackTransport;
+import com.winlator.xconnector.XInputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XInputStreamBenchmark {
+    @Param({"1024", "65536"})
+    public int batchSize;
+    @Param({"512", "4096"})
+    public int readSize;
+    private LoopbackTransport transport;
+    private XInputStream inputStream;
+    private byte[] batch;
+
+    @Setup
+    public void setup() {
+        RequestEncoder encoder = new RequestEncoder();
+        int windowId = 0x200000;
+        while (encoder.toByteArray().length < batchSize) {
+            encoder.getGeometry(windowId)
+                .changeProperty(windowId, 39, 31, 0, "benchmark window".getBytes())
+                .internAtom("_NET_WM_STATE", true)
+                .noOperation();
+        }
+        batch = encoder.toByteArray();
+
+        transport = new LoopbackTransport();
+        inputStream = new XInputStream(transport, readSize);
+        inputStream.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @TearDown
+    public void tearDown() {
+        inputStream.release();
+    }
+
+    @Benchmark
+    public long parseRequests() throws IOException {
+        long checksum = 0;
+        transport.feed(batch, 0);
+        while (transport.available() > 0 && inputStream.readMoreData(false) > 0) {
+            int activePosition = 0;
+            while (inputStream.available() >= 4) {
+                byte opcode = inputStream.readByte();
+                byte requestData = inputStream.readByte();
+                int length = inputStream.readUnsignedShort() * 4 - 4;
+                if (inputStream.available() < length) break;
+
+                checksum += opcode + requestData;
+                for (int i = 0; i < length; i += 4) checksum += inputStream.readInt();
+                activePosition = inputStream.getActivePosition();
+            }
+            inputStream.setActivePosition(activePosition);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,90 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xserver.XLock;
+import com.winlator.xserver.XServer;
+import com.winlator.xserver.host.XTraceReplay;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XLockBenchmark {
+    private static final int POINTER_READ_MASK = XServer.Lockable.WINDOW_MANAGER.flag();
+    private static final int POINTER_WRITE_MASK = XServer.Lockable.INPUT_DEVICE.flag();
+    private XServer xServer;
+
+    @Setup
+    public void setup() {
+        xServer = XTraceReplay.createXServer("1280x720");
+    }
+
+    @Benchmark
+    @Group("lockForWrite")
+    public void lockForWrite() {
+        try (XLock lock = xServer.lock(XServer.Lockable.WINDOW_MANAGER)) {}
+    }
+
+    @Benchmark
+    @Group("lockForRead")
+    public void lockForRead() {
+        try (XLock lock = xServer.lockForRead(XServer.Lockable.WINDOW_MANAGER)) {}
+    }
+
+    @Benchmark
+    @Group("lockMixed")
+    public void lockMixed() {
+        try (XLock lock = xServer.lock(POINTER_READ_MASK, POINTER_WRITE_MASK)) {}
+    }
+
+    @Benchmark
+    @Group("renderAndQuery")
+    @GroupThreads(1)
+    public void renderer(Blackhole blackhole) {
+        try (XLock lock = xServer.lockForRead(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
+            blackhole.consume(xServer.windowManager.rootWindow.getChildCount());
+        }
+    }
+
+    @Benchmark
+    @Group("renderAndQuery")
+    @GroupThreads(1)
+    public void query(Blackhole blackhole) {
+        try (XLock lock = xServer.lockForRead(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
+            blackhole.consume(xServer.windowManager.rootWindow.getWidth());
+        }
+    }
+
+    @Benchmark
+    @Group("renderAndPointerMove")
+    @GroupThreads(1)
+    public void rendererWithInput(Blackhole blackhole) {
+        try (XLock lock = xServer.lockForRead(XServer.Lockable.WINDOW_MANAGER, XServer.Lockable.DRAWABLE_MANAGER)) {
+            blackhole.consume(xServer.windowManager.rootWindow.getChildCount());
+        }
+    }
+
+    @Benchmark
+    @Group("renderAndPointerMove")
+    @GroupThreads(1)
+    public void pointerMove() {
+        try (XLock lock = xServer.lock(POINTER_READ_MASK, POINTER_WRITE_MASK)) {}
+    }
+}
@@ -0,0 +1,89 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xconnector.LoopbackTransport;
+import com.winlator.xconnector.XOutputStream;
+import com.winlator.xconnector.XStreamLock;
+import com.winlator.xserver.Bitmask;
+import com.winlator.xserver.Window;
+import com.winlator.xserver.events.Event;
+import com.winlator.xserver.events.MotionNotify;
+import com.winlator.xserver.events.PropertyNotify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XOutputStreamBenchmark {
+    @Param({"1", "64"})
+    public int batchSize;
+    @Param({"true", "false"})
+    public boolean autoFlush;
+    private XServerFixture fixture;
+    private XOutputStream outputStream;
+    private Event[] events;
+
+    @Setup
+    public void setup() throws IOException {
+        fixture = new XServerFixture();
+        Window root = fixture.xServer.windowManager.rootWindow;
+        events = new Event[]{
+            new MotionNotify(false, root, root, null, (short)100, (short)200, (short)100, (short)200, new Bitmask()),
+            new PropertyNotify(root, 39, false)
+        };
+
+        outputStream = new XOutputStream(new LoopbackTransport(), 4096);
+        outputStream.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @TearDown
+    public void tearDown() {
+        outputStream.release();
+    }
+
+    @Benchmark
+    public void encodeReplies() throws IOException {
+        outputStream.setAutoFlush(autoFlush);
+        for (int i = 0; i < batchSize; i++) {
+            try (XStreamLock lock = outputStream.lock()) {
+                outputStream.writeByte((byte)1);
+                outputStream.writeByte((byte)24);
+                outputStream.writeShort((short)i);
+                outputStream.writeInt(0);
+                outputStream.writeInt(fixture.getRootWindowId());
+                outputStream.writeShort((short)0);
+                outputStream.writeShort((short)0);
+                outputStream.writeShort((short)1280);
+                outputStream.writeShort((short)720);
+                outputStream.writeShort((short)0);
+                outputStream.writePad(10);
+            }
+        }
+        outputStream.setAutoFlush(true);
+    }
+
+    @Benchmark
+    public void encodeEvents() throws IOException {
+        outputStream.setAutoFlush(autoFlush);
+        for (int i = 0; i < batchSize; i++) events[i & 1].send((short)i, outputStream);
+        outputStream.setAutoFlush(true);
+    }
+}
@@ -0,0 +1,59 @@
+package com.winlator.benchmarks;
+
+import com.winlator.xconnector.Client;
+import com.winlator.xconnector.LoopbackTransport;
+import com.winlator.xconnector.XInputStream;
+import com.winlator.xserver.XClient;
+import com.winlator.xserver.XClientConnectionHandler;
+import com.winlator.xserver.XClientRequestHandler;
+import com.winlator.xserver.XServer;
+import com.winlator.xserver.host.XTraceReplay;
+
+import java.io.IOException;
+
+public class XServerFixture {
+    public final XServer xServer;
+    public final Client client;
+    public final XClient xClient;
+    private final LoopbackTransport transport = new LoopbackTransport();
+    private final XClientRequestHandler requestHandler = new XClientRequestHandler();
+
+    public XServerFixture() throws IOException {
+        this("1280x720");
+    }
+
+    public XServerFixture(String screenSize) throws IOException {
+        xServer = XTraceReplay.createXServer(screenSize);
+        client = new Client(transport);
+        new XClientConnectionHandler(xServer).handleNewConnection(client);
+        xClient = (XClient)client.getTag();
+        process(RequestEncoder.connectionSetup());
+    }
+
+    public int process(byte[] requests) throws IOException {
+        transport.feed(requests, 0);
+        XInputStream inputStream = client.getInputStream();
+        int numRequests = 0;
+        while (transport.available() > 0 && inputStream.readMoreData(false) > 0) {
+            int activePosition = 0;
+            while (requestHandler.handleRequest(client)) {
+                activePosition = inputStream.getActivePosition();
+                numRequests++;
+            }
+            inputStream.setActivePosition(activePosition);
+        }
+        return numRequests;
+    }
+
+    public int getResourceId(int index) {
+        return xClient.resourceIDBase | index;
+    }
+
+    public int getRootWindowId() {
+        return xServer.windowManager.rootWindow.id;
+    }
+
+    public long getBytesWritten() {
+        return transport.getBytesWritten();
+    }
+}
@@ -0,0 +1,29 @@
+#include <stdarg.h>
+#include <stdio.h>
+#include <string.h>
+#include <android/bitmap.h>
+#include <android/log.h>
+
+int __android_log_print(int prio, const char* tag, const char* fmt, ...) {
+    va_list args;
+    va_start(args, fmt);
+    fprintf(stderr, "%s: ", tag);
+    int result = vfprintf(stderr, fmt, args);
+    fputc('\n', stderr);
+    va_end(args);
+    return result;
+}
+
+int AndroidBitmap_getInfo(JNIEnv* env, jobject jbitmap, AndroidBitmapInfo* info) {
+    memset(info, 0, sizeof(AndroidBitmapInfo));
+    return -1;
+}
+
+int AndroidBitmap_lockPixels(JNIEnv* env, jobject jbitmap, void** addrPtr) {
+    *addrPtr = NULL;
+    return -1;
+}
+
+int AndroidBitmap_unlockPixels(JNIEnv* env, jobject jbitmap) {
+    return -1;
+}
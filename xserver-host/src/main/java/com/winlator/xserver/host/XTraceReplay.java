@@ -0,0 +1,82 @@
+package com.winlator.xserver.host;
+
+import android.content.Context;
+
+import com.winlator.sysvshm.SysVSharedMemory;
+import com.winlator.widget.XServerView;
+import com.winlator.xconnector.TraceReplayer;
+import com.winlator.xserver.SHMSegmentManager;
+import com.winlator.xserver.ScreenInfo;
+import com.winlator.xserver.XClientConnectionHandler;
+import com.winlator.xserver.XClientRequestHandler;
+import com.winlator.xserver.XServer;
+
+import java.io.File;
+import java.io.IOException;
+
+public class XTraceReplay {
+    private File traceFile;
+    private String screenSize = "1280x720";
+    private int iterations = 1;
+    private boolean realTime = false;
+    private boolean profile = false;
+
+    public static XServer createXServer(String screenSize) {
+        XServer xServer = new XServer(new ScreenInfo(screenSize));
+        xServer.setSHMSegmentManager(new SHMSegmentManager(new SysVSharedMemory()));
+        xServer.setRenderer(new XServerView(new Context(), xServer).getRenderer());
+        return xServer;
+    }
+
+    public static TraceReplayer createReplayer(XServer xServer) {
+        return new TraceReplayer(new XClientConnectionHandler(xServer), new XClientRequestHandler());
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--screen":
+                    screenSize = args[++i];
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--realtime":
+                    realTime = true;
+                    break;
+                case "--profile":
+                    profile = true;
+                    break;
+                default:
+                    traceFile = new File(args[i]);
+                    break;
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        for (int i = 0; i < iterations; i++) {
+            XServer xServer = createXServer(screenSize);
+            xServer.requestProfiler.setEnabled(profile);
+
+            TraceReplayer replayer = createReplayer(xServer);
+            replayer.setRealTime(realTime);
+            replayer.replay(traceFile);
+
+            System.out.println("iteration "+(i+1)+": "+replayer);
+            if (profile) System.out.print(xServer.requestProfiler.dump());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        XTraceReplay replay = new XTraceReplay();
+        replay.parseArgs(args);
+        if (replay.traceFile == null) {
+            System.err.println("usage: XTraceReplay [--screen WxH] [--iterations N] [--realtime] [--profile] <trace file>");
+            System.exit(2);
+        }
+
+        replay.run();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,7 @@
+package android.content;
+
+public class Context {
+    public Object getResources() {
+        return null;
+    }
+}
@@ -0,0 +1,11 @@
+package android.graphics;
+
+public class BitmapFactory {
+    public static class Options {
+        public boolean inScaled = true;
+    }
+
+    public static Bitmap decodeResource(Object res, int id, Options options) {
+        return Bitmap.createBitmap(16, 16, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,5 @@
+package android.opengl;
+
+public class GLES11Ext {
+    public static final int GL_BGRA = 0x80E1;
+}
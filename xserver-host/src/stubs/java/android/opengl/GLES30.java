@@ -0,0 +1,5 @@
+package android.opengl;
+
+public class GLES30 extends GLES20 {
+    public static final int GL_UNPACK_ROW_LENGTH = 0x0CF2;
+}
@@ -0,0 +1,47 @@
+package android.opengl;
+
+import android.content.Context;
+import android.view.Display;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+public class GLSurfaceView {
+    public static final int RENDERMODE_WHEN_DIRTY = 0;
+    public static final int RENDERMODE_CONTINUOUSLY = 1;
+    private final Context context;
+
+    public interface Renderer {
+        void onSurfaceCreated(GL10 gl, EGLConfig config);
+
+        void onSurfaceChanged(GL10 gl, int width, int height);
+
+        void onDrawFrame(GL10 gl);
+    }
+
+    public GLSurfaceView(Context context) {
+        this.context = context;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public Display getDisplay() {
+        return null;
+    }
+
+    public void setRenderMode(int renderMode) {}
+
+    public void requestRender() {}
+
+    public void queueEvent(Runnable r) {}
+
+    public boolean post(Runnable action) {
+        return true;
+    }
+
+    public boolean postDelayed(Runnable action, long delayMillis) {
+        return true;
+    }
+}
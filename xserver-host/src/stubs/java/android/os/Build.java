@@ -0,0 +1,11 @@
+package android.os;
+
+public class Build {
+    public static class VERSION {
+        public static final int SDK_INT = 30;
+    }
+
+    public static class VERSION_CODES {
+        public static final int O_MR1 = 27;
+    }
+}
@@ -0,0 +1,3 @@
+package android.system;
+
+public class ErrnoException extends Exception {}
@@ -0,0 +1,69 @@
+package android.util;
+
+import java.util.Arrays;
+
+public class SparseBooleanArray {
+    private int[] keys = new int[10];
+    private boolean[] values = new boolean[10];
+    private int size;
+
+    public boolean get(int key) {
+        return get(key, false);
+    }
+
+    public boolean get(int key, boolean valueIfKeyNotFound) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        return index >= 0 ? values[index] : valueIfKeyNotFound;
+    }
+
+    public void put(int key, boolean value) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+
+        index = ~index;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    public void delete(int key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) removeAt(index);
+    }
+
+    public void removeAt(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    public int indexOfKey(int key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        return index >= 0 ? index : -1;
+    }
+
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    public boolean valueAt(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
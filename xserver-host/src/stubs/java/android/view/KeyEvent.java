@@ -0,0 +1,130 @@
+package android.view;
+
+public class KeyEvent {
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int KEYCODE_0 = 7;
+    public static final int KEYCODE_1 = 8;
+    public static final int KEYCODE_2 = 9;
+    public static final int KEYCODE_3 = 10;
+    public static final int KEYCODE_4 = 11;
+    public static final int KEYCODE_5 = 12;
+    public static final int KEYCODE_6 = 13;
+    public static final int KEYCODE_7 = 14;
+    public static final int KEYCODE_8 = 15;
+    public static final int KEYCODE_9 = 16;
+    public static final int KEYCODE_STAR = 17;
+    public static final int KEYCODE_POUND = 18;
+    public static final int KEYCODE_DPAD_UP = 19;
+    public static final int KEYCODE_DPAD_DOWN = 20;
+    public static final int KEYCODE_DPAD_LEFT = 21;
+    public static final int KEYCODE_DPAD_RIGHT = 22;
+    public static final int KEYCODE_A = 29;
+    public static final int KEYCODE_B = 30;
+    public static final int KEYCODE_C = 31;
+    public static final int KEYCODE_D = 32;
+    public static final int KEYCODE_E = 33;
+    public static final int KEYCODE_F = 34;
+    public static final int KEYCODE_G = 35;
+    public static final int KEYCODE_H = 36;
+    public static final int KEYCODE_I = 37;
+    public static final int KEYCODE_J = 38;
+    public static final int KEYCODE_K = 39;
+    public static final int KEYCODE_L = 40;
+    public static final int KEYCODE_M = 41;
+    public static final int KEYCODE_N = 42;
+    public static final int KEYCODE_O = 43;
+    public static final int KEYCODE_P = 44;
+    public static final int KEYCODE_Q = 45;
+    public static final int KEYCODE_R = 46;
+    public static final int KEYCODE_S = 47;
+    public static final int KEYCODE_T = 48;
+    public static final int KEYCODE_U = 49;
+    public static final int KEYCODE_V = 50;
+    public static final int KEYCODE_W = 51;
+    public static final int KEYCODE_X = 52;
+    public static final int KEYCODE_Y = 53;
+    public static final int KEYCODE_Z = 54;
+    public static final int KEYCODE_COMMA = 55;
+    public static final int KEYCODE_PERIOD = 56;
+    public static final int KEYCODE_ALT_LEFT = 57;
+    public static final int KEYCODE_ALT_RIGHT = 58;
+    public static final int KEYCODE_SHIFT_LEFT = 59;
+    public static final int KEYCODE_SHIFT_RIGHT = 60;
+    public static final int KEYCODE_TAB = 61;
+    public static final int KEYCODE_SPACE = 62;
+    public static final int KEYCODE_ENTER = 66;
+    public static final int KEYCODE_DEL = 67;
+    public static final int KEYCODE_GRAVE = 68;
+    public static final int KEYCODE_MINUS = 69;
+    public static final int KEYCODE_EQUALS = 70;
+    public static final int KEYCODE_LEFT_BRACKET = 71;
+    public static final int KEYCODE_RIGHT_BRACKET = 72;
+    public static final int KEYCODE_BACKSLASH = 73;
+    public static final int KEYCODE_SEMICOLON = 74;
+    public static final int KEYCODE_APOSTROPHE = 75;
+    public static final int KEYCODE_SLASH = 76;
+    public static final int KEYCODE_AT = 77;
+    public static final int KEYCODE_PLUS = 81;
+    public static final int KEYCODE_PAGE_UP = 92;
+    public static final int KEYCODE_PAGE_DOWN = 93;
+    public static final int KEYCODE_FORWARD_DEL = 112;
+    public static final int KEYCODE_CTRL_LEFT = 113;
+    public static final int KEYCODE_CTRL_RIGHT = 114;
+    public static final int KEYCODE_CAPS_LOCK = 115;
+    public static final int KEYCODE_MOVE_HOME = 122;
+    public static final int KEYCODE_MOVE_END = 123;
+    public static final int KEYCODE_INSERT = 124;
+    public static final int KEYCODE_F1 = 131;
+    public static final int KEYCODE_F2 = 132;
+    public static final int KEYCODE_F3 = 133;
+    public static final int KEYCODE_F4 = 134;
+    public static final int KEYCODE_F5 = 135;
+    public static final int KEYCODE_F6 = 136;
+    public static final int KEYCODE_F7 = 137;
+    public static final int KEYCODE_F8 = 138;
+    public static final int KEYCODE_F9 = 139;
+    public static final int KEYCODE_F10 = 140;
+    public static final int KEYCODE_F11 = 141;
+    public static final int KEYCODE_F12 = 142;
+    public static final int KEYCODE_NUM_LOCK = 143;
+    public static final int KEYCODE_NUMPAD_0 = 144;
+    public static final int KEYCODE_NUMPAD_1 = 145;
+    public static final int KEYCODE_NUMPAD_2 = 146;
+    public static final int KEYCODE_NUMPAD_3 = 147;
+    public static final int KEYCODE_NUMPAD_4 = 148;
+    public static final int KEYCODE_NUMPAD_5 = 149;
+    public static final int KEYCODE_NUMPAD_6 = 150;
+    public static final int KEYCODE_NUMPAD_7 = 151;
+    public static final int KEYCODE_NUMPAD_8 = 152;
+    public static final int KEYCODE_NUMPAD_9 = 153;
+    public static final int KEYCODE_NUMPAD_DIVIDE = 154;
+    public static final int KEYCODE_NUMPAD_MULTIPLY = 155;
+    public static final int KEYCODE_NUMPAD_SUBTRACT = 156;
+    public static final int KEYCODE_NUMPAD_ADD = 157;
+    public static final int KEYCODE_NUMPAD_DOT = 158;
+
+    public static int getMaxKeyCode() {
+        return 288;
+    }
+
+    public Object getDevice() {
+        return null;
+    }
+
+    public int getAction() {
+        return ACTION_DOWN;
+    }
+
+    public int getKeyCode() {
+        return 0;
+    }
+
+    public boolean isShiftPressed() {
+        return false;
+    }
+
+    public int getUnicodeChar() {
+        return 0;
+    }
+}
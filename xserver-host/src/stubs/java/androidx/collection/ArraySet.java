@@ -0,0 +1,43 @@
+package androidx.collection;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+public class ArraySet<E> extends AbstractSet<E> {
+    private final ArrayList<E> values = new ArrayList<>();
+
+    public E valueAt(int index) {
+        return values.get(index);
+    }
+
+    public E removeAt(int index) {
+        return values.remove(index);
+    }
+
+    @Override
+    public boolean add(E value) {
+        if (values.contains(value)) return false;
+        return values.add(value);
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return values.contains(value);
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return values.remove(value);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return values.iterator();
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,7 @@
+package com.winlator;
+
+public final class R {
+    public static final class drawable {
+        public static final int cursor = 0;
+    }
+}
@@ -0,0 +1,39 @@
+package com.winlator;
+
+public class XrActivity {
+    public static boolean isSupported() {
+        return false;
+    }
+
+    public static XrActivity getInstance() {
+        return null;
+    }
+
+    public static boolean getImmersive() {
+        return false;
+    }
+
+    public static boolean getSBS() {
+        return false;
+    }
+
+    public static void updateControllers() {}
+
+    public void init() {}
+
+    public int getWidth() {
+        return 0;
+    }
+
+    public int getHeight() {
+        return 0;
+    }
+
+    public boolean beginFrame(boolean immersive, boolean sbs) {
+        return false;
+    }
+
+    public void endFrame() {}
+
+    public void bindFramebuffer() {}
+}
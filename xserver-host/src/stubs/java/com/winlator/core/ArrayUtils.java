@@ -0,0 +1,15 @@
+package com.winlator.core;
+
+import java.util.Arrays;
+
+public abstract class ArrayUtils {
+    public static byte[] concat(byte[]... elements) {
+        byte[] result = Arrays.copyOf(elements[0], elements[0].length);
+        for (int i = 1; i < elements.length; i++) {
+            byte[] newArray = Arrays.copyOf(result, result.length + elements[i].length);
+            System.arraycopy(elements[i], 0, newArray, result.length, elements[i].length);
+            result = newArray;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package com.winlator.core;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public abstract class FileUtils {
+    public static boolean writeString(File file, String data) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write(data);
+            bw.flush();
+            return true;
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    public static boolean delete(File targetFile) {
+        if (targetFile == null) return false;
+        if (targetFile.isDirectory()) {
+            File[] files = targetFile.listFiles();
+            if (files != null) {
+                for (File file : files) if (!delete(file)) return false;
+            }
+        }
+        return targetFile.delete();
+    }
+
+    public static String getDirname(String path) {
+        if (path == null) return "";
+        path = StringUtils.removeEndSlash(path);
+        int index = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        return path.substring(0, index);
+    }
+
+    public static int readInt(String path) {
+        int result = 0;
+        try {
+            try (RandomAccessFile reader = new RandomAccessFile(path, "r")) {
+                String line = reader.readLine();
+                result = !line.isEmpty() ? Integer.parseInt(line) : 0;
+            }
+        }
+        catch (Exception e) {}
+        return result;
+    }
+}
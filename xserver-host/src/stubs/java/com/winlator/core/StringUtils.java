@@ -0,0 +1,24 @@
+package com.winlator.core;
+
+import java.nio.charset.Charset;
+
+public abstract class StringUtils {
+    public static String removeEndSlash(String value) {
+        while (value.endsWith("/") || value.endsWith("\\")) value = value.substring(0, value.length()-1);
+        return value;
+    }
+
+    public static String fromANSIString(byte[] bytes) {
+        return fromANSIString(bytes, null);
+    }
+
+    public static String fromANSIString(byte[] bytes, Charset charset) {
+        return fromANSIString(bytes, 0, bytes.length, charset);
+    }
+
+    public static String fromANSIString(byte[] bytes, int offset, int length, Charset charset) {
+        String value = charset != null ? new String(bytes, offset, length, charset) : new String(bytes, offset, length);
+        int indexOfNull = value.indexOf('\0');
+        return indexOfNull != -1 ? value.substring(0, indexOfNull) : value;
+    }
+}
@@ -0,0 +1,7 @@
+package com.winlator.inputcontrols;
+
+public class ExternalController {
+    public static boolean isGameController(Object device) {
+        return false;
+    }
+}
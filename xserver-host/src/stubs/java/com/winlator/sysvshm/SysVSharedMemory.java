@@ -0,0 +1,59 @@
+package com.winlator.sysvshm;
+
+import android.util.SparseArray;
+
+import java.nio.ByteBuffer;
+
+public class SysVSharedMemory {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private final SparseArray<ByteBuffer> shmemories = new SparseArray<>();
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private int maxSHMemoryId = 0;
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getFd(int shmid) {
+        return -1;
+    }
+
+    public synchronized int get(long size) {
+        int id = ++maxSHMemoryId;
+        shmemories.put(id, ByteBuffer.allocateDirect((int)size));
+        return id;
+    }
+
+    public synchronized void delete(int shmid) {
+        shmemories.remove(shmid);
+    }
+
+    public synchronized void deleteAll() {
+        shmemories.clear();
+    }
+
+    public synchronized ByteBuffer attach(int shmid) {
+        ByteBuffer data = shmemories.get(shmid);
+        if (data == null) {
+            data = ByteBuffer.allocateDirect(segmentSize);
+            shmemories.put(shmid, data);
+        }
+        return data;
+    }
+
+    public void detach(ByteBuffer data) {}
+
+    public static int createMemoryFd(String name, int size) {
+        return -1;
+    }
+
+    public static ByteBuffer mapSHMSegment(int fd, long size, int offset, boolean readonly) {
+        return ByteBuffer.allocateDirect((int)size);
+    }
+
+    public static void unmapSHMSegment(ByteBuffer data, long size) {}
+}
@@ -0,0 +1,21 @@
+package com.winlator.widget;
+
+import android.content.Context;
+import android.opengl.GLSurfaceView;
+
+import com.winlator.renderer.GLRenderer;
+import com.winlator.xserver.XServer;
+
+public class XServerView extends GLSurfaceView {
+    private final GLRenderer renderer;
+
+    public XServerView(Context context, XServer xServer) {
+        super(context);
+        renderer = new GLRenderer(this, xServer);
+        setRenderMode(RENDERMODE_WHEN_DIRTY);
+    }
+
+    public GLRenderer getRenderer() {
+        return renderer;
+    }
+}
@@ -0,0 +1,7 @@
+package com.winlator.winhandler;
+
+public class WinHandler {
+    public void mouseEvent(int flags, int dx, int dy, int wheelDelta) {}
+
+    public void bringToFront(String processName, long handle) {}
+}
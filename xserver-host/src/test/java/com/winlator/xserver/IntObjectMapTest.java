@@ -0,0 +1,93 @@
+package com.winlator.xserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class IntObjectMapTest {
+    @Test
+    public void smallMapsMatchHashMap() {
+        // A 16-slot table with keys from a range of 32 keeps the probe chains long and wrapping past
+        // the last slot, which is where the backward-shift deletion has to take care.
+        Random random = new Random(1);
+        for (int round = 0; round < 2000; round++) {
+            runOperations(random, new IntObjectMap<>(), new HashMap<>(), 32, 200);
+        }
+    }
+
+    @Test
+    public void growingMapMatchesHashMap() {
+        Random random = new Random(2);
+        runOperations(random, new IntObjectMap<>(), new HashMap<>(), 1 << 14, 200000);
+    }
+
+    @Test
+    public void resourceIdsMatchHashMap() {
+        // Client resource ids share the high bits and differ only in the low ones
+        Random random = new Random(3);
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        for (int round = 0; round < 50; round++) {
+            int base = (random.nextInt(64) + 1) << 21;
+            for (int i = 0; i < 1000; i++) {
+                int key = base | random.nextInt(512);
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(key), map.remove(key));
+                }
+                else assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertSameContents(expected, map);
+        }
+    }
+
+    @Test
+    public void putNullRemoves() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "a");
+        assertEquals("a", map.put(1, null));
+        assertNull(map.get(1));
+        assertEquals(0, map.size());
+    }
+
+    private static void runOperations(Random random, IntObjectMap<Integer> map, HashMap<Integer, Integer> expected, int keyRange, int count) {
+        for (int i = 0; i < count; i++) {
+            int key = random.nextInt(keyRange) - keyRange / 4;
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    assertEquals(expected.put(key, i), map.put(key, i));
+                    break;
+                case 2:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 3:
+                    assertEquals(expected.get(key), map.get(key));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertSameContents(expected, map);
+    }
+
+    private static void assertSameContents(HashMap<Integer, Integer> expected, IntObjectMap<Integer> map) {
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        int count = 0;
+        for (int i = 0; i < map.capacity(); i++) {
+            Integer value = map.valueAt(i);
+            if (value == null) continue;
+            assertEquals(expected.get(map.keyAt(i)), value);
+            count++;
+        }
+        assertEquals(expected.size(), count);
+    }
+}
@@ -0,0 +1,121 @@
+package com.winlator.xserver;
+
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class WindowSpatialIndexTest {
+    private static final int SCREEN_WIDTH = 1280;
+    private static final int SCREEN_HEIGHT = 720;
+    private final Random random = new Random(1);
+    private final ArrayList<Window> windows = new ArrayList<>();
+    private Window rootWindow;
+    private WindowSpatialIndex spatialIndex;
+    private int nextId = 1;
+
+    @Test
+    public void matchesTreeWalk() {
+        // Same sequence of index updates as WindowManager: geometry changes go through updateGeometry,
+        // map, unmap, real restacks and destroys invalidate
+        for (int round = 0; round < 50; round++) {
+            rootWindow = new Window(nextId++, null, 0, 0, SCREEN_WIDTH, SCREEN_HEIGHT, null);
+            rootWindow.attributes.setMapped(true);
+            spatialIndex = new WindowSpatialIndex(rootWindow);
+            windows.clear();
+            windows.add(rootWindow);
+
+            for (int i = 0; i < 300; i++) {
+                modifyRandomWindow();
+                for (int j = 0; j < 10; j++) {
+                    short x = (short)(random.nextInt(SCREEN_WIDTH + 100) - 50);
+                    short y = (short)(random.nextInt(SCREEN_HEIGHT + 100) - 50);
+                    assertSame(findPointWindow(rootWindow, x, y), spatialIndex.findPointWindow(x, y));
+                }
+            }
+        }
+    }
+
+    private void modifyRandomWindow() {
+        Window window = windows.get(random.nextInt(windows.size()));
+        int operation = windows.size() < 4 ? 0 : random.nextInt(6);
+        if (window == rootWindow && operation != 0) operation = 4;
+
+        switch (operation) {
+            case 0: {
+                Window child = new Window(nextId++, null, randomPosition(window.getWidth()), randomPosition(window.getHeight()),
+                    random.nextInt(window.getWidth() + 1), random.nextInt(window.getHeight() + 1), null);
+                window.addChild(child);
+                windows.add(child);
+                break;
+            }
+            case 1:
+                window.attributes.setMapped(true);
+                spatialIndex.invalidate();
+                break;
+            case 2:
+                window.attributes.setMapped(false);
+                spatialIndex.invalidate();
+                break;
+            case 3: {
+                Window parent = window.getParent();
+                window.setX(randomPosition(parent.getWidth()));
+                window.setY(randomPosition(parent.getHeight()));
+                if (random.nextBoolean()) {
+                    window.setWidth((short)random.nextInt(parent.getWidth() + 1));
+                    window.setHeight((short)random.nextInt(parent.getHeight() + 1));
+                }
+                spatialIndex.updateGeometry(window);
+                break;
+            }
+            case 4: {
+                if (window.getChildCount() == 0) break;
+                List<Window> children = window.getChildren();
+                Window child = children.get(random.nextInt(children.size()));
+                Window previousSibling = child.previousSibling();
+                window.moveChildAbove(child, random.nextBoolean() ? children.get(random.nextInt(children.size())) : null);
+                if (child.previousSibling() != previousSibling) spatialIndex.invalidate();
+                break;
+            }
+            case 5:
+                destroyWindow(window);
+                spatialIndex.invalidate();
+                break;
+        }
+    }
+
+    private short randomPosition(int size) {
+        return (short)(random.nextInt(size + 200) - 100);
+    }
+
+    private void destroyWindow(Window window) {
+        for (Window child : new ArrayList<>(window.getChildren())) destroyWindow(child);
+        window.getParent().removeChild(window);
+        windows.remove(window);
+    }
+
+    /* The recursive walk WindowManager.findPointWindow used before the index, with root positions summed up
+       from the parents instead of Window's cached value. */
+    private static Window findPointWindow(Window window, short rootX, short rootY) {
+        if (!(window.attributes.isMapped() && containsPoint(window, rootX, rootY))) return null;
+        List<Window> children = window.getChildren();
+        for (int i = children.size()-1; i >= 0; i--) {
+            Window child = children.get(i);
+            if (child.attributes.isMapped() && containsPoint(child, rootX, rootY)) return findPointWindow(child, rootX, rootY);
+        }
+        return window;
+    }
+
+    private static boolean containsPoint(Window window, short rootX, short rootY) {
+        int x = rootX;
+        int y = rootY;
+        for (Window ancestor = window; ancestor != null; ancestor = ancestor.getParent()) {
+            x -= ancestor.getX();
+            y -= ancestor.getY();
+        }
+        return x >= 0 && y >= 0 && x < window.getWidth() && y < window.getHeight();
+    }
+}